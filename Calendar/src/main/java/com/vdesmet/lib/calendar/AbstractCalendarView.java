@@ -6,10 +6,14 @@ import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Typeface;
 import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.v4.view.ViewPager;
 import android.util.AttributeSet;
+import android.util.SparseIntArray;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
@@ -20,8 +24,8 @@ import java.util.Calendar;
 
 public abstract class AbstractCalendarView extends LinearLayout {
     public static final int MONTHS_IN_YEAR = 12;
-    private static final int DAYS_IN_WEEK = 7;
-    private static final int MAX_WEEKS_IN_MONTH = 6;
+    protected static final int DAYS_IN_WEEK = 7;
+    protected static final int MAX_WEEKS_IN_MONTH = 6;
 
     protected boolean mIsViewInitialized;
 
@@ -40,7 +44,55 @@ public abstract class AbstractCalendarView extends LinearLayout {
 
     protected OnDayClickListener mOnDayClickListener;
 
+    protected CalendarSelection mSelection;
+
+    protected boolean mShowToday;
+
+    protected boolean mShowHeaders = true;
+
     protected Typeface mTypeface;
+    // True while the default typeface is loading, and no custom typeface was set
+    private boolean mIsWaitingForTypeface;
+    private final CalendarResources.OnTypefaceLoadedListener mTypefaceListener =
+            new CalendarResources.OnTypefaceLoadedListener() {
+                @Override
+                public void onTypefaceLoaded(final Typeface typeface) {
+                    if(mIsWaitingForTypeface) {
+                        mIsWaitingForTypeface = false;
+                        mTypeface = typeface;
+                        applyTypeface(typeface);
+                    }
+                }
+            };
+
+    // Shared between the pages of a MultiCalendarView
+    WeekSpanCache mWeekSpanCache;
+    DecorationCache mDecorationCache;
+    MonthModelCache mMonthModelCache;
+
+    protected CategoryPalette mCategoryPalette;
+
+    protected AvailabilityRules mAvailabilityRules;
+
+    protected DayLoadIndex mDayLoadIndex;
+    protected boolean mHasHeatmapColors;
+    protected int mHeatmapLowColor;
+    protected int mHeatmapHighColor;
+
+    protected CalendarMetricsListener mMetricsListener;
+    // The number of layouts inflated, reported to the metrics listener
+    protected int mInflatedViewCount;
+    // Draws timings on top of the days while debugging, shared with the pages of a MultiCalendarView
+    protected DebugOverlay mDebugOverlay;
+
+    // Collects the changes of an ObservableDayAdapter until the next frame
+    private ChangeCoalescer mChangeCoalescer;
+    private boolean mIsObservingAdapter;
+    private boolean mIsAttachedToWindow;
+    // The pages of a MultiCalendarView are updated by the MultiCalendarView instead
+    private boolean mObservesAdapter = true;
+    // Whether the answers of the DayAdapter are kept for the restored Calendar, see setRetainsAdapterAnswers()
+    private boolean mRetainsAdapterAnswers;
 
     @TargetApi(Build.VERSION_CODES.HONEYCOMB)
     public AbstractCalendarView(final Context context, final AttributeSet attrs, final int defStyle) {
@@ -179,12 +231,266 @@ public abstract class AbstractCalendarView extends LinearLayout {
     /**
      * Set a DayAdapter
      * The DayAdapter will be able to change the TextViews of the headers/days
-     * and is able to add Category Colors to days
+     * and is able to add Category Colors to days.
+     * The answers of isDayEnabled() and getCategoryColors() are cached per month, also when a page of a
+     * MultiCalendarView is built again. Call notifyDaysChanged() or notifyAllDaysChanged() when they change.
      *
      * @param newAdapter The (new) adapter to be set
      */
     public void setDayAdapter(DayAdapter newAdapter) {
+        stopObservingAdapter();
         this.mDayAdapter = newAdapter;
+        if(mIsAttachedToWindow) {
+            startObservingAdapter();
+        }
+    }
+
+    /**
+     * Keep the answers of the DayAdapter in memory when the state is saved, so the Calendar which restores
+     * the state doesn't ask its DayAdapter again, e.g. after a rotation. Only enable this if the DayAdapter
+     * of the restored Calendar returns the same answers as the current one. Disabled by default.
+     *
+     * @param retains Whether the restored Calendar reuses the answers of the current DayAdapter
+     */
+    public void setRetainsAdapterAnswers(final boolean retains) {
+        mRetainsAdapterAnswers = retains;
+    }
+
+    public boolean isRetainingAdapterAnswers() {
+        return mRetainsAdapterAnswers;
+    }
+
+    /**
+     * Set whether this view registers itself as observer of an ObservableDayAdapter
+     */
+    void setObservesAdapter(final boolean observesAdapter) {
+        mObservesAdapter = observesAdapter;
+        if(!observesAdapter) {
+            stopObservingAdapter();
+        } else if(mIsAttachedToWindow) {
+            startObservingAdapter();
+        }
+    }
+
+    private void startObservingAdapter() {
+        if(mIsObservingAdapter || !mObservesAdapter || !(mDayAdapter instanceof ObservableDayAdapter)) {
+            return;
+        }
+        if(mChangeCoalescer == null) {
+            mChangeCoalescer = new ChangeCoalescer(this);
+        }
+        ((ObservableDayAdapter) mDayAdapter).registerObserver(mChangeCoalescer);
+        mIsObservingAdapter = true;
+    }
+
+    private void stopObservingAdapter() {
+        if(!mIsObservingAdapter) {
+            return;
+        }
+        ((ObservableDayAdapter) mDayAdapter).unregisterObserver(mChangeCoalescer);
+        mChangeCoalescer.cancel();
+        mIsObservingAdapter = false;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mIsAttachedToWindow = true;
+        startObservingAdapter();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mIsAttachedToWindow = false;
+        stopObservingAdapter();
+    }
+
+    /**
+     * Drop the references to the adapter, listeners and shared objects, e.g. when a page of a
+     * MultiCalendarView is destroyed. The view can't be used afterwards.
+     */
+    void releaseReferences() {
+        setSelection(null);
+        setDayAdapter(null);
+        if(mIsWaitingForTypeface) {
+            mIsWaitingForTypeface = false;
+            CalendarResources.removeOnTypefaceLoadedListener(mTypefaceListener);
+        }
+        mOnDayClickListener = null;
+        mMetricsListener = null;
+        mDebugOverlay = null;
+        mWeekSpanCache = null;
+        mDecorationCache = null;
+        mMonthModelCache = null;
+        mCategoryPalette = null;
+        mAvailabilityRules = null;
+        mDayLoadIndex = null;
+        mLastValidDay = null;
+    }
+
+    /**
+     * Show or hide the row with the names of the days of the week
+     *
+     * @param visible Whether the headers should be shown
+     */
+    public void setHeadersVisible(final boolean visible) {
+        this.mShowHeaders = visible;
+        notifyDataSetChanged();
+    }
+
+    public boolean isHeadersVisible() {
+        return mShowHeaders;
+    }
+
+    /**
+     * Show a marker around the current day. The marker moves to the next day at midnight,
+     * or when the time or timezone changes, without binding the other days again.
+     *
+     * @param showToday Whether today should be marked
+     */
+    public void setShowToday(final boolean showToday) {
+        this.mShowToday = showToday;
+    }
+
+    public boolean isShowToday() {
+        return mShowToday;
+    }
+
+    /**
+     * Set the palette used by a CategoryMaskAdapter.
+     * When both are set, the categories of a day are read as a mask of palette indices instead of colors.
+     *
+     * @param palette The palette, or null to use DayAdapter.getCategoryColors()
+     */
+    public void setCategoryPalette(final CategoryPalette palette) {
+        this.mCategoryPalette = palette;
+        if(mMonthModelCache != null) {
+            // the cached categories are masks or colors, depending on the palette
+            mMonthModelCache.clear();
+        }
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Set rules which decide which days are enabled. The rules are compiled per month,
+     * so they're cheaper than disabling days in DayAdapter.isDayEnabled().
+     * Days are only enabled when both the rules and the DayAdapter enable them.
+     *
+     * @param rules The rules, or null to only use the DayAdapter
+     */
+    public void setAvailabilityRules(final AvailabilityRules rules) {
+        this.mAvailabilityRules = rules;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Set the load of each day, used by DayStyleFactory.DAY_STYLE_HEATMAP
+     * Call notifyDaysChanged() with the days of the events after adding or removing them. If the maximum load
+     * changed, all days of the month are bound again, because their intensity is relative to that maximum.
+     *
+     * @param index The load of each day, or null
+     */
+    public void setDayLoadIndex(final DayLoadIndex index) {
+        this.mDayLoadIndex = index;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Set the colors of the heatmap. Days are colored between the low and high color, based on their load.
+     *
+     * @param lowColor  The color of a day without load
+     * @param highColor The color of the day with the highest load
+     */
+    public void setHeatmapColors(final int lowColor, final int highColor) {
+        this.mHeatmapLowColor = lowColor;
+        this.mHeatmapHighColor = highColor;
+        this.mHasHeatmapColors = true;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Retrieve the cache of packed multi-day spans, creating it if needed
+     */
+    WeekSpanCache getWeekSpanCache() {
+        if(mWeekSpanCache == null) {
+            mWeekSpanCache = new WeekSpanCache();
+            mWeekSpanCache.setMetricsListener(mMetricsListener);
+        }
+        return mWeekSpanCache;
+    }
+
+    void setWeekSpanCache(final WeekSpanCache cache) {
+        mWeekSpanCache = cache;
+    }
+
+    DecorationCache getDecorationCache() {
+        if(mDecorationCache == null) {
+            mDecorationCache = new DecorationCache();
+            mDecorationCache.setMetricsListener(mMetricsListener);
+        }
+        return mDecorationCache;
+    }
+
+    /**
+     * Set a listener which receives timings of building, binding and measuring this Calendar,
+     * and of the calls to the DayAdapter. Nothing is measured while no listener is set.
+     *
+     * @param listener The listener, or null
+     */
+    public void setMetricsListener(final CalendarMetricsListener listener) {
+        this.mMetricsListener = listener;
+        if(mWeekSpanCache != null) {
+            mWeekSpanCache.setMetricsListener(listener);
+        }
+        if(mDecorationCache != null) {
+            mDecorationCache.setMetricsListener(listener);
+        }
+    }
+
+    public CalendarMetricsListener getMetricsListener() {
+        return mMetricsListener;
+    }
+
+    /**
+     * Draw how long the DayAdapter took for each day, and whether the day was inflated (I),
+     * bound again (B) or reused (R). Only meant for debugging, it makes drawing slower.
+     *
+     * @param enabled Whether the overlay should be drawn
+     */
+    public void setDebugOverlayEnabled(final boolean enabled) {
+        if(enabled == (mDebugOverlay != null)) {
+            return;
+        }
+        setDebugOverlay(enabled ? new DebugOverlay(getResources()) : null);
+    }
+
+    public boolean isDebugOverlayEnabled() {
+        return mDebugOverlay != null;
+    }
+
+    DebugOverlay getDebugOverlay() {
+        return mDebugOverlay;
+    }
+
+    void setDebugOverlay(final DebugOverlay overlay) {
+        this.mDebugOverlay = overlay;
+        invalidate();
+    }
+
+    MonthModelCache getMonthModelCache() {
+        if(mMonthModelCache == null) {
+            mMonthModelCache = new MonthModelCache();
+        }
+        return mMonthModelCache;
+    }
+
+    void setMonthModelCache(final MonthModelCache cache) {
+        mMonthModelCache = cache;
+    }
+
+    void setDecorationCache(final DecorationCache cache) {
+        mDecorationCache = cache;
     }
 
     /**
@@ -194,6 +500,11 @@ public abstract class AbstractCalendarView extends LinearLayout {
      */
     public void setTypeface(final Typeface newTypeFace) {
         if(newTypeFace != null) {
+            if(mIsWaitingForTypeface) {
+                // the default typeface is no longer needed
+                mIsWaitingForTypeface = false;
+                CalendarResources.removeOnTypefaceLoadedListener(mTypefaceListener);
+            }
             this.mTypeface = newTypeFace;
         } else {
             // newTypeFace is null, reset to default
@@ -201,12 +512,24 @@ public abstract class AbstractCalendarView extends LinearLayout {
         }
     }
 
+    /**
+     * Use the Roboto light typeface, which is shared by all Calendars.
+     * If it's not loaded yet, the system typeface is used until it's loaded on a background thread.
+     */
     protected void setDefaultTypeface() {
-        // Load the Roboto light typeface
-        final Typeface defaultTypeface = Typeface.createFromAsset(getResources().getAssets(), "roboto_light.ttf");
-        setTypeface(defaultTypeface);
+        final Typeface defaultTypeface = CalendarResources.getDefaultTypeface(getContext(), mTypefaceListener);
+        mTypeface = defaultTypeface;
+        mIsWaitingForTypeface = defaultTypeface == null;
     }
 
+    /**
+     * Called when the default typeface finished loading, while this view was using the system typeface.
+     * Apply it to the views which are already created.
+     *
+     * @param typeface The new typeface
+     */
+    protected abstract void applyTypeface(final Typeface typeface);
+
     /**
      * Set an onDayClick listener, which will be called when the user clicked on a valid Day
      *
@@ -216,6 +539,16 @@ public abstract class AbstractCalendarView extends LinearLayout {
         this.mOnDayClickListener = listener;
     }
 
+    /**
+     * Set the selection model. Clicking on a day updates the selection, and selected days are highlighted.
+     * The same selection can be shared by multiple Calendars.
+     *
+     * @param selection The selection, or null to disable selecting days
+     */
+    public void setSelection(final CalendarSelection selection) {
+        this.mSelection = selection;
+    }
+
     /**
      * Updates mFirstDayCalendar, so initView() knows on which day he needs to start
      * creating the views.
@@ -256,16 +589,22 @@ public abstract class AbstractCalendarView extends LinearLayout {
         this.mCalendarFirstDay = calendar;
     }
 
+    /**
+     * @return The number of months shown next to each other
+     */
+    protected int getMonthColumnCount() {
+        return 1;
+    }
+
     protected int getAvailableDayWidth(int width) {
         // Calculate the available width for a single day-item
-        final int paddingSides = getResources()
-                .getDimensionPixelSize(R.dimen.lib_calendar_day_padding_sides);
+        final CalendarResources calendarResources = CalendarResources.getInstance(getContext());
+        final int paddingSides = calendarResources.getDayPaddingSides();
         final int screenWidth = width;
         final int daysInRow = getDaysInRow();
         final int availableWidth = screenWidth - (paddingSides * daysInRow * 2); // padding is at both sides( * 2)
         final int widthPerTile = availableWidth / daysInRow;
-        final int maxWidthPerTile =
-                getResources().getDimensionPixelSize(R.dimen.lib_calendar_day_size);
+        final int maxWidthPerTile = calendarResources.getDaySize();
 
         // The maximum size of a tile(e.g. a single day)
         // This is either R.dimen.lib_calendar_day_size or the width which fits the screen size
@@ -275,6 +614,12 @@ public abstract class AbstractCalendarView extends LinearLayout {
     @SuppressWarnings("ConstantConditions")
     @Override
     protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        final CalendarMetricsListener metricsListener = mMetricsListener;
+        if(metricsListener != null) {
+            CalendarTrace.beginSection("Calendar#onMeasure");
+            metricsListener.onMeasure(this);
+        }
+
         // Let our parent(a LinearLayout) measure first
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
 
@@ -288,35 +633,43 @@ public abstract class AbstractCalendarView extends LinearLayout {
         int measuredHeight;
 
         // Retrieve some initial dimensions of our components
-        final int paddingSides = getResources()
-                .getDimensionPixelSize(R.dimen.lib_calendar_day_padding_sides);
+        final CalendarResources calendarResources = CalendarResources.getInstance(getContext());
+        final int paddingSides = calendarResources.getDayPaddingSides();
         final int daysInRow = getDaysInRow();
+        // A MultiCalendarView may show several months next to each other, each with a margin at the left
+        final int monthColumns = getMonthColumnCount();
+        final int columnMargin = monthColumns > 1 ? calendarResources.getMonthMarginLeft() : 0;
 
         final int dayWidth;
         if(resizeWidth) {
             // We may resize our View, so use our preferred size
-            dayWidth = getResources().getDimensionPixelSize(R.dimen.lib_calendar_day_size);
+            dayWidth = calendarResources.getDaySize();
         }  else {
             // We're not allowed to resize our View, so make sure it fits
-            dayWidth = getAvailableDayWidth(maxWidth);
+            dayWidth = getAvailableDayWidth(maxWidth / monthColumns - columnMargin);
         }
 
         // Calculate our width, based on the width of a single day, the padding and the number of days each week(row)
-        measuredWidth = (dayWidth * daysInRow) + (paddingSides * daysInRow * 2);
+        final int monthWidth = (dayWidth * daysInRow) + (paddingSides * daysInRow * 2);
+        measuredWidth = (monthWidth + columnMargin) * monthColumns;
 
         // Calculate a measured height of the headers by using a sample TextView
-        // First, create a TextView with sample text
-        final LayoutInflater inflater = (LayoutInflater)
-                getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        final TextView sampleHeader = (TextView)
-                inflater.inflate(R.layout.lib_calendar_single_header, this, false);
-        sampleHeader.setText(R.string.lib_header_monday);
-        // Second, measure the TextView's height
-        int textWidthMeasureSpec = View.MeasureSpec.makeMeasureSpec(measuredWidth / daysInRow,
-                View.MeasureSpec.AT_MOST);
-        int textHeightMeasureSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
-        sampleHeader.measure(textWidthMeasureSpec, textHeightMeasureSpec);
-        final int headerHeight = sampleHeader.getMeasuredHeight();
+        int headerHeight = 0;
+        if(mShowHeaders) {
+            // First, create a TextView with sample text
+            final LayoutInflater inflater = (LayoutInflater)
+                    getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+            final TextView sampleHeader = (TextView)
+                    inflater.inflate(R.layout.lib_calendar_single_header, this, false);
+            mInflatedViewCount++;
+            sampleHeader.setText(R.string.lib_header_monday);
+            // Second, measure the TextView's height
+            int textWidthMeasureSpec = View.MeasureSpec.makeMeasureSpec(monthWidth / daysInRow,
+                    View.MeasureSpec.AT_MOST);
+            int textHeightMeasureSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+            sampleHeader.measure(textWidthMeasureSpec, textHeightMeasureSpec);
+            headerHeight = sampleHeader.getMeasuredHeight();
+        }
 
         // Calculate the height of the weeks
         final int weeksInMonth;
@@ -341,13 +694,31 @@ public abstract class AbstractCalendarView extends LinearLayout {
             int indicatorWidthMeasureSpec = View.MeasureSpec.makeMeasureSpec(
                     resolveSize(measuredWidth, widthMeasureSpec), MeasureSpec.EXACTLY);
             int indicatorHeightMeasureSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
-            indicator.measure(indicatorWidthMeasureSpec, indicatorHeightMeasureSpec);
-            final int indicatorHeight = indicator.getMeasuredHeight();
+            int indicatorHeight = 0;
+            if(indicator != null && indicator.getVisibility() != View.GONE) {
+                indicator.measure(indicatorWidthMeasureSpec, indicatorHeightMeasureSpec);
+                indicatorHeight = indicator.getMeasuredHeight();
+            }
+
+            // The pages don't have headers when the MultiCalendarView shows a single row above the ViewPager
+            int pagerHeight = measuredHeight;
+            final ViewGroup sharedHeaders = multiCalendarView.getSharedHeaders();
+            if(sharedHeaders != null) {
+                multiCalendarView.updateSharedHeaderWidth(dayWidth);
+                // The headers of several months are spread over the same columns as the pages
+                sharedHeaders.measure(View.MeasureSpec.makeMeasureSpec(
+                        resolveSize(measuredWidth, widthMeasureSpec),
+                        monthColumns > 1 ? MeasureSpec.EXACTLY : MeasureSpec.AT_MOST),
+                        View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+                pagerHeight = weekHeight;
+            }
 
             // Now we have the height, update our ViewPager with the new dimensions
-            indicatorHeightMeasureSpec = View.MeasureSpec.makeMeasureSpec(measuredHeight, MeasureSpec.EXACTLY);
+            indicatorHeightMeasureSpec = View.MeasureSpec.makeMeasureSpec(pagerHeight, MeasureSpec.EXACTLY);
             final ViewPager viewPager = multiCalendarView.getViewPager();
-            viewPager.measure(indicatorWidthMeasureSpec, indicatorHeightMeasureSpec);
+            if(viewPager != null) {
+                viewPager.measure(indicatorWidthMeasureSpec, indicatorHeightMeasureSpec);
+            }
 
             // Add the indicator height to the measured height
             measuredHeight += indicatorHeight;
@@ -356,6 +727,73 @@ public abstract class AbstractCalendarView extends LinearLayout {
         // Set the measured dimensions
         setMeasuredDimension(resolveSize(measuredWidth, widthMeasureSpec),
                 resolveSize(measuredHeight, heightMeasureSpec));
+
+        if(metricsListener != null) {
+            CalendarTrace.endSection();
+        }
+    }
+
+    /**
+     * Create the headers for each (visible) day of the week
+     * Starts at mFirstDayOfWeek, ends at mLastDayOfWeek
+     *
+     * @param parent The view the headers will be added to
+     * @return The row of headers, which isn't added to the parent yet
+     */
+    protected ViewGroup createHeaders(final ViewGroup parent) {
+        // initialize variables
+        final Context context = getContext();
+        final LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        final Resources resources = context.getResources();
+        final DayAdapter adapter = mDayAdapter;
+        final int firstDayOfWeek = mFirstDayOfWeek;
+        final int lastDayOfWeek = mLastDayOfWeek;
+        final Typeface typeface = mTypeface;
+
+        // inflate the ViewGroup where we'll put all the headers
+        final ViewGroup headers = (ViewGroup)
+                inflater.inflate(R.layout.lib_calendar_headers, parent, false);
+        mInflatedViewCount++;
+        int dayOfWeek = firstDayOfWeek;
+
+        do {
+            // initialize variables for this day
+            final TextView header = (TextView)
+                    inflater.inflate(R.layout.lib_calendar_single_header, headers, false);
+            mInflatedViewCount++;
+            final String nameOfDay = getNameForDay(dayOfWeek, resources);
+
+            // if set, use the custom Typeface
+            if(typeface != null) {
+                header.setTypeface(typeface);
+            }
+
+            // allow adapter to update the TextView
+            // e.g. change font, appearance, add click listener on all/some days
+            if(adapter != null) {
+                final CalendarMetricsListener metricsListener = mMetricsListener;
+                if(metricsListener == null) {
+                    adapter.updateHeaderTextView(header, dayOfWeek);
+                } else {
+                    final long start = System.nanoTime();
+                    adapter.updateHeaderTextView(header, dayOfWeek);
+                    metricsListener.onAdapterCallback(CalendarMetricsListener.CALLBACK_UPDATE_HEADER_TEXT_VIEW,
+                            System.nanoTime() - start);
+                }
+            }
+
+            // set the text
+            header.setText(nameOfDay);
+
+            // add TextView to ViewGroup
+            headers.addView(header);
+
+            // increment dayOfWeek, make sure it's a valid day
+            dayOfWeek = dayOfWeek % 7;
+            dayOfWeek++;
+        } while(dayOfWeek != lastDayOfWeek % 7 + 1);
+
+        return headers;
     }
 
     /**
@@ -367,25 +805,104 @@ public abstract class AbstractCalendarView extends LinearLayout {
      * @throws IllegalArgumentException Thrown when provided dayOfWeek is invalid
      */
     protected String getNameForDay(final int dayOfWeek, final Resources resources) throws IllegalArgumentException {
-        switch(dayOfWeek) {
-            case Calendar.MONDAY:
-                return resources.getString(R.string.lib_header_monday);
-            case Calendar.TUESDAY:
-                return resources.getString(R.string.lib_header_tuesday);
-            case Calendar.WEDNESDAY:
-                return resources.getString(R.string.lib_header_wednesday);
-            case Calendar.THURSDAY:
-                return resources.getString(R.string.lib_header_thursday);
-            case Calendar.FRIDAY:
-                return resources.getString(R.string.lib_header_friday);
-            case Calendar.SATURDAY:
-                return resources.getString(R.string.lib_header_saturday);
-            case Calendar.SUNDAY:
-                return resources.getString(R.string.lib_header_sunday);
-            default:
-                // unknown day
-                throw new IllegalArgumentException("dayOfWeek is not valid. Pick a value between 1 and 7. " +
-                        "dayOfWeek: " + dayOfWeek);
+        if(dayOfWeek < Calendar.SUNDAY || dayOfWeek > Calendar.SATURDAY) {
+            // unknown day
+            throw new IllegalArgumentException("dayOfWeek is not valid. Pick a value between 1 and 7. " +
+                    "dayOfWeek: " + dayOfWeek);
+        }
+        // the names are shared by all Calendars, instead of retrieved from the resources for every header
+        return CalendarResources.getInstance(getContext()).getDayName(dayOfWeek);
+    }
+
+    /**
+     * Save the range, the days of the week, the selection and the current page.
+     * If enabled with setRetainsAdapterAnswers(), a copy of the answers of the DayAdapter is kept in memory,
+     * so a restored Calendar doesn't ask them again.
+     * Like for any view, the state is only saved if the view has an id.
+     */
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final Parcelable superState = super.onSaveInstanceState();
+        if(mFirstValidDay == null) {
+            // there's nothing to restore without a range
+            return superState;
+        }
+        final SavedState state = new SavedState(superState);
+        state.firstValidDay = DayUtils.toEpochDay(mFirstValidDay);
+        state.lastValidDay = mLastValidDay != null ? DayUtils.toEpochDay(mLastValidDay) : SavedState.NO_DAY;
+        state.firstDayOfWeek = mFirstDayOfWeek;
+        state.lastDayOfWeek = mLastDayOfWeek;
+
+        final CalendarSelection selection = mSelection;
+        if(selection != null) {
+            final SparseIntArray months = selection.getMonthMasks();
+            final int monthCount = months.size();
+            state.hasSelection = true;
+            state.selectionMode = selection.getMode();
+            state.selectedMonths = new int[monthCount];
+            state.selectedMasks = new int[monthCount];
+            for(int i = 0; i < monthCount; i++) {
+                state.selectedMonths[i] = months.keyAt(i);
+                state.selectedMasks[i] = months.valueAt(i);
+            }
+            state.rangeAnchor = selection.getRangeAnchorDay();
+            state.rangeEnd = selection.getRangeEndDay();
+        }
+
+        if(mRetainsAdapterAnswers) {
+            state.retainedCachesId = RetainedCaches.retain(mMonthModelCache, mDecorationCache);
+            state.processToken = RetainedCaches.PROCESS_TOKEN;
+        }
+        return state;
+    }
+
+    /**
+     * Restore the state. The range and days of the week are only restored if they weren't set again,
+     * a selection is restored into the current selection, or a new one.
+     */
+    @Override
+    protected void onRestoreInstanceState(final Parcelable state) {
+        if(!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+
+        if(mFirstValidDay == null) {
+            mFirstDayOfWeek = savedState.firstDayOfWeek;
+            mLastDayOfWeek = savedState.lastDayOfWeek;
+
+            final Calendar calendar = Calendar.getInstance();
+            DayUtils.setToEpochDay(calendar, savedState.firstValidDay);
+            setFirstValidDay(calendar);
+            if(savedState.lastValidDay != SavedState.NO_DAY) {
+                final Calendar lastValidDay = Calendar.getInstance();
+                DayUtils.setToEpochDay(lastValidDay, savedState.lastValidDay);
+                setLastValidDay(lastValidDay);
+            }
+        }
+
+        // install the caches after restoring the range, which empties the caches of a MultiCalendarView
+        final RetainedCaches retained = RetainedCaches.take(savedState.retainedCachesId, savedState.processToken);
+        if(retained != null && mRetainsAdapterAnswers) {
+            if(retained.mMonthModels != null) {
+                retained.mMonthModels.adoptNextAdapter();
+                setMonthModelCache(retained.mMonthModels);
+            }
+            if(retained.mDecorations != null) {
+                retained.mDecorations.adoptNextAdapter();
+                retained.mDecorations.setMetricsListener(mMetricsListener);
+                setDecorationCache(retained.mDecorations);
+            }
+        }
+
+        if(savedState.hasSelection) {
+            if(mSelection == null) {
+                setSelection(new CalendarSelection(savedState.selectionMode));
+            }
+            mSelection.restore(savedState.selectionMode, savedState.selectedMonths, savedState.selectedMasks,
+                    savedState.rangeAnchor, savedState.rangeEnd);
         }
     }
 
@@ -394,7 +911,24 @@ public abstract class AbstractCalendarView extends LinearLayout {
 
         if(!mIsViewInitialized) {
             // initialize view
-            initView();
+            final CalendarMetricsListener metricsListener = mMetricsListener;
+            final DebugOverlay debugOverlay = mDebugOverlay;
+            if(metricsListener == null && debugOverlay == null) {
+                initView();
+            } else {
+                CalendarTrace.beginSection("Calendar#initView");
+                final long start = System.nanoTime();
+                mInflatedViewCount = 0;
+                initView();
+                final long duration = System.nanoTime() - start;
+                if(metricsListener != null) {
+                    metricsListener.onViewInitialized(this, duration, mInflatedViewCount);
+                }
+                if(debugOverlay != null) {
+                    debugOverlay.recordBuild(duration);
+                }
+                CalendarTrace.endSection();
+            }
         }
         super.onLayout(changed, l, t, r, b);
     }
@@ -405,6 +939,28 @@ public abstract class AbstractCalendarView extends LinearLayout {
 
     }
 
+    /**
+     * Update the given days without rebuilding the whole Calendar.
+     * Use this when the DayAdapter's data changed for only a few days.
+     *
+     * @param daysInMillis The days which changed, in milliseconds
+     */
+    public abstract void notifyDaysChanged(final long... daysInMillis);
+
+    /**
+     * Bind all visible days again, without rebuilding the Calendar.
+     * Use this when the data of the DayAdapter changed, but the settings of the Calendar didn't.
+     */
+    public abstract void notifyAllDaysChanged();
+
+    /**
+     * Ask the DecorationDayAdapter for the decorations of the given days again.
+     * Only days whose decoration is different from the cached one are bound again.
+     *
+     * @param daysInMillis The days whose decoration might have changed
+     */
+    public abstract void notifyDecorationsChanged(final long... daysInMillis);
+
     /**
      * Getter methods
      */
@@ -428,6 +984,30 @@ public abstract class AbstractCalendarView extends LinearLayout {
         return mDayAdapter;
     }
 
+    public CategoryPalette getCategoryPalette() {
+        return mCategoryPalette;
+    }
+
+    public AvailabilityRules getAvailabilityRules() {
+        return mAvailabilityRules;
+    }
+
+    public DayLoadIndex getDayLoadIndex() {
+        return mDayLoadIndex;
+    }
+
+    public int getHeatmapLowColor() {
+        return mHasHeatmapColors ? mHeatmapLowColor : CalendarResources.getInstance(getContext()).getHeatmapLowColor();
+    }
+
+    public int getHeatmapHighColor() {
+        return mHasHeatmapColors ? mHeatmapHighColor : CalendarResources.getInstance(getContext()).getHeatmapHighColor();
+    }
+
+    public CalendarSelection getSelection() {
+        return mSelection;
+    }
+
     public OnDayClickListener getOnDayClickListener() {
         return mOnDayClickListener;
     }
@@ -481,4 +1061,84 @@ public abstract class AbstractCalendarView extends LinearLayout {
      */
     public abstract TextView getTextViewForDate(final long dayInMillis);
 
+
+    /**
+     * The state of a Calendar. Days are stored as epoch days, see DayUtils.
+     */
+    static class SavedState extends BaseSavedState {
+        static final int NO_DAY = Integer.MIN_VALUE;
+
+        int firstValidDay;
+        int lastValidDay = NO_DAY;
+        int firstDayOfWeek;
+        int lastDayOfWeek;
+        // the first month shown by a MultiCalendarView, counted from the month of the first valid day.
+        // not the page, which depends on the number of months per page
+        int currentMonth = -1;
+
+        boolean hasSelection;
+        int selectionMode;
+        int[] selectedMonths;
+        int[] selectedMasks;
+        int rangeAnchor;
+        int rangeEnd;
+
+        int retainedCachesId = RetainedCaches.NO_ID;
+        long processToken;
+
+        SavedState(final Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(final Parcel in) {
+            super(in);
+            firstValidDay = in.readInt();
+            lastValidDay = in.readInt();
+            firstDayOfWeek = in.readInt();
+            lastDayOfWeek = in.readInt();
+            currentMonth = in.readInt();
+            hasSelection = in.readInt() != 0;
+            if(hasSelection) {
+                selectionMode = in.readInt();
+                selectedMonths = in.createIntArray();
+                selectedMasks = in.createIntArray();
+                rangeAnchor = in.readInt();
+                rangeEnd = in.readInt();
+            }
+            retainedCachesId = in.readInt();
+            processToken = in.readLong();
+        }
+
+        @Override
+        public void writeToParcel(final Parcel dest, final int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeInt(firstValidDay);
+            dest.writeInt(lastValidDay);
+            dest.writeInt(firstDayOfWeek);
+            dest.writeInt(lastDayOfWeek);
+            dest.writeInt(currentMonth);
+            dest.writeInt(hasSelection ? 1 : 0);
+            if(hasSelection) {
+                dest.writeInt(selectionMode);
+                dest.writeIntArray(selectedMonths);
+                dest.writeIntArray(selectedMasks);
+                dest.writeInt(rangeAnchor);
+                dest.writeInt(rangeEnd);
+            }
+            dest.writeInt(retainedCachesId);
+            dest.writeLong(processToken);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(final Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(final int size) {
+                return new SavedState[size];
+            }
+        };
+    }
 }
@@ -0,0 +1,381 @@
+package com.vdesmet.lib.calendar;
+
+import android.util.SparseIntArray;
+
+import java.util.Calendar;
+
+/**
+ * A declarative set of rules which decide whether a day can be selected.
+ * The rules are compiled into a bitmask per month(bit 0 is the first day of the month), which is cached
+ * until one of the rules changes. CalendarView reads these masks directly instead of asking the DayAdapter
+ * for every day.
+ *
+ * A day is enabled when none of these rules disable it:
+ *  # The day of the week is disabled, e.g. weekends
+ *  # The day is a blackout date
+ *  # The day is within the lead time, counted from the reference day
+ *  # The day is after the booking horizon, counted from the reference day
+ *  # The number of bookings on the day reached the capacity of its day of the week
+ *
+ * The methods are synchronized, so the rules can also be used by a MonthRenderer on another thread.
+ *
+ * @see com.vdesmet.lib.calendar.AbstractCalendarView#setAvailabilityRules(AvailabilityRules)
+ */
+public class AvailabilityRules {
+    public static final int UNLIMITED = -1;
+    public static final int NOT_FOUND = -1;
+
+    private static final int DAYS_IN_WEEK = 7;
+    private static final int ALL_DAYS_OF_WEEK = 0xFE; // bits Calendar.SUNDAY - Calendar.SATURDAY
+
+    // Upper limit of months to search when looking for the next enabled day without a booking horizon
+    private static final int MAX_SEARCH_MONTHS = 100 * 12;
+
+    private int mDisabledDaysOfWeek;
+    private final SparseIntArray mBlackoutMasks;
+    private int mReferenceDay;
+    private int mLeadTimeDays;
+    private int mHorizonDays;
+    private final int[] mCapacity;
+    private final SparseIntArray mBookings;
+
+    private final SparseIntArray mCompiledMonths;
+    private final Calendar mCalendar;
+    // kept here, because CalendarCaches only holds it weakly
+    private final CompiledMonthsCache mCompiledMonthsCache;
+
+    public AvailabilityRules() {
+        mBlackoutMasks = new SparseIntArray();
+        mBookings = new SparseIntArray();
+        mCompiledMonths = new SparseIntArray();
+        mCalendar = Calendar.getInstance();
+        mCapacity = new int[DAYS_IN_WEEK + 1];
+        mHorizonDays = UNLIMITED;
+        for(int i = 0; i < mCapacity.length; i++) {
+            mCapacity[i] = UNLIMITED;
+        }
+
+        // by default, lead time and horizon are counted from today
+        mReferenceDay = DayUtils.toEpochDay(mCalendar);
+
+        mCompiledMonthsCache = new CompiledMonthsCache();
+        CalendarCaches.register(mCompiledMonthsCache);
+    }
+
+    /**
+     * Disable all days on the given days of the week. Replaces the previously disabled days of the week.
+     * For example, setDisabledDaysOfWeek(Calendar.SATURDAY, Calendar.SUNDAY) disables weekends.
+     *
+     * @param daysOfWeek The days of the week, e.g. Calendar.SUNDAY
+     */
+    public synchronized void setDisabledDaysOfWeek(final int... daysOfWeek) {
+        int mask = 0;
+        for(final int dayOfWeek : daysOfWeek) {
+            checkDayOfWeek(dayOfWeek);
+            mask |= 1 << dayOfWeek;
+        }
+        mDisabledDaysOfWeek = mask;
+        invalidate();
+    }
+
+    /**
+     * Disable a single day
+     *
+     * @param dayInMillis The date to disable
+     */
+    public synchronized void addBlackoutDate(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        final int monthKey = DayUtils.getMonthKey(calendar);
+        final int bit = 1 << (calendar.get(Calendar.DAY_OF_MONTH) - 1);
+        mBlackoutMasks.put(monthKey, mBlackoutMasks.get(monthKey) | bit);
+        mCompiledMonths.delete(monthKey);
+    }
+
+    /**
+     * Enable a day which was previously disabled by addBlackoutDate()
+     *
+     * @param dayInMillis The date to enable again
+     */
+    public synchronized void removeBlackoutDate(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        final int monthKey = DayUtils.getMonthKey(calendar);
+        final int bit = 1 << (calendar.get(Calendar.DAY_OF_MONTH) - 1);
+        mBlackoutMasks.put(monthKey, mBlackoutMasks.get(monthKey) & ~bit);
+        mCompiledMonths.delete(monthKey);
+    }
+
+    /**
+     * Set the day from which the lead time and booking horizon are counted. Defaults to the day these rules were created.
+     *
+     * @param dayInMillis The reference day, usually today
+     */
+    public synchronized void setReferenceDay(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        mReferenceDay = DayUtils.toEpochDay(calendar);
+        invalidate();
+    }
+
+    /**
+     * Disable the reference day and the days directly after it.
+     * For example, a lead time of 2 disables today and tomorrow. Days before the reference day are always disabled
+     * when a lead time is set.
+     *
+     * @param days The number of days, or 0 for no lead time
+     */
+    public synchronized void setLeadTime(final int days) {
+        if(days < 0) {
+            throw new IllegalArgumentException("days cannot be negative");
+        }
+        mLeadTimeDays = days;
+        invalidate();
+    }
+
+    /**
+     * Disable all days which are more than the given number of days after the reference day.
+     *
+     * @param days The number of days, or UNLIMITED
+     */
+    public synchronized void setBookingHorizon(final int days) {
+        if(days < 0 && days != UNLIMITED) {
+            throw new IllegalArgumentException("days must be positive or UNLIMITED");
+        }
+        mHorizonDays = days;
+        invalidate();
+    }
+
+    /**
+     * Set the number of bookings a single day can hold, for all days on the given day of the week.
+     *
+     * @param dayOfWeek The day of the week, e.g. Calendar.MONDAY
+     * @param capacity  The number of bookings, or UNLIMITED
+     * @see #setBookingCount(long, int)
+     */
+    public synchronized void setCapacity(final int dayOfWeek, final int capacity) {
+        checkDayOfWeek(dayOfWeek);
+        mCapacity[dayOfWeek] = capacity;
+        invalidate();
+    }
+
+    /**
+     * Set the number of bookings on a day. The day is disabled when the count reaches the capacity of its day of the week.
+     *
+     * @param dayInMillis The date
+     * @param count       The number of bookings
+     */
+    public synchronized void setBookingCount(final long dayInMillis, final int count) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        final int epochDay = DayUtils.toEpochDay(calendar);
+        if(count == 0) {
+            mBookings.delete(epochDay);
+        } else {
+            mBookings.put(epochDay, count);
+        }
+        mCompiledMonths.delete(DayUtils.getMonthKey(calendar));
+    }
+
+    /**
+     * Drop all compiled months. They'll be compiled again when needed.
+     */
+    public synchronized void invalidate() {
+        mCompiledMonths.clear();
+    }
+
+    /**
+     * Get the compiled mask of a month
+     *
+     * @param year  The year, e.g. 2013
+     * @param month The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @return The mask of enabled days, bit 0 is the first day of the month
+     */
+    public synchronized int getEnabledMask(final int year, final int month) {
+        final int monthKey = DayUtils.getMonthKey(year, month);
+        final int index = mCompiledMonths.indexOfKey(monthKey);
+        if(index >= 0) {
+            return mCompiledMonths.valueAt(index);
+        }
+
+        final int mask = compile(year, month);
+        mCompiledMonths.put(monthKey, mask);
+        return mask;
+    }
+
+    /**
+     * Check whether a single day is enabled
+     *
+     * @param dayInMillis The date
+     * @return true if no rule disables this day
+     */
+    public synchronized boolean isDayEnabled(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        final int mask = getEnabledMask(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH));
+        return (mask & (1 << (calendar.get(Calendar.DAY_OF_MONTH) - 1))) != 0;
+    }
+
+    /**
+     * Find the first enabled day after the given day
+     *
+     * @param dayInMillis The date to start searching from, this day itself is not included
+     * @return The enabled day in milliseconds, or NOT_FOUND
+     */
+    public synchronized long getNextEnabledDay(final long dayInMillis) {
+        if((mDisabledDaysOfWeek & ALL_DAYS_OF_WEEK) == ALL_DAYS_OF_WEEK) {
+            // every day of the week is disabled
+            return NOT_FOUND;
+        }
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        int monthKey = DayUtils.getMonthKey(calendar);
+        // ignore the days up to and including the given day
+        int ignoredDays = calendar.get(Calendar.DAY_OF_MONTH);
+
+        final int lastMonthKey;
+        if(mHorizonDays != UNLIMITED) {
+            DayUtils.setToEpochDay(calendar, mReferenceDay + mHorizonDays);
+            lastMonthKey = DayUtils.getMonthKey(calendar);
+        } else {
+            lastMonthKey = monthKey + MAX_SEARCH_MONTHS;
+        }
+
+        for(; monthKey <= lastMonthKey; monthKey++) {
+            final int year = DayUtils.getYearFromMonthKey(monthKey);
+            final int month = DayUtils.getMonthFromMonthKey(monthKey);
+            int mask = getEnabledMask(year, month);
+            if(ignoredDays >= 31) {
+                mask = 0;
+            } else {
+                mask &= -1 << ignoredDays;
+            }
+
+            if(mask != 0) {
+                calendar.clear();
+                calendar.set(year, month, Integer.numberOfTrailingZeros(mask) + 1);
+                return calendar.getTimeInMillis();
+            }
+            ignoredDays = 0;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Count the enabled days in a range
+     *
+     * @param firstDayInMillis The first day of the range
+     * @param lastDayInMillis  The last day of the range, inclusive
+     * @return The number of enabled days
+     */
+    public synchronized int countEnabledDays(final long firstDayInMillis, final long lastDayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(firstDayInMillis);
+        final int firstMonthKey = DayUtils.getMonthKey(calendar);
+        final int firstDayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
+        calendar.setTimeInMillis(lastDayInMillis);
+        final int lastMonthKey = DayUtils.getMonthKey(calendar);
+        final int lastDayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
+
+        int count = 0;
+        for(int monthKey = firstMonthKey; monthKey <= lastMonthKey; monthKey++) {
+            int mask = getEnabledMask(DayUtils.getYearFromMonthKey(monthKey), DayUtils.getMonthFromMonthKey(monthKey));
+            if(monthKey == firstMonthKey) {
+                // remove the days before the first day
+                mask &= -1 << (firstDayOfMonth - 1);
+            }
+            if(monthKey == lastMonthKey && lastDayOfMonth < 31) {
+                // remove the days after the last day
+                mask &= (1 << lastDayOfMonth) - 1;
+            }
+            count += Integer.bitCount(mask);
+        }
+        return count;
+    }
+
+    /**
+     * Evaluate all rules for every day in the month
+     */
+    private int compile(final int year, final int month) {
+        final int daysInMonth = DayUtils.getDaysInMonth(year, month);
+        final int firstEpochDay = DayUtils.toEpochDay(year, month, 1);
+
+        // start with all days of the month enabled
+        int mask = (1 << daysInMonth) - 1;
+
+        // days of the week and capacity
+        final int[] capacity = mCapacity;
+        final SparseIntArray bookings = mBookings;
+        int dayOfWeek = DayUtils.getDayOfWeek(firstEpochDay);
+        for(int day = 0; day < daysInMonth; day++) {
+            if((mDisabledDaysOfWeek & (1 << dayOfWeek)) != 0) {
+                mask &= ~(1 << day);
+            } else if(capacity[dayOfWeek] != UNLIMITED &&
+                    bookings.get(firstEpochDay + day) >= capacity[dayOfWeek]) {
+                mask &= ~(1 << day);
+            }
+            dayOfWeek = dayOfWeek % DAYS_IN_WEEK + 1;
+        }
+
+        // blackout dates
+        mask &= ~mBlackoutMasks.get(DayUtils.getMonthKey(year, month));
+
+        // lead time: everything before referenceDay + leadTime
+        if(mLeadTimeDays > 0) {
+            final int firstAllowed = mReferenceDay + mLeadTimeDays;
+            mask &= maskFrom(firstAllowed - firstEpochDay);
+        }
+
+        // booking horizon: everything after referenceDay + horizon
+        if(mHorizonDays != UNLIMITED) {
+            final int lastAllowed = mReferenceDay + mHorizonDays;
+            mask &= ~maskFrom(lastAllowed - firstEpochDay + 1);
+        }
+        return mask;
+    }
+
+    /**
+     * Get a mask with all bits from the given day(0-based) of the month set
+     */
+    private static int maskFrom(final int day) {
+        if(day <= 0) {
+            return -1;
+        } else if(day >= 32) {
+            return 0;
+        }
+        return -1 << day;
+    }
+
+    /**
+     * Drops compiled months when the caches are trimmed, they're compiled again when needed
+     */
+    private final class CompiledMonthsCache implements CalendarCaches.TrimmableCache {
+        // an entry of a SparseIntArray: the key and the mask
+        private static final int ENTRY_BYTES = 8;
+
+        @Override
+        public long getRetainedBytes() {
+            synchronized(AvailabilityRules.this) {
+                return (long) mCompiledMonths.size() * ENTRY_BYTES;
+            }
+        }
+
+        @Override
+        public void trimToSize(final long maxBytes) {
+            synchronized(AvailabilityRules.this) {
+                final SparseIntArray compiledMonths = mCompiledMonths;
+                final long maxMonths = maxBytes / ENTRY_BYTES;
+                // the months are sorted, drop the latest ones, which are furthest from today
+                for(int size = compiledMonths.size(); size > maxMonths; size--) {
+                    compiledMonths.delete(compiledMonths.keyAt(size - 1));
+                }
+            }
+        }
+    }
+
+    private static void checkDayOfWeek(final int dayOfWeek) {
+        if(dayOfWeek < Calendar.SUNDAY || dayOfWeek > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("day must be between " + Calendar.SUNDAY + " and " + Calendar.SATURDAY);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.vdesmet.lib.calendar;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * Keeps the caches of all Calendars within a single memory budget, and empties them when the system
+ * is low on memory. Call these methods from the main thread. Caches which are also used from other threads,
+ * like those of AvailabilityRules and HolidayRegion, guard themselves and don't enforce the budget when they
+ * grow, so they're trimmed together with the other caches.
+ * On Ice Cream Sandwich and newer, the memory callbacks are received automatically. On older versions,
+ * call onTrimMemory() from e.g. Activity.onLowMemory().
+ */
+public final class CalendarCaches {
+    public static final long DEFAULT_MEMORY_BUDGET = 256 * 1024;
+
+    /**
+     * A cache which can estimate its size, and drop entries to shrink
+     */
+    interface TrimmableCache {
+        /**
+         * @return An estimate of the number of bytes kept alive by this cache
+         */
+        public abstract long getRetainedBytes();
+
+        /**
+         * Drop entries until the cache retains at most maxBytes
+         */
+        public abstract void trimToSize(long maxBytes);
+    }
+
+    // weak, so a cache is forgotten together with its Calendar
+    private static final ArrayList<WeakReference<TrimmableCache>> sCaches =
+            new ArrayList<WeakReference<TrimmableCache>>();
+    private static long sMemoryBudget = DEFAULT_MEMORY_BUDGET;
+    private static boolean sIsReceivingCallbacks;
+
+    private CalendarCaches() {
+    }
+
+    static void register(final TrimmableCache cache) {
+        // a cache may be created on any thread
+        synchronized(sCaches) {
+            sCaches.add(new WeakReference<TrimmableCache>(cache));
+        }
+    }
+
+    /**
+     * Receive the memory callbacks of the application, if this version of Android supports them
+     */
+    static void registerComponentCallbacks(final Context context) {
+        if(sIsReceivingCallbacks || Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            return;
+        }
+        sIsReceivingCallbacks = true;
+        MemoryCallbacks.register(context.getApplicationContext());
+    }
+
+    /**
+     * Set the number of bytes all caches together may retain. The caches are trimmed right away
+     * if they retain more.
+     *
+     * @param bytes The budget in bytes, DEFAULT_MEMORY_BUDGET by default
+     */
+    public static void setMemoryBudget(final long bytes) {
+        if(bytes < 0) {
+            throw new IllegalArgumentException("The memory budget can't be negative: " + bytes);
+        }
+        sMemoryBudget = bytes;
+        enforceBudget();
+    }
+
+    public static long getMemoryBudget() {
+        return sMemoryBudget;
+    }
+
+    /**
+     * @return An estimate of the number of bytes retained by the caches of all Calendars
+     */
+    public static long getRetainedBytes() {
+        long retainedBytes = 0;
+        synchronized(sCaches) {
+            for(int i = sCaches.size() - 1; i >= 0; i--) {
+                final TrimmableCache cache = sCaches.get(i).get();
+                if(cache == null) {
+                    sCaches.remove(i);
+                } else {
+                    retainedBytes += cache.getRetainedBytes();
+                }
+            }
+        }
+        return retainedBytes;
+    }
+
+    /**
+     * @return The number of caches which are currently alive
+     */
+    public static int getCacheCount() {
+        // drops the caches which are garbage collected
+        getRetainedBytes();
+        synchronized(sCaches) {
+            return sCaches.size();
+        }
+    }
+
+    /**
+     * Trim the caches according to a level of ComponentCallbacks2. The more serious the level,
+     * the more is dropped: half of the entries while the UI is hidden, three quarters while in the
+     * background or when running low, and everything when the process is likely to be killed.
+     *
+     * @param level One of the ComponentCallbacks2.TRIM_MEMORY_ levels
+     */
+    public static void onTrimMemory(final int level) {
+        final long retainedBytes = getRetainedBytes();
+        if(level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimTo(retainedBytes, 0);
+        } else if(level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimTo(retainedBytes, retainedBytes / 4);
+        } else {
+            trimTo(retainedBytes, retainedBytes / 2);
+        }
+    }
+
+    /**
+     * Called by a cache after it grew, trims all caches if they're over the budget
+     */
+    static void enforceBudget() {
+        final long retainedBytes = getRetainedBytes();
+        if(retainedBytes > sMemoryBudget) {
+            trimTo(retainedBytes, sMemoryBudget);
+        }
+    }
+
+    /**
+     * Shrink every cache by the same factor, so all caches together retain at most maxBytes
+     */
+    private static void trimTo(final long retainedBytes, final long maxBytes) {
+        if(retainedBytes <= maxBytes) {
+            return;
+        }
+        synchronized(sCaches) {
+            for(int i = sCaches.size() - 1; i >= 0; i--) {
+                final TrimmableCache cache = sCaches.get(i).get();
+                if(cache != null) {
+                    cache.trimToSize(maxBytes == 0 ? 0 : cache.getRetainedBytes() * maxBytes / retainedBytes);
+                }
+            }
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    private static class MemoryCallbacks implements ComponentCallbacks2 {
+        static void register(final Context applicationContext) {
+            applicationContext.registerComponentCallbacks(new MemoryCallbacks());
+        }
+
+        @Override
+        public void onTrimMemory(final int level) {
+            CalendarCaches.onTrimMemory(level);
+        }
+
+        @Override
+        public void onLowMemory() {
+            CalendarCaches.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(final Configuration newConfig) {
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.vdesmet.lib.calendar;
+
+/**
+ * Receives timings and counts of the work the Calendars do, to find out where time goes.
+ * When a listener is set, the phases are also marked as sections in system traces(API 18+).
+ * Without a listener, nothing is measured.
+ *
+ * All methods are called on the main thread. Durations are in nanoseconds.
+ */
+public interface CalendarMetricsListener {
+    public static final int CALLBACK_IS_DAY_ENABLED = 0;
+    public static final int CALLBACK_GET_CATEGORY_COLORS = 1;
+    public static final int CALLBACK_GET_CATEGORY_MASK = 2;
+    public static final int CALLBACK_UPDATE_TEXT_VIEW = 3;
+    public static final int CALLBACK_UPDATE_HEADER_TEXT_VIEW = 4;
+    public static final int CALLBACK_GET_DECORATION = 5;
+
+    public static final int CACHE_WEEK_SPANS = 0;
+    public static final int CACHE_DECORATIONS = 1;
+    // the answers of isDayEnabled() and the categories, per day of a month
+    public static final int CACHE_MONTH_MODELS = 2;
+
+    /**
+     * Called after a Calendar created its views
+     *
+     * @param view          The Calendar
+     * @param durationNanos The duration of initView()
+     * @param inflatedViews The number of layouts which were inflated
+     */
+    public abstract void onViewInitialized(AbstractCalendarView view, long durationNanos, int inflatedViews);
+
+    /**
+     * Called after a MultiCalendarView created a page
+     *
+     * @param position      The position of the page
+     * @param durationNanos The duration of instantiateItem(), without building the CalendarView itself
+     */
+    public abstract void onPageInstantiated(int position, long durationNanos);
+
+    /**
+     * Called after a method of the DayAdapter returned
+     *
+     * @param callback      The method, one of the CALLBACK_ constants
+     * @param durationNanos The time spent inside the DayAdapter
+     */
+    public abstract void onAdapterCallback(int callback, long durationNanos);
+
+    /**
+     * Called when a Calendar is measured
+     */
+    public abstract void onMeasure(AbstractCalendarView view);
+
+    /**
+     * Called after a value was looked up in one of the caches
+     *
+     * @param cache One of the CACHE_ constants
+     * @param hit   True if the value was cached
+     */
+    public abstract void onCacheLookup(int cache, boolean hit);
+}
@@ -0,0 +1,410 @@
+package com.vdesmet.lib.calendar;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.SparseArray;
+
+import com.vdesmet.lib.calendar.factory.DayStyleFactory;
+
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Snapshot of the resources all Calendars use, shared by every Calendar in the process.
+ * The snapshot is created again when the configuration changed, e.g. after a rotation or a new locale.
+ * All names and numbers are prepared for the locale of the snapshot, so building or drawing a Calendar
+ * doesn't create any Strings.
+ * The typeface doesn't depend on the configuration, so it's only loaded once, on a background thread.
+ */
+public final class CalendarResources {
+    private static final String DEFAULT_TYPEFACE_ASSET = "roboto_light.ttf";
+    private static final int MONTHS_IN_YEAR = 12;
+    private static final int MAX_DAYS_IN_MONTH = 31;
+    private static final int STYLE_COUNT = 3;
+
+    private static CalendarResources sInstance;
+
+    // The typeface has its own lock, so loading it doesn't block getInstance()
+    private static final Object sTypefaceLock = new Object();
+    private static final ArrayList<OnTypefaceLoadedListener> sTypefaceListeners =
+            new ArrayList<OnTypefaceLoadedListener>();
+    private static Typeface sTypeface;
+    private static boolean sIsLoadingTypeface;
+
+    // Observable in tests, to verify resources are not loaded for every Calendar
+    private static int sSnapshotLoadCount;
+    private static int sTypefaceLoadCount;
+
+    private final Configuration mConfiguration;
+    private final int mDaySize;
+    private final int mDayPaddingSides;
+    private final int mMonthMarginLeft;
+    private final int mDayTextColor;
+    private final int mDayDisabledTextColor;
+    private final int[] mDayDisabledBackgroundColors;
+    private final int mHeatmapLowColor;
+    private final int mHeatmapHighColor;
+    private final int mSpanBarHeight;
+    private final int mSpanBarSpacing;
+    private final int mCategoryHeight;
+    private final int mBadgePadding;
+    private final float mBadgeTextSize;
+    private final int mBadgeTextColor;
+    private final float mTodayStrokeWidth;
+    private final int mTodayColor;
+    // Indexed by Calendar.SUNDAY - Calendar.SATURDAY
+    private final String[] mDayNames;
+    // Indexed by Calendar.JANUARY - Calendar.DECEMBER
+    private final String[] mMonthNames;
+    // Indexed by the day of the month, 1 - 31
+    private final String[] mDayNumbers;
+    // Titles of the months which have been shown, by month key
+    private final SparseArray<String> mMonthTitles;
+    private final char mZeroDigit;
+
+    public interface OnTypefaceLoadedListener {
+        /**
+         * Called on the main thread when the default typeface is loaded
+         *
+         * @param typeface The default typeface
+         */
+        public abstract void onTypefaceLoaded(Typeface typeface);
+    }
+
+    private CalendarResources(final Resources resources, final Configuration configuration) {
+        mConfiguration = configuration;
+        mDaySize = resources.getDimensionPixelSize(R.dimen.lib_calendar_day_size);
+        mDayPaddingSides = resources.getDimensionPixelSize(R.dimen.lib_calendar_day_padding_sides);
+        mMonthMarginLeft = resources.getDimensionPixelSize(R.dimen.lib_calendar_month_margin_left);
+        mDayTextColor = resources.getColor(R.color.lib_calendar_day_textcolor);
+        mDayDisabledTextColor = resources.getColor(R.color.lib_calendar_day_textcolor_disabled);
+        mHeatmapLowColor = resources.getColor(R.color.lib_calendar_heatmap_low);
+        mHeatmapHighColor = resources.getColor(R.color.lib_calendar_heatmap_high);
+
+        mSpanBarHeight = resources.getDimensionPixelSize(R.dimen.lib_span_bar_height);
+        mSpanBarSpacing = resources.getDimensionPixelSize(R.dimen.lib_span_bar_spacing);
+        mCategoryHeight = resources.getDimensionPixelSize(R.dimen.lib_category_padding_bottom) +
+                resources.getDimensionPixelSize(R.dimen.lib_category_size);
+        mBadgePadding = resources.getDimensionPixelSize(R.dimen.lib_badge_padding);
+        mBadgeTextSize = resources.getDimension(R.dimen.lib_badge_text_size);
+        mBadgeTextColor = resources.getColor(R.color.lib_calendar_badge_textcolor);
+        mTodayStrokeWidth = resources.getDimension(R.dimen.lib_today_stroke_width);
+        mTodayColor = resources.getColor(R.color.lib_calendar_today);
+
+        mDayDisabledBackgroundColors = new int[STYLE_COUNT];
+        for(int style = 0; style < STYLE_COUNT; style++) {
+            mDayDisabledBackgroundColors[style] = DayStyleFactory.getDayDisabledBackgroundColor(style, resources);
+        }
+
+        mDayNames = new String[Calendar.SATURDAY + 1];
+        mDayNames[Calendar.MONDAY] = resources.getString(R.string.lib_header_monday);
+        mDayNames[Calendar.TUESDAY] = resources.getString(R.string.lib_header_tuesday);
+        mDayNames[Calendar.WEDNESDAY] = resources.getString(R.string.lib_header_wednesday);
+        mDayNames[Calendar.THURSDAY] = resources.getString(R.string.lib_header_thursday);
+        mDayNames[Calendar.FRIDAY] = resources.getString(R.string.lib_header_friday);
+        mDayNames[Calendar.SATURDAY] = resources.getString(R.string.lib_header_saturday);
+        mDayNames[Calendar.SUNDAY] = resources.getString(R.string.lib_header_sunday);
+
+        mMonthNames = new String[MONTHS_IN_YEAR];
+        mMonthNames[Calendar.JANUARY] = resources.getString(R.string.lib_month_january);
+        mMonthNames[Calendar.FEBRUARY] = resources.getString(R.string.lib_month_february);
+        mMonthNames[Calendar.MARCH] = resources.getString(R.string.lib_month_march);
+        mMonthNames[Calendar.APRIL] = resources.getString(R.string.lib_month_april);
+        mMonthNames[Calendar.MAY] = resources.getString(R.string.lib_month_may);
+        mMonthNames[Calendar.JUNE] = resources.getString(R.string.lib_month_june);
+        mMonthNames[Calendar.JULY] = resources.getString(R.string.lib_month_july);
+        mMonthNames[Calendar.AUGUST] = resources.getString(R.string.lib_month_august);
+        mMonthNames[Calendar.SEPTEMBER] = resources.getString(R.string.lib_month_september);
+        mMonthNames[Calendar.OCTOBER] = resources.getString(R.string.lib_month_october);
+        mMonthNames[Calendar.NOVEMBER] = resources.getString(R.string.lib_month_november);
+        mMonthNames[Calendar.DECEMBER] = resources.getString(R.string.lib_month_december);
+
+        // use the digits of the locale, e.g. arabic-indic digits
+        final Locale locale = configuration.locale != null ? configuration.locale : Locale.getDefault();
+        mZeroDigit = new DecimalFormatSymbols(locale).getZeroDigit();
+        mDayNumbers = new String[MAX_DAYS_IN_MONTH + 1];
+        for(int day = 1; day <= MAX_DAYS_IN_MONTH; day++) {
+            mDayNumbers[day] = formatNumber(day);
+        }
+        mMonthTitles = new SparseArray<String>();
+    }
+
+    private String formatNumber(final int number) {
+        final char[] digits = Integer.toString(number).toCharArray();
+        for(int i = 0; i < digits.length; i++) {
+            if(digits[i] >= '0' && digits[i] <= '9') {
+                digits[i] = (char) (mZeroDigit + (digits[i] - '0'));
+            }
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Get the snapshot for the current configuration. Creates a new snapshot if the configuration changed.
+     *
+     * @param context Any context
+     * @return The shared snapshot
+     */
+    public static synchronized CalendarResources getInstance(final Context context) {
+        final Resources resources = context.getResources();
+        final Configuration configuration = resources.getConfiguration();
+        final CalendarResources instance = sInstance;
+        if(instance != null && instance.mConfiguration.equals(configuration)) {
+            return instance;
+        }
+
+        // copy the configuration, the Resources update their instance
+        sInstance = new CalendarResources(resources, new Configuration(configuration));
+        sSnapshotLoadCount++;
+        return sInstance;
+    }
+
+    /**
+     * Get the default typeface(Roboto Light), loading it from the assets on this thread if needed.
+     * Calendars use getDefaultTypeface(Context, OnTypefaceLoadedListener), which never blocks.
+     */
+    public static Typeface getDefaultTypeface(final Context context) {
+        synchronized(sTypefaceLock) {
+            if(sTypeface == null) {
+                sTypeface = Typeface.createFromAsset(context.getResources().getAssets(), DEFAULT_TYPEFACE_ASSET);
+                sTypefaceLoadCount++;
+            }
+            return sTypeface;
+        }
+    }
+
+    /**
+     * Get the default typeface if it's loaded. Otherwise, start loading it on a background thread,
+     * and call the listener on the main thread when it's loaded.
+     *
+     * @param context  Any context
+     * @param listener Called once the typeface is loaded, if this method returned null. May be null.
+     *                 If the asset can't be loaded, it's called with Typeface.DEFAULT.
+     * @return The default typeface, or null if it's not loaded yet
+     */
+    public static Typeface getDefaultTypeface(final Context context, final OnTypefaceLoadedListener listener) {
+        synchronized(sTypefaceLock) {
+            if(sTypeface != null) {
+                return sTypeface;
+            }
+            if(listener != null && !sTypefaceListeners.contains(listener)) {
+                sTypefaceListeners.add(listener);
+            }
+        }
+        warmUp(context);
+        return null;
+    }
+
+    /**
+     * Start loading the default typeface on a background thread, e.g. in Application.onCreate().
+     * Nothing happens if it's already loaded or loading.
+     *
+     * @param context Any context, only the application context is kept
+     */
+    public static void warmUp(final Context context) {
+        synchronized(sTypefaceLock) {
+            if(sTypeface != null || sIsLoadingTypeface) {
+                return;
+            }
+            sIsLoadingTypeface = true;
+        }
+
+        final Context applicationContext = context.getApplicationContext();
+        final Context loadContext = applicationContext != null ? applicationContext : context;
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                try {
+                    getDefaultTypeface(loadContext);
+                } catch(RuntimeException e) {
+                    // e.g. the asset is missing, use the system's default instead of loading it again and again
+                    synchronized(sTypefaceLock) {
+                        if(sTypeface == null) {
+                            sTypeface = Typeface.DEFAULT;
+                        }
+                    }
+                } finally {
+                    // the waiting Calendars are always told, or they'd never show their days
+                    synchronized(sTypefaceLock) {
+                        sIsLoadingTypeface = false;
+                    }
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            dispatchTypefaceLoaded();
+                        }
+                    });
+                }
+            }
+        }, "CalendarTypefaceLoader");
+        thread.start();
+    }
+
+    /**
+     * Remove a listener which is waiting for the typeface, e.g. because the view is no longer used
+     */
+    public static void removeOnTypefaceLoadedListener(final OnTypefaceLoadedListener listener) {
+        synchronized(sTypefaceLock) {
+            sTypefaceListeners.remove(listener);
+        }
+    }
+
+    private static void dispatchTypefaceLoaded() {
+        final Typeface typeface;
+        final OnTypefaceLoadedListener[] listeners;
+        synchronized(sTypefaceLock) {
+            typeface = sTypeface;
+            listeners = sTypefaceListeners.toArray(new OnTypefaceLoadedListener[sTypefaceListeners.size()]);
+            sTypefaceListeners.clear();
+        }
+        for(final OnTypefaceLoadedListener listener : listeners) {
+            listener.onTypefaceLoaded(typeface);
+        }
+    }
+
+    /**
+     * Drop the snapshot, the next call to getInstance() creates a new one
+     */
+    public static synchronized void invalidate() {
+        sInstance = null;
+    }
+
+    public static synchronized int getSnapshotLoadCount() {
+        return sSnapshotLoadCount;
+    }
+
+    public static int getTypefaceLoadCount() {
+        synchronized(sTypefaceLock) {
+            return sTypefaceLoadCount;
+        }
+    }
+
+    public int getDaySize() {
+        return mDaySize;
+    }
+
+    public int getDayPaddingSides() {
+        return mDayPaddingSides;
+    }
+
+    /**
+     * @return The margin at the left of a month in a MultiCalendarView
+     */
+    public int getMonthMarginLeft() {
+        return mMonthMarginLeft;
+    }
+
+    public int getDayTextColor() {
+        return mDayTextColor;
+    }
+
+    public int getDayDisabledTextColor() {
+        return mDayDisabledTextColor;
+    }
+
+    /**
+     * @param dayStyle The style, see DayStyleFactory
+     * @return The background color of a disabled day in this style
+     */
+    public int getDayDisabledBackgroundColor(final int dayStyle) {
+        if(!DayStyleFactory.isValidStyle(dayStyle)) {
+            throw new IllegalArgumentException("Day Style is invalid. Check DayStyleFactory for options");
+        }
+        return mDayDisabledBackgroundColors[dayStyle];
+    }
+
+    public int getHeatmapLowColor() {
+        return mHeatmapLowColor;
+    }
+
+    public int getHeatmapHighColor() {
+        return mHeatmapHighColor;
+    }
+
+    public int getSpanBarHeight() {
+        return mSpanBarHeight;
+    }
+
+    public int getSpanBarSpacing() {
+        return mSpanBarSpacing;
+    }
+
+    /**
+     * @return The height of the categories, including their bottom padding
+     */
+    public int getCategoryHeight() {
+        return mCategoryHeight;
+    }
+
+    public int getBadgePadding() {
+        return mBadgePadding;
+    }
+
+    public float getBadgeTextSize() {
+        return mBadgeTextSize;
+    }
+
+    public int getBadgeTextColor() {
+        return mBadgeTextColor;
+    }
+
+    public float getTodayStrokeWidth() {
+        return mTodayStrokeWidth;
+    }
+
+    public int getTodayColor() {
+        return mTodayColor;
+    }
+
+    /**
+     * @param dayOfWeek between Calendar.SUNDAY and Calendar.SATURDAY
+     * @return The name used in the headers. MON - SUN.
+     */
+    public String getDayName(final int dayOfWeek) {
+        return mDayNames[dayOfWeek];
+    }
+
+    /**
+     * @param month between Calendar.JANUARY and Calendar.DECEMBER
+     * @return The name of the month
+     */
+    public String getMonthName(final int month) {
+        return mMonthNames[month];
+    }
+
+    /**
+     * Get the title of a month, e.g. MARCH 2013. The title is created once, and reused afterwards.
+     *
+     * @param year  The year, e.g. 2013
+     * @param month between Calendar.JANUARY and Calendar.DECEMBER
+     * @return The title of the month
+     */
+    public String getMonthTitle(final int year, final int month) {
+        final int monthKey = DayUtils.getMonthKey(year, month);
+        synchronized(mMonthTitles) {
+            String title = mMonthTitles.get(monthKey);
+            if(title == null) {
+                title = mMonthNames[month] + " " + formatNumber(year);
+                mMonthTitles.put(monthKey, title);
+            }
+            return title;
+        }
+    }
+
+    /**
+     * @param dayOfMonth The day of the month, 1 - 31
+     * @return The number of the day, in the digits of the locale
+     */
+    public String getDayNumber(final int dayOfMonth) {
+        return mDayNumbers[dayOfMonth];
+    }
+}
@@ -0,0 +1,448 @@
+package com.vdesmet.lib.calendar;
+
+import android.util.SparseIntArray;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+
+/**
+ * The selected days of a Calendar. Selected days are stored as a bitmask per month(bit 0 is the first day of the month),
+ * so checking a day is O(1), and ranges over many months only cost one int per month. Months without selected days
+ * aren't stored. The selection is state rather than a cache, so it's never trimmed by CalendarCaches.
+ *
+ * Every change is reported to the listeners with only the days whose state changed,
+ * so the Calendars only redraw those days.
+ *
+ * @see com.vdesmet.lib.calendar.AbstractCalendarView#setSelection(CalendarSelection)
+ */
+public class CalendarSelection {
+    /**
+     * A click selects the day, and deselects the previous day
+     */
+    public static final int SELECTION_MODE_SINGLE = 0;
+    /**
+     * A click toggles the day
+     */
+    public static final int SELECTION_MODE_MULTIPLE = 1;
+    /**
+     * The first click starts a range, the second click ends it. Dragging an end of the range extends it.
+     */
+    public static final int SELECTION_MODE_RANGE = 2;
+
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    private static final long[] NO_DAYS = new long[0];
+
+    public interface OnSelectionChangedListener {
+
+        /**
+         * Called when the selection changed
+         *
+         * @param selection           The selection
+         * @param changedDaysInMillis The days which were selected or deselected
+         */
+        public abstract void onSelectionChanged(CalendarSelection selection, long[] changedDaysInMillis);
+    }
+
+    private int mMode;
+    private final SparseIntArray mMonths;
+    private final SparseIntArray mChangedMonths;
+    private final ArrayList<OnSelectionChangedListener> mListeners;
+    private final Calendar mCalendar;
+
+    // The day where the range started, and where it currently ends
+    private int mRangeAnchor = NO_DAY;
+    private int mRangeEnd = NO_DAY;
+
+    public CalendarSelection(final int mode) {
+        mMonths = new SparseIntArray();
+        mChangedMonths = new SparseIntArray();
+        mListeners = new ArrayList<OnSelectionChangedListener>();
+        mCalendar = Calendar.getInstance();
+        setMode(mode);
+    }
+
+    /**
+     * Change the selection mode. This clears the current selection.
+     *
+     * @param mode SELECTION_MODE_SINGLE, SELECTION_MODE_MULTIPLE or SELECTION_MODE_RANGE
+     */
+    public void setMode(final int mode) {
+        if(mode != SELECTION_MODE_SINGLE && mode != SELECTION_MODE_MULTIPLE && mode != SELECTION_MODE_RANGE) {
+            throw new IllegalArgumentException("Selection mode is invalid. Check CalendarSelection for options");
+        }
+        mMode = mode;
+        clear();
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    public void addOnSelectionChangedListener(final OnSelectionChangedListener listener) {
+        if(!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    public void removeOnSelectionChangedListener(final OnSelectionChangedListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Update the selection as if the user clicked on a day, depending on the mode
+     *
+     * @param dayInMillis The day the user clicked on
+     */
+    public void onDayClicked(final long dayInMillis) {
+        final int day = toEpochDay(dayInMillis);
+        switch(mMode) {
+            case SELECTION_MODE_SINGLE:
+                clearMasks();
+                setDay(day, true);
+                break;
+
+            case SELECTION_MODE_MULTIPLE:
+                setDay(day, !isSelected(day));
+                break;
+
+            case SELECTION_MODE_RANGE:
+                if(mRangeAnchor == NO_DAY || mRangeAnchor != mRangeEnd) {
+                    // start a new range
+                    setRange(day, day);
+                } else {
+                    // finish the range
+                    setRange(mRangeAnchor, day);
+                }
+                break;
+        }
+        dispatchChanges();
+    }
+
+    /**
+     * Select a single day. In SELECTION_MODE_SINGLE, this deselects the previous day.
+     *
+     * @param dayInMillis The day to select
+     */
+    public void select(final long dayInMillis) {
+        final int day = toEpochDay(dayInMillis);
+        if(mMode == SELECTION_MODE_RANGE) {
+            setRange(day, day);
+        } else {
+            if(mMode == SELECTION_MODE_SINGLE) {
+                clearMasks();
+            }
+            setDay(day, true);
+        }
+        dispatchChanges();
+    }
+
+    /**
+     * Deselect a single day. Not supported in SELECTION_MODE_RANGE, use selectRange() instead.
+     *
+     * @param dayInMillis The day to deselect
+     */
+    public void deselect(final long dayInMillis) {
+        if(mMode == SELECTION_MODE_RANGE) {
+            throw new IllegalStateException("Can't deselect a single day in SELECTION_MODE_RANGE");
+        }
+        setDay(toEpochDay(dayInMillis), false);
+        dispatchChanges();
+    }
+
+    /**
+     * Select all days in a range. Only supported in SELECTION_MODE_RANGE and SELECTION_MODE_MULTIPLE.
+     *
+     * @param anchorInMillis The day the range starts at. When the range is extended, this day stays selected
+     * @param endInMillis    The other end of the range, may be before the anchor
+     */
+    public void selectRange(final long anchorInMillis, final long endInMillis) {
+        final int anchor = toEpochDay(anchorInMillis);
+        final int end = toEpochDay(endInMillis);
+        if(mMode == SELECTION_MODE_RANGE) {
+            setRange(anchor, end);
+        } else if(mMode == SELECTION_MODE_MULTIPLE) {
+            setDays(Math.min(anchor, end), Math.max(anchor, end), true);
+        } else {
+            throw new IllegalStateException("Can't select a range in SELECTION_MODE_SINGLE");
+        }
+        dispatchChanges();
+    }
+
+    /**
+     * Move the end of the current range, keeping its anchor. Starts a new range if there is none.
+     *
+     * @param dayInMillis The new end of the range
+     */
+    public void extendRangeTo(final long dayInMillis) {
+        if(mMode != SELECTION_MODE_RANGE) {
+            throw new IllegalStateException("Can only extend a range in SELECTION_MODE_RANGE");
+        }
+        final int day = toEpochDay(dayInMillis);
+        setRange(mRangeAnchor == NO_DAY ? day : mRangeAnchor, day);
+        dispatchChanges();
+    }
+
+    /**
+     * Deselect all days
+     */
+    public void clear() {
+        clearMasks();
+        mRangeAnchor = NO_DAY;
+        mRangeEnd = NO_DAY;
+        dispatchChanges();
+    }
+
+    public boolean isSelected(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        return isSelected(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    public boolean isSelected(final int year, final int month, final int dayOfMonth) {
+        return (getSelectedMask(year, month) & (1 << (dayOfMonth - 1))) != 0;
+    }
+
+    /**
+     * Get the selected days in a month
+     *
+     * @param year  The year, e.g. 2013
+     * @param month The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @return The mask of selected days, bit 0 is the first day of the month
+     */
+    public int getSelectedMask(final int year, final int month) {
+        return mMonths.get(DayUtils.getMonthKey(year, month));
+    }
+
+    /**
+     * Count all selected days
+     *
+     * @return The number of selected days
+     */
+    public int getSelectedCount() {
+        final SparseIntArray months = mMonths;
+        int count = 0;
+        for(int i = 0; i < months.size(); i++) {
+            count += Integer.bitCount(months.valueAt(i));
+        }
+        return count;
+    }
+
+    /**
+     * Get the day where the current range starts, this is the earliest day of the range
+     *
+     * @return The day in milliseconds, or -1 if there's no range
+     */
+    public long getRangeStart() {
+        if(mRangeAnchor == NO_DAY) {
+            return -1;
+        }
+        return toMillis(Math.min(mRangeAnchor, mRangeEnd));
+    }
+
+    /**
+     * Get the day where the current range ends, this is the latest day of the range
+     *
+     * @return The day in milliseconds, or -1 if there's no range
+     */
+    public long getRangeEnd() {
+        if(mRangeAnchor == NO_DAY) {
+            return -1;
+        }
+        return toMillis(Math.max(mRangeAnchor, mRangeEnd));
+    }
+
+    /**
+     * Check whether a day is the first or last day of the current range
+     *
+     * @param dayInMillis The day
+     * @return true if the day is an end of the range
+     */
+    public boolean isRangeEndpoint(final long dayInMillis) {
+        if(mRangeAnchor == NO_DAY) {
+            return false;
+        }
+        final int day = toEpochDay(dayInMillis);
+        return day == mRangeAnchor || day == mRangeEnd;
+    }
+
+    /**
+     * Get the other end of the range, used when an end of the range is dragged
+     *
+     * @param dayInMillis One of the ends of the range
+     * @return The other end in milliseconds
+     */
+    long getOppositeRangeEndpoint(final long dayInMillis) {
+        final int day = toEpochDay(dayInMillis);
+        return toMillis(day == mRangeAnchor ? mRangeEnd : mRangeAnchor);
+    }
+
+    /**
+     * Get the raw masks of all months, used to save the selection
+     */
+    SparseIntArray getMonthMasks() {
+        return mMonths;
+    }
+
+    /**
+     * The ends of the range as epoch days, used to save the selection
+     */
+    int getRangeAnchorDay() {
+        return mRangeAnchor;
+    }
+
+    int getRangeEndDay() {
+        return mRangeEnd;
+    }
+
+    /**
+     * Replace the selection with a saved one, and notify the listeners of the changed days
+     *
+     * @param mode        The selection mode
+     * @param monthKeys   The months with selected days
+     * @param masks       The selected days of each month
+     * @param rangeAnchor The anchor of the range as epoch day
+     * @param rangeEnd    The end of the range as epoch day
+     */
+    void restore(final int mode, final int[] monthKeys, final int[] masks, final int rangeAnchor, final int rangeEnd) {
+        if(mode != SELECTION_MODE_SINGLE && mode != SELECTION_MODE_MULTIPLE && mode != SELECTION_MODE_RANGE) {
+            throw new IllegalArgumentException("Selection mode is invalid. Check CalendarSelection for options");
+        }
+        mMode = mode;
+        clearMasks();
+        for(int i = 0; i < monthKeys.length; i++) {
+            setMask(monthKeys[i], masks[i]);
+        }
+        mRangeAnchor = rangeAnchor;
+        mRangeEnd = rangeEnd;
+        dispatchChanges();
+    }
+
+    private boolean isSelected(final int epochDay) {
+        final Calendar calendar = mCalendar;
+        DayUtils.setToEpochDay(calendar, epochDay);
+        return isSelected(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    private void setRange(final int anchor, final int end) {
+        final int oldAnchor = mRangeAnchor;
+        final int oldEnd = mRangeEnd;
+        mRangeAnchor = anchor;
+        mRangeEnd = end;
+
+        final int first = Math.min(anchor, end);
+        final int last = Math.max(anchor, end);
+        if(oldAnchor != NO_DAY) {
+            // only deselect the days which are no longer in the range
+            final int oldFirst = Math.min(oldAnchor, oldEnd);
+            final int oldLast = Math.max(oldAnchor, oldEnd);
+            if(oldFirst < first) {
+                setDays(oldFirst, Math.min(oldLast, first - 1), false);
+            }
+            if(oldLast > last) {
+                setDays(Math.max(oldFirst, last + 1), oldLast, false);
+            }
+        }
+        setDays(first, last, true);
+    }
+
+    private void setDay(final int epochDay, final boolean selected) {
+        setDays(epochDay, epochDay, selected);
+    }
+
+    /**
+     * Select or deselect all days between first and last, one month at a time
+     */
+    private void setDays(final int first, final int last, final boolean selected) {
+        final Calendar calendar = mCalendar;
+        DayUtils.setToEpochDay(calendar, first);
+        int monthKey = DayUtils.getMonthKey(calendar);
+        int firstDayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
+        int monthStart = first - firstDayOfMonth + 1;
+
+        while(monthStart <= last) {
+            final int year = DayUtils.getYearFromMonthKey(monthKey);
+            final int month = DayUtils.getMonthFromMonthKey(monthKey);
+            final int daysInMonth = DayUtils.getDaysInMonth(year, month);
+            final int lastDayOfMonth = Math.min(daysInMonth, last - monthStart + 1);
+
+            // all bits from firstDayOfMonth up to and including lastDayOfMonth
+            final int rangeMask = (int) ((1L << lastDayOfMonth) - 1) & (-1 << (firstDayOfMonth - 1));
+            final int oldMask = mMonths.get(monthKey);
+            setMask(monthKey, selected ? oldMask | rangeMask : oldMask & ~rangeMask);
+
+            monthStart += daysInMonth;
+            monthKey++;
+            firstDayOfMonth = 1;
+        }
+    }
+
+    private void clearMasks() {
+        final SparseIntArray months = mMonths;
+        for(int i = months.size() - 1; i >= 0; i--) {
+            setMask(months.keyAt(i), 0);
+        }
+    }
+
+    /**
+     * Replace the mask of a month, and remember which days changed
+     */
+    private void setMask(final int monthKey, final int mask) {
+        final int oldMask = mMonths.get(monthKey);
+        if(oldMask == mask) {
+            return;
+        }
+        if(mask == 0) {
+            mMonths.delete(monthKey);
+        } else {
+            mMonths.put(monthKey, mask);
+        }
+        mChangedMonths.put(monthKey, mChangedMonths.get(monthKey) | (oldMask ^ mask));
+    }
+
+    /**
+     * Notify the listeners of all days which changed since the last call
+     */
+    private void dispatchChanges() {
+        final SparseIntArray changedMonths = mChangedMonths;
+        if(changedMonths.size() == 0) {
+            return;
+        }
+
+        int changedCount = 0;
+        for(int i = 0; i < changedMonths.size(); i++) {
+            changedCount += Integer.bitCount(changedMonths.valueAt(i));
+        }
+        final long[] changedDays = changedCount == 0 ? NO_DAYS : new long[changedCount];
+        final Calendar calendar = mCalendar;
+        int position = 0;
+        for(int i = 0; i < changedMonths.size(); i++) {
+            final int monthKey = changedMonths.keyAt(i);
+            int mask = changedMonths.valueAt(i);
+            calendar.clear();
+            calendar.set(DayUtils.getYearFromMonthKey(monthKey), DayUtils.getMonthFromMonthKey(monthKey), 1);
+            while(mask != 0) {
+                calendar.set(Calendar.DAY_OF_MONTH, Integer.numberOfTrailingZeros(mask) + 1);
+                changedDays[position++] = calendar.getTimeInMillis();
+                mask &= mask - 1;
+            }
+        }
+        changedMonths.clear();
+
+        final ArrayList<OnSelectionChangedListener> listeners = mListeners;
+        for(int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).onSelectionChanged(this, changedDays);
+        }
+    }
+
+    private int toEpochDay(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        return DayUtils.toEpochDay(calendar);
+    }
+
+    private long toMillis(final int epochDay) {
+        final Calendar calendar = mCalendar;
+        DayUtils.setToEpochDay(calendar, epochDay);
+        return calendar.getTimeInMillis();
+    }
+}
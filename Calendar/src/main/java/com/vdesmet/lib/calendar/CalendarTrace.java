@@ -0,0 +1,29 @@
+package com.vdesmet.lib.calendar;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Marks sections in system traces, on devices which support it
+ */
+final class CalendarTrace {
+    private static final boolean IS_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    private CalendarTrace() {
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void beginSection(final String name) {
+        if(IS_SUPPORTED) {
+            Trace.beginSection(name);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void endSection() {
+        if(IS_SUPPORTED) {
+            Trace.endSection();
+        }
+    }
+}
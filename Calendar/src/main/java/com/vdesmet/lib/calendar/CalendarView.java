@@ -2,11 +2,16 @@ package com.vdesmet.lib.calendar;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.graphics.Canvas;
 import android.graphics.Typeface;
 import android.os.Build;
+import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewParent;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
 import android.widget.TextView;
@@ -15,24 +20,69 @@ import com.vdesmet.lib.calendar.factory.DayStyleFactory;
 
 import java.util.Calendar;
 
-public class CalendarView extends AbstractCalendarView implements View.OnClickListener {
+public class CalendarView extends AbstractCalendarView
+        implements View.OnClickListener, CalendarSelection.OnSelectionChangedListener,
+        TodayTracker.OnTodayChangedListener {
+    // The number of days between the first and the last day in the grid, including hidden days of the week
+    private static final int MAX_DAYS_IN_GRID = (MAX_WEEKS_IN_MONTH + 1) * DAYS_IN_WEEK;
+    private static final long NO_DAY = Long.MIN_VALUE;
+
+    // The layout of each day, indexed by the number of days since the first day in the grid
+    private final ViewGroup[] mDayLayouts = new ViewGroup[MAX_DAYS_IN_GRID];
+    // The decoration applied to each day, or null if the day isn't decorated
+    private final DayDecoration[] mDecorations = new DayDecoration[MAX_DAYS_IN_GRID];
+    // The time the adapter took for each day and how it was bound, only kept while the debug overlay is enabled
+    private long[] mDebugAdapterNanos;
+    private int[] mDebugBindKinds;
+    // The time spent in the adapter while binding the current day
+    private long mAdapterNanos;
+
+    // A skeleton only shows the day numbers, without calling the DayAdapter
+    private boolean mIsSkeleton;
+    private final Runnable mUpgradeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            upgradeSkeleton();
+        }
+    };
+    private final Calendar mLookupCalendar = Calendar.getInstance();
+    private int mFirstDayInGrid;
+
+    private boolean mIsAttached;
+    private long mDragAnchor = NO_DAY;
+    private long mDragStartDay = NO_DAY;
+    private boolean mIsDragging;
+
+    private int mDayDisabledBackgroundColor;
+    private int mDayDisabledTextColor;
+    private int mEnabledMask;
+    private int mMaxLoad;
 
     public CalendarView(final Context context) {
         super(context);
-        init();
+        init(true);
+    }
+
+    /**
+     * @param updatesOnGlobalLayout Whether the width of the days is updated after the first layout of the window.
+     *                              A column of a page with several months is built with its final width already.
+     */
+    CalendarView(final Context context, final boolean updatesOnGlobalLayout) {
+        super(context);
+        init(updatesOnGlobalLayout);
     }
 
     public CalendarView(final Context context, final AttributeSet attrs) {
         super(context, attrs);
-        init();
+        init(true);
     }
 
     public CalendarView(final Context context, final AttributeSet attrs, final int defStyle) {
         super(context, attrs, defStyle);
-        init();
+        init(true);
     }
 
-    private void init() {
+    private void init(final boolean updatesOnGlobalLayout) {
         setOrientation(VERTICAL);
         mIsViewInitialized = false;
 
@@ -42,7 +92,7 @@ public class CalendarView extends AbstractCalendarView implements View.OnClickLi
         }
 
         // Update day width if we have usable values
-        final ViewTreeObserver observer = getViewTreeObserver();
+        final ViewTreeObserver observer = updatesOnGlobalLayout ? getViewTreeObserver() : null;
         if(observer != null) {
             observer.addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
                 @Override
@@ -70,9 +120,16 @@ public class CalendarView extends AbstractCalendarView implements View.OnClickLi
      */
     @Override
     public void onClick(final View v) {
+        // a skeleton doesn't know yet which days the DayAdapter disables, so it ignores clicks until it's upgraded
+        if(mIsSkeleton) {
+            return;
+        }
         // user clicked on a TextView
         if(v != null) {
             final long timeInMillis = Long.parseLong(v.getTag().toString());
+            if(mSelection != null) {
+                mSelection.onDayClicked(timeInMillis);
+            }
             if(mOnDayClickListener != null) {
                 mOnDayClickListener.onDayClick(timeInMillis);
             }
@@ -89,25 +146,35 @@ public class CalendarView extends AbstractCalendarView implements View.OnClickLi
         final int backgroundColor = DayStyleFactory.getBackgroundResourceForStyle(mDayStyle);
         setBackgroundResource(backgroundColor);
 
-        // create the headers for the day of the week
-        createHeaders();
+        // create the headers for the day of the week, unless a MultiCalendarView shows them above all pages
+        if(mShowHeaders) {
+            addView(createHeaders(this));
+        }
 
         // setup the variables we'll need
         final Context context = getContext();
         final LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        final DayAdapter adapter = mDayAdapter;
         final Calendar currentDay = mCalendarFirstDay;
-        final Calendar firstValidDay = mFirstValidDay;
-        final Calendar lastValidDay = mLastValidDay;
+        final ViewGroup[] dayLayouts = mDayLayouts;
+        mFirstDayInGrid = DayUtils.toEpochDay(currentDay);
+        int dayIndex = 0;
         final int firstDayOfWeek = mFirstDayOfWeek;
         final int lastDayOfWeek = mLastDayOfWeek;
         final int currentMonth = mCurrentMonth;
         final int dayStyle = mDayStyle;
-        final int dayDisabledBackgroundColor = DayStyleFactory.getDayDisabledBackgroundColor(dayStyle, getResources());
-        final int dayDisabledTextColor = getResources().getColor(R.color.lib_calendar_day_textcolor_disabled);
         final Typeface typeface = mTypeface;
 
+        // retrieve the colors used for disabled days once, instead of for every day
+        final CalendarResources calendarResources = CalendarResources.getInstance(context);
+        mDayDisabledBackgroundColor = calendarResources.getDayDisabledBackgroundColor(dayStyle);
+        mDayDisabledTextColor = calendarResources.getDayDisabledTextColor();
+
+        // compile the availability rules of this month once
+        updateEnabledMask();
+        updateHeatmap();
+
         ViewGroup weekLayout = (ViewGroup) inflater.inflate(R.layout.lib_calendar_week, this, false);
+        mInflatedViewCount++;
 
         /* Continue adding days while:
          *  # We're adding the last few days of the previous month          (modulo to work in january)
@@ -116,7 +183,7 @@ public class CalendarView extends AbstractCalendarView implements View.OnClickLi
          */
         while((currentDay.get(Calendar.MONTH) + 1) % MONTHS_IN_YEAR == currentMonth ||
                 currentDay.get(Calendar.MONTH) == currentMonth ||
-                currentDay.get(Calendar.DAY_OF_WEEK) != lastDayOfWeek + 1) {
+                currentDay.get(Calendar.DAY_OF_WEEK) != lastDayOfWeek % 7 + 1) {
 
             // check if we need to add this day, if not, move to the next
             final int dayOfWeek = currentDay.get(Calendar.DAY_OF_WEEK);
@@ -135,13 +202,14 @@ public class CalendarView extends AbstractCalendarView implements View.OnClickLi
             if(moveToNext) {
                 // move to the next day
                 currentDay.add(Calendar.DAY_OF_WEEK, 1);
+                dayIndex++;
                 continue;
             }
             // setup variables and layouts for this day
             final long timeInMillis = currentDay.getTimeInMillis();
             final ViewGroup layout = DayStyleFactory.getDayLayoutForStyle(inflater, this, dayStyle);
+            mInflatedViewCount++;
             final TextView dayTextView = (TextView) layout.findViewById(R.id.lib_calendar_day_text);
-            final ViewGroup categories = (ViewGroup) layout.findViewById(R.id.lib_calendar_day_categories);
 
             // if set, use the custom Typeface
             if(typeface != null) {
@@ -150,66 +218,33 @@ public class CalendarView extends AbstractCalendarView implements View.OnClickLi
 
             // set the current day: 1-31
             final int dayOfMonth = currentDay.get(Calendar.DAY_OF_MONTH);
-            dayTextView.setText(String.valueOf(dayOfMonth));
-
-            /* We need to disable the view when:
-             *  # The adapter says it should be disabled
-             *  # This day is in another month              (We fill the rows at the begin/end of the month)
-             *  # This day is before the first valid day
-             *  # This day is after the last valid day
-             */
-            if((adapter != null && !adapter.isDayEnabled(timeInMillis)) ||
-                    (currentDay.get(Calendar.MONTH) != currentMonth) ||
-                    (firstValidDay != null && currentDay.before(firstValidDay)) ||
-                    (lastValidDay != null && currentDay.after(lastValidDay))) {
-
-                // change the appearance if it's disabled
-                layout.setBackgroundColor(dayDisabledBackgroundColor);
-                dayTextView.setTextColor(dayDisabledTextColor);
-                // disable the views
-                dayTextView.setEnabled(false);
-                layout.setEnabled(false);
-            } else {
-                // allow the adapter to update the TextView
-                // e.g. change font size or color based on the date
-                if(adapter != null) {
-                    adapter.updateTextView(dayTextView, timeInMillis);
-
-                    // create a new view for each category
-                    final int[] colors = adapter.getCategoryColors(timeInMillis);
-                    if(colors != null) {
-                        for(final int color : colors) {
-                            // inflate a new category
-                            final View category = inflater.inflate(R.layout.lib_calendar_category, categories, false);
+            dayTextView.setText(calendarResources.getDayNumber(dayOfMonth));
 
-                            // set the background color to the color provided by the adapter
-                            category.setBackgroundColor(color);
-
-                            // add the view to the ViewGroup. Note that we can't do this while inflating,
-                            // because that will cause the view to match the size of his parent
-                            categories.addView(category);
-                        }
-                    }
-                }
+            // add layout to view, before binding it so the week can draw its badge
+            weekLayout.addView(layout);
+            if(dayIndex < MAX_DAYS_IN_GRID) {
+                dayLayouts[dayIndex] = layout;
             }
 
+            // apply the enabled state, adapter changes and categories
+            bindDay(inflater, layout, dayTextView, currentDay, DebugOverlay.BIND_INFLATED);
+
             // set tag to the timeInMillis for the onClickListener and to be able to retrieve the TextView later on
             layout.setTag(timeInMillis);
             dayTextView.setTag(timeInMillis);
             dayTextView.setOnClickListener(this);
 
-            // add layout to view
-            weekLayout.addView(layout);
-
             if(dayOfWeek == lastDayOfWeek) {
                 // this is the last day in the week/row, add a new row
                 addView(weekLayout);
 
                 weekLayout = (ViewGroup) inflater.inflate(R.layout.lib_calendar_week, this, false);
+                mInflatedViewCount++;
             }
 
             // add 1 day
             currentDay.add(Calendar.DAY_OF_WEEK, 1);
+            dayIndex++;
         }
 
         // Make sure the weekLayout is added to the layout
@@ -217,6 +252,13 @@ public class CalendarView extends AbstractCalendarView implements View.OnClickLi
             addView(weekLayout);
         }
 
+        // Draw the multi-day spans on top of the weeks
+        updateSpans();
+
+        if(mShowToday) {
+            setTodayMarker(TodayTracker.getInstance(context).getToday(), true);
+        }
+
         // Update the day widths
         updateDayWidth();
 
@@ -224,74 +266,782 @@ public class CalendarView extends AbstractCalendarView implements View.OnClickLi
         mIsViewInitialized = true;
     }
 
+    /**
+     * Apply the state of a single day to its views
+     *
+     * @param inflater    Inflater used to create the category views
+     * @param layout      The layout of this day
+     * @param dayTextView The TextView of this day
+     * @param day         Calendar set to this day
+     * @param bindKind    How the day is bound, shown by the debug overlay
+     */
+    private void bindDay(final LayoutInflater inflater, final ViewGroup layout,
+                         final TextView dayTextView, final Calendar day, final int bindKind) {
+        // a skeleton doesn't call the adapter, so it has no decorations or categories either
+        final DayAdapter adapter = mIsSkeleton ? null : mDayAdapter;
+        final Calendar firstValidDay = mFirstValidDay;
+        final Calendar lastValidDay = mLastValidDay;
+        final long timeInMillis = day.getTimeInMillis();
+        final ViewGroup categories = (ViewGroup) layout.findViewById(R.id.lib_calendar_day_categories);
+        final int epochDay = DayUtils.toEpochDay(day);
+        final int dayIndex = epochDay - mFirstDayInGrid;
+        final boolean isInGrid = dayIndex >= 0 && dayIndex < MAX_DAYS_IN_GRID;
+        final WeekLayout weekLayout = (WeekLayout) layout.getParent();
+        final int column = weekLayout.indexOfChild(layout);
+
+        mAdapterNanos = 0;
+
+        // forget the previous decoration, it's applied again below if the day is enabled
+        if(isInGrid) {
+            mDecorations[dayIndex] = null;
+        }
+        weekLayout.setBadge(column, null);
+
+        // highlight the day if it's selected
+        final CalendarSelection selection = mSelection;
+        dayTextView.setSelected(selection != null &&
+                selection.isSelected(day.get(Calendar.YEAR), day.get(Calendar.MONTH), day.get(Calendar.DAY_OF_MONTH)));
+
+        /* We need to disable the view when:
+         *  # This day is in another month              (We fill the rows at the begin/end of the month)
+         *  # The availability rules say it should be disabled
+         *  # The adapter says it should be disabled
+         *  # This day is before the first valid day
+         *  # This day is after the last valid day
+         */
+        final boolean isInMonth = day.get(Calendar.MONTH) == mCurrentMonth;
+        final int dayOfMonth = day.get(Calendar.DAY_OF_MONTH);
+        // the answers of the adapter for this month, which are kept when the Calendar is rebuilt
+        final MonthModelCache.MonthModel model = isInMonth && adapter != null ?
+                getMonthModelCache().get(adapter, DayUtils.getMonthKey(day)) : null;
+        if(!isInMonth ||
+                (mAvailabilityRules != null && (mEnabledMask & (1 << (dayOfMonth - 1))) == 0) ||
+                (adapter != null && !isDayEnabled(adapter, model, dayOfMonth, timeInMillis)) ||
+                (firstValidDay != null && day.before(firstValidDay)) ||
+                (lastValidDay != null && day.after(lastValidDay))) {
+
+            // change the appearance if it's disabled
+            layout.setBackgroundColor(mDayDisabledBackgroundColor);
+            dayTextView.setTextColor(mDayDisabledTextColor);
+            // disable the views
+            dayTextView.setEnabled(false);
+            layout.setEnabled(false);
+        } else {
+            // in the heatmap style, the load of the day decides the background instead of the categories
+            final boolean showLoad = mDayStyle == DayStyleFactory.DAY_STYLE_HEATMAP && mDayLoadIndex != null;
+            if(showLoad) {
+                final int load = mDayLoadIndex.getLoadForEpochDay(epochDay);
+                layout.setBackgroundColor(
+                        DayStyleFactory.getHeatmapColor(mHeatmapLowColor, mHeatmapHighColor, load, mMaxLoad));
+            }
+
+            if(adapter instanceof DecorationDayAdapter) {
+                // the adapter describes the day, instead of changing the TextView itself
+                final long start = mDebugOverlay != null ? System.nanoTime() : 0;
+                final DayDecoration decoration =
+                        getDecorationCache().get((DecorationDayAdapter) adapter, epochDay, timeInMillis);
+                if(mDebugOverlay != null) {
+                    mAdapterNanos += System.nanoTime() - start;
+                }
+                applyDecoration(weekLayout, column, layout, dayTextView, decoration);
+                if(isInGrid) {
+                    mDecorations[dayIndex] = decoration;
+                }
+            } else if(adapter != null) {
+                // allow the adapter to update the TextView
+                // e.g. change font size or color based on the date
+                updateTextView(adapter, dayTextView, timeInMillis);
+            }
+            if(adapter != null && !showLoad) {
+
+                // create a new view for each category
+                final CategoryPalette palette = mCategoryPalette;
+                if(palette != null && adapter instanceof CategoryMaskAdapter) {
+                    // the categories are indices in the palette, bits beyond the palette are ignored
+                    int mask = palette.clearUnknownCategories(
+                            getCategoryMask((CategoryMaskAdapter) adapter, model, dayOfMonth, timeInMillis));
+                    while(mask != 0) {
+                        addCategoryView(inflater, categories, palette.getColor(Integer.numberOfTrailingZeros(mask)));
+
+                        // clear the lowest bit, and move on to the next category
+                        mask &= mask - 1;
+                    }
+                } else {
+                    final int[] colors = getCategoryColors(adapter, model, dayOfMonth, timeInMillis);
+                    if(colors != null) {
+                        for(final int color : colors) {
+                            addCategoryView(inflater, categories, color);
+                        }
+                    }
+                }
+            }
+        }
+
+        if(mDebugOverlay != null && isInGrid) {
+            recordDebugBind(dayIndex, bindKind, mAdapterNanos);
+        }
+    }
+
+    private void recordDebugBind(final int dayIndex, final int bindKind, final long adapterNanos) {
+        if(mDebugBindKinds == null) {
+            mDebugBindKinds = new int[MAX_DAYS_IN_GRID];
+            mDebugAdapterNanos = new long[MAX_DAYS_IN_GRID];
+        }
+        mDebugBindKinds[dayIndex] = bindKind;
+        mDebugAdapterNanos[dayIndex] = adapterNanos;
+    }
+
+    /**
+     * Ask the month model, and only ask the adapter if the model doesn't know the answer yet
+     */
+    private boolean isDayEnabled(final DayAdapter adapter, final MonthModelCache.MonthModel model,
+                                 final int dayOfMonth, final long dayInMillis) {
+        final boolean hit = model.hasEnabled(dayOfMonth);
+        onModelLookup(hit);
+        if(hit) {
+            return model.isEnabled(dayOfMonth);
+        }
+        final boolean isEnabled = isDayEnabled(adapter, dayInMillis);
+        model.setEnabled(dayOfMonth, isEnabled);
+        return isEnabled;
+    }
+
+    private int getCategoryMask(final CategoryMaskAdapter adapter, final MonthModelCache.MonthModel model,
+                                final int dayOfMonth, final long dayInMillis) {
+        final boolean hit = model.hasCategories(dayOfMonth);
+        onModelLookup(hit);
+        if(hit) {
+            return model.getCategoryMask(dayOfMonth);
+        }
+        final int mask = getCategoryMask(adapter, dayInMillis);
+        model.setCategoryMask(dayOfMonth, mask);
+        return mask;
+    }
+
+    private int[] getCategoryColors(final DayAdapter adapter, final MonthModelCache.MonthModel model,
+                                    final int dayOfMonth, final long dayInMillis) {
+        final boolean hit = model.hasCategories(dayOfMonth);
+        onModelLookup(hit);
+        if(hit) {
+            return model.getCategoryColors(dayOfMonth);
+        }
+        final int[] colors = getCategoryColors(adapter, dayInMillis);
+        model.setCategoryColors(dayOfMonth, colors);
+        return colors;
+    }
+
+    private void onModelLookup(final boolean hit) {
+        if(mMetricsListener != null) {
+            mMetricsListener.onCacheLookup(CalendarMetricsListener.CACHE_MONTH_MODELS, hit);
+        }
+    }
+
+    /**
+     * The calls to the DayAdapter, which are timed when a metrics listener or the debug overlay is set
+     */
+    private boolean isDayEnabled(final DayAdapter adapter, final long dayInMillis) {
+        if(!isTimingAdapter()) {
+            return adapter.isDayEnabled(dayInMillis);
+        }
+        final long start = System.nanoTime();
+        final boolean isEnabled = adapter.isDayEnabled(dayInMillis);
+        onAdapterCallback(CalendarMetricsListener.CALLBACK_IS_DAY_ENABLED, System.nanoTime() - start);
+        return isEnabled;
+    }
+
+    private void updateTextView(final DayAdapter adapter, final TextView dayTextView, final long dayInMillis) {
+        if(!isTimingAdapter()) {
+            adapter.updateTextView(dayTextView, dayInMillis);
+            return;
+        }
+        final long start = System.nanoTime();
+        adapter.updateTextView(dayTextView, dayInMillis);
+        onAdapterCallback(CalendarMetricsListener.CALLBACK_UPDATE_TEXT_VIEW, System.nanoTime() - start);
+    }
+
+    private int getCategoryMask(final CategoryMaskAdapter adapter, final long dayInMillis) {
+        if(!isTimingAdapter()) {
+            return adapter.getCategoryMask(dayInMillis);
+        }
+        final long start = System.nanoTime();
+        final int mask = adapter.getCategoryMask(dayInMillis);
+        onAdapterCallback(CalendarMetricsListener.CALLBACK_GET_CATEGORY_MASK, System.nanoTime() - start);
+        return mask;
+    }
+
+    private int[] getCategoryColors(final DayAdapter adapter, final long dayInMillis) {
+        if(!isTimingAdapter()) {
+            return adapter.getCategoryColors(dayInMillis);
+        }
+        final long start = System.nanoTime();
+        final int[] colors = adapter.getCategoryColors(dayInMillis);
+        onAdapterCallback(CalendarMetricsListener.CALLBACK_GET_CATEGORY_COLORS, System.nanoTime() - start);
+        return colors;
+    }
+
+    private boolean isTimingAdapter() {
+        return mMetricsListener != null || mDebugOverlay != null;
+    }
+
+    private void onAdapterCallback(final int callback, final long duration) {
+        mAdapterNanos += duration;
+        if(mMetricsListener != null) {
+            mMetricsListener.onAdapterCallback(callback, duration);
+        }
+    }
+
+    private void applyDecoration(final WeekLayout weekLayout, final int column, final ViewGroup layout,
+                                 final TextView dayTextView, final DayDecoration decoration) {
+        if(decoration.getTextColor() != DayDecoration.DEFAULT_COLOR) {
+            dayTextView.setTextColor(decoration.getTextColor());
+        }
+        if(decoration.getBackgroundColor() != DayDecoration.DEFAULT_COLOR) {
+            layout.setBackgroundColor(decoration.getBackgroundColor());
+        }
+        dayTextView.setTypeface(mTypeface, decoration.getTypefaceStyle());
+
+        // the badges of a week are drawn at once by the week, instead of adding a view per day
+        weekLayout.setBadge(column, decoration.getBadge());
+    }
+
+    private void updateEnabledMask() {
+        final AvailabilityRules rules = mAvailabilityRules;
+        if(rules != null) {
+            mEnabledMask = rules.getEnabledMask(mFirstValidDay.get(Calendar.YEAR), mCurrentMonth);
+        }
+    }
+
+    /**
+     * @return Whether the maximum load changed, which changes the intensity of every day
+     */
+    private boolean updateHeatmap() {
+        final DayLoadIndex index = mDayLoadIndex;
+        if(index == null) {
+            return false;
+        }
+        final int maxLoad = index.getMaxLoad();
+        final boolean isChanged = maxLoad != mMaxLoad;
+        mMaxLoad = maxLoad;
+        mHeatmapLowColor = getHeatmapLowColor();
+        mHeatmapHighColor = getHeatmapHighColor();
+        return isChanged;
+    }
+
+    private void addCategoryView(final LayoutInflater inflater, final ViewGroup categories, final int color) {
+        // inflate a new category
+        final View category = inflater.inflate(R.layout.lib_calendar_category, categories, false);
+        mInflatedViewCount++;
+
+        // set the background color to the color provided by the adapter
+        category.setBackgroundColor(color);
+
+        // add the view to the ViewGroup. Note that we can't do this while inflating,
+        // because that will cause the view to match the size of his parent
+        categories.addView(category);
+    }
+
+    /**
+     * Bind the given days again, without rebuilding the other days.
+     * Days which are not visible in this month are ignored.
+     * Note that changes the DayAdapter made to the TextView, other than the text color, are not reverted.
+     *
+     * @param daysInMillis The days which changed
+     */
     @Override
-    public TextView getTextViewForDate(final long dayInMillis) {
-        // Loop through all children
+    public void notifyDaysChanged(final long... daysInMillis) {
+        if(mMonthModelCache != null) {
+            // the adapter's answers for these days might have changed, also for months which aren't built
+            final Calendar calendar = mLookupCalendar;
+            for(final long dayInMillis : daysInMillis) {
+                calendar.setTimeInMillis(dayInMillis);
+                mMonthModelCache.remove(DayUtils.getMonthKey(calendar), calendar.get(Calendar.DAY_OF_MONTH));
+            }
+        }
+        rebindDays(daysInMillis);
+    }
+
+    /**
+     * Bind the given days again with the current answers of the DayAdapter
+     */
+    void rebindDays(final long... daysInMillis) {
+        if(!mIsViewInitialized) {
+            // The days will be bound when the view is created
+            return;
+        }
+        if(updateHeatmap()) {
+            // the other days are scaled to the old maximum, so bind the whole grid
+            rebindAllDays();
+            return;
+        }
+        final LayoutInflater inflater = (LayoutInflater) getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        final int dayBackgroundResource = DayStyleFactory.getDayBackgroundResourceForStyle(mDayStyle);
+        final int dayTextColor = CalendarResources.getInstance(getContext()).getDayTextColor();
+        final Calendar day = Calendar.getInstance();
+        updateEnabledMask();
+
+        for(final long dayInMillis : daysInMillis) {
+            final ViewGroup layout = getLayoutForDate(dayInMillis);
+            if(layout == null) {
+                // This day isn't part of this month
+                continue;
+            }
+            final TextView dayTextView = (TextView) layout.findViewById(R.id.lib_calendar_day_text);
+            final ViewGroup categories = (ViewGroup) layout.findViewById(R.id.lib_calendar_day_categories);
+
+            // reset the day to the default, enabled state
+            layout.setBackgroundResource(dayBackgroundResource);
+            layout.setEnabled(true);
+            dayTextView.setTextColor(dayTextColor);
+            dayTextView.setEnabled(true);
+            if(mDayAdapter instanceof DecorationDayAdapter) {
+                dayTextView.setTypeface(mTypeface);
+            }
+            categories.removeAllViews();
+
+            day.setTimeInMillis(dayInMillis);
+            bindDay(inflater, layout, dayTextView, day, DebugOverlay.BIND_REBOUND);
+        }
+
+        updateSpans();
+    }
+
+    @Override
+    public void notifyAllDaysChanged() {
+        if(mMonthModelCache != null) {
+            // all answers of the adapter might have changed
+            mMonthModelCache.clear();
+        }
+        rebindAllDays();
+    }
+
+    /**
+     * Bind all days again, with the answers of the DayAdapter which are still cached
+     */
+    void rebindAllDays() {
+        if(!mIsViewInitialized) {
+            return;
+        }
+        final ViewGroup[] dayLayouts = mDayLayouts;
+        final long[] days = new long[MAX_DAYS_IN_GRID];
+        int dayCount = 0;
+        for(final ViewGroup layout : dayLayouts) {
+            if(layout != null) {
+                // the tag of a day contains its time in milliseconds
+                days[dayCount++] = (Long) layout.getTag();
+            }
+        }
+        final long[] visibleDays = new long[dayCount];
+        System.arraycopy(days, 0, visibleDays, 0, dayCount);
+        rebindDays(visibleDays);
+    }
+
+    @Override
+    public void notifyDecorationsChanged(final long... daysInMillis) {
+        if(mDecorationCache != null) {
+            final Calendar calendar = mLookupCalendar;
+            for(final long dayInMillis : daysInMillis) {
+                calendar.setTimeInMillis(dayInMillis);
+                mDecorationCache.remove(DayUtils.toEpochDay(calendar));
+            }
+        }
+        rebindDecorations(daysInMillis);
+    }
+
+    /**
+     * Bind the days whose decoration in the cache differs from the decoration they show.
+     * The days must already be removed from the DecorationCache.
+     */
+    void rebindDecorations(final long... daysInMillis) {
+        final DayAdapter adapter = mDayAdapter;
+        if(!mIsViewInitialized || !(adapter instanceof DecorationDayAdapter)) {
+            return;
+        }
+        final DecorationDayAdapter decorationAdapter = (DecorationDayAdapter) adapter;
+        final DecorationCache cache = getDecorationCache();
+        final Calendar calendar = mLookupCalendar;
+
+        final long[] changedDays = new long[daysInMillis.length];
+        int changedCount = 0;
+        for(final long dayInMillis : daysInMillis) {
+            calendar.setTimeInMillis(dayInMillis);
+            final int epochDay = DayUtils.toEpochDay(calendar);
+            final int dayIndex = epochDay - mFirstDayInGrid;
+            if(dayIndex < 0 || dayIndex >= MAX_DAYS_IN_GRID || mDayLayouts[dayIndex] == null) {
+                // This day isn't part of this month
+                continue;
+            }
+            final DayDecoration applied = mDecorations[dayIndex];
+            if(applied == null) {
+                // The day is disabled, so it isn't decorated
+                continue;
+            }
+            if(!applied.equals(cache.get(decorationAdapter, epochDay, dayInMillis))) {
+                changedDays[changedCount++] = dayInMillis;
+            } else if(mDebugOverlay != null && mDebugBindKinds != null) {
+                // the views are kept as they are
+                mDebugBindKinds[dayIndex] = DebugOverlay.BIND_REUSED;
+            }
+        }
+
+        if(changedCount > 0) {
+            final long[] days = new long[changedCount];
+            System.arraycopy(changedDays, 0, days, 0, changedCount);
+            notifyDaysChanged(days);
+        }
+    }
+
+    /**
+     * Update the multi-day spans of all weeks, for example after SpanDayAdapter.getSpanVersion() changed.
+     * Weeks whose spans didn't change are not redrawn.
+     */
+    public void notifySpansChanged() {
+        if(mIsViewInitialized) {
+            updateSpans();
+        }
+    }
+
+    private void updateSpans() {
+        final DayAdapter adapter = mIsSkeleton ? null : mDayAdapter;
+        final SpanDayAdapter spanAdapter = adapter instanceof SpanDayAdapter ? (SpanDayAdapter) adapter : null;
+        final WeekSpanCache cache = spanAdapter != null ? getWeekSpanCache() : null;
+        final int daysInRow = getDaysInRow();
+        final Calendar calendar = Calendar.getInstance();
+
         final int childCount = getChildCount();
         for(int i = 0; i < childCount; i++) {
-            final View weekLayout = getChildAt(i);
-            if(weekLayout != null) {
-                // Let the weekLayout find a view with a correct tag
-                final View dayLayout = weekLayout.findViewWithTag(dayInMillis);
-                if(dayLayout != null) {
-                    // Find the TextView, and return it
-                    return (TextView) dayLayout.findViewById(R.id.lib_calendar_day_text);
-                }
+            final View child = getChildAt(i);
+            if(!(child instanceof WeekLayout)) {
+                // e.g. the headers
+                continue;
+            }
+            final WeekLayout weekLayout = (WeekLayout) child;
+            final View firstDay = weekLayout.getChildAt(0);
+            if(cache == null || firstDay == null) {
+                weekLayout.setSpans(null);
+                continue;
             }
+
+            // the tag of a day contains its time in milliseconds
+            calendar.setTimeInMillis((Long) firstDay.getTag());
+            weekLayout.setSpans(cache.get(spanAdapter, DayUtils.toEpochDay(calendar), daysInRow));
+        }
+    }
+
+    /**
+     * Show only the day numbers, without calling the DayAdapter, until upgradeSkeleton() is called.
+     * Used for pages which are created while flinging, and are likely to be on screen very briefly.
+     * Clicks on the days of a skeleton are ignored, because days the DayAdapter disables are shown enabled.
+     */
+    void setSkeleton(final boolean skeleton) {
+        mIsSkeleton = skeleton;
+    }
+
+    boolean isSkeleton() {
+        return mIsSkeleton;
+    }
+
+    /**
+     * Bind all days with the DayAdapter in the next frame
+     */
+    void requestUpgrade() {
+        removeCallbacks(mUpgradeRunnable);
+        ViewCompat.postOnAnimation(this, mUpgradeRunnable);
+    }
+
+    /**
+     * Forget a requested upgrade, e.g. because the page was removed from the ViewPager
+     */
+    void cancelUpgrade() {
+        removeCallbacks(mUpgradeRunnable);
+    }
+
+    private void upgradeSkeleton() {
+        if(!mIsSkeleton) {
+            return;
+        }
+        mIsSkeleton = false;
+        // if we're not built yet, initView() binds the days with the adapter.
+        // a skeleton didn't ask the adapter anything, so the cached answers are still valid
+        rebindAllDays();
+    }
+
+    /**
+     * Retrieve the layout of a single day
+     *
+     * @param dayInMillis The time in milliseconds
+     * @return The layout representing the date, or null
+     */
+    private ViewGroup getLayoutForDate(final long dayInMillis) {
+        if(!mIsViewInitialized) {
+            return null;
+        }
+        final Calendar calendar = mLookupCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        final int dayIndex = DayUtils.toEpochDay(calendar) - mFirstDayInGrid;
+        if(dayIndex < 0 || dayIndex >= MAX_DAYS_IN_GRID) {
+            return null;
+        }
+        return mDayLayouts[dayIndex];
+    }
+
+    @Override
+    public TextView getTextViewForDate(final long dayInMillis) {
+        final ViewGroup dayLayout = getLayoutForDate(dayInMillis);
+        if(dayLayout != null) {
+            // Find the TextView, and return it
+            return (TextView) dayLayout.findViewById(R.id.lib_calendar_day_text);
         }
         // No suitable TextView found, return null
         return null;
     }
 
+    @Override
+    public void setSelection(final CalendarSelection selection) {
+        if(mIsAttached && mSelection != null) {
+            mSelection.removeOnSelectionChangedListener(this);
+        }
+        super.setSelection(selection);
+        if(mIsAttached && selection != null) {
+            selection.addOnSelectionChangedListener(this);
+        }
+    }
+
+    @Override
+    public void setShowToday(final boolean showToday) {
+        if(showToday == mShowToday) {
+            return;
+        }
+        super.setShowToday(showToday);
+
+        final TodayTracker tracker = TodayTracker.getInstance(getContext());
+        if(mIsAttached) {
+            if(showToday) {
+                tracker.addListener(this);
+            } else {
+                tracker.removeListener(this);
+            }
+        }
+        if(mIsViewInitialized) {
+            setTodayMarker(tracker.getToday(), showToday);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mIsAttached = true;
+        if(mSelection != null) {
+            mSelection.addOnSelectionChangedListener(this);
+        }
+        if(mShowToday) {
+            TodayTracker.getInstance(getContext()).addListener(this);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mIsAttached = false;
+        if(mSelection != null) {
+            mSelection.removeOnSelectionChangedListener(this);
+        }
+        if(mShowToday) {
+            TodayTracker.getInstance(getContext()).removeListener(this);
+        }
+    }
+
     /**
-     * Create the headers for each (visible) day of the week
-     * Starts at mFirstDayOfWeek, ends at mLastDayOfWeek
+     * Called by the TodayTracker. Only the previous and the new day are redrawn
      */
-    private void createHeaders() {
-        // initialize variables
-        final Context context = getContext();
-        final LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        final Resources resources = context.getResources();
-        final DayAdapter adapter = mDayAdapter;
-        final int firstDayOfWeek = mFirstDayOfWeek;
-        final int lastDayOfWeek = mLastDayOfWeek;
-        final Typeface typeface = mTypeface;
+    @Override
+    public void onTodayChanged(final long previousTodayInMillis, final long todayInMillis) {
+        if(mIsViewInitialized) {
+            setTodayMarker(previousTodayInMillis, false);
+            setTodayMarker(todayInMillis, true);
+        }
+    }
+
+    /**
+     * Show or hide the today marker on a single day, if it's a day of this month
+     */
+    private void setTodayMarker(final long dayInMillis, final boolean visible) {
+        final ViewGroup layout = getLayoutForDate(dayInMillis);
+        // getLayoutForDate() left the lookup calendar at this day
+        if(layout == null || mLookupCalendar.get(Calendar.MONTH) != mCurrentMonth) {
+            // the previous/next month shows this day
+            return;
+        }
+        final WeekLayout weekLayout = (WeekLayout) layout.getParent();
+        if(visible) {
+            weekLayout.setTodayColumn(weekLayout.indexOfChild(layout));
+        } else if(weekLayout.getTodayColumn() == weekLayout.indexOfChild(layout)) {
+            weekLayout.setTodayColumn(WeekLayout.NO_COLUMN);
+        }
+    }
 
-        // inflate the ViewGroup where we'll put all the headers
-        final ViewGroup headers = (ViewGroup)
-                inflater.inflate(R.layout.lib_calendar_headers, this, false);
-        int dayOfWeek = firstDayOfWeek;
+    /**
+     * Called by the selection. Only updates the days which were selected or deselected
+     */
+    @Override
+    public void onSelectionChanged(final CalendarSelection selection, final long[] changedDaysInMillis) {
+        for(final long dayInMillis : changedDaysInMillis) {
+            final TextView dayTextView = getTextViewForDate(dayInMillis);
+            if(dayTextView != null) {
+                dayTextView.setSelected(selection.isSelected(dayInMillis));
+            }
+        }
+    }
 
-        do {
-            // initialize variables for this day
-            final TextView header = (TextView)
-                    inflater.inflate(R.layout.lib_calendar_single_header, headers, false);
-            final String nameOfDay = getNameForDay(dayOfWeek, resources);
+    /**
+     * Intercept the touch events when the user drags an end of the selected range,
+     * so the range can be extended instead of clicking on a day
+     */
+    @Override
+    public boolean onInterceptTouchEvent(final MotionEvent ev) {
+        final CalendarSelection selection = mSelection;
+        if(selection == null || selection.getMode() != CalendarSelection.SELECTION_MODE_RANGE) {
+            return false;
+        }
 
-            // if set, use the custom Typeface
-            if(typeface != null) {
-                header.setTypeface(typeface);
+        switch(ev.getAction() & MotionEventCompat.ACTION_MASK) {
+            case MotionEvent.ACTION_DOWN: {
+                final long day = getDayAt(ev.getX(), ev.getY());
+                mIsDragging = false;
+                if(day != NO_DAY && selection.isRangeEndpoint(day)) {
+                    // The user might drag this end of the range, don't let the ViewPager scroll
+                    mDragStartDay = day;
+                    mDragAnchor = selection.getOppositeRangeEndpoint(day);
+                    final ViewParent parent = getParent();
+                    if(parent != null) {
+                        parent.requestDisallowInterceptTouchEvent(true);
+                    }
+                } else {
+                    mDragStartDay = NO_DAY;
+                    mDragAnchor = NO_DAY;
+                }
+                break;
             }
 
-            // allow adapter to update the TextView
-            // e.g. change font, appearance, add click listener on all/some days
-            if(adapter != null) {
-                adapter.updateHeaderTextView(header, dayOfWeek);
+            case MotionEvent.ACTION_MOVE: {
+                if(mDragAnchor != NO_DAY) {
+                    final long day = getDayAt(ev.getX(), ev.getY());
+                    if(day != NO_DAY && day != mDragStartDay) {
+                        // The user moved to another day, start dragging
+                        mIsDragging = true;
+                        selection.selectRange(mDragAnchor, day);
+                        return true;
+                    }
+                }
+                break;
+            }
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mDragAnchor = NO_DAY;
+                mDragStartDay = NO_DAY;
+                break;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onTouchEvent(final MotionEvent ev) {
+        if(!mIsDragging) {
+            return super.onTouchEvent(ev);
+        }
+
+        switch(ev.getAction() & MotionEventCompat.ACTION_MASK) {
+            case MotionEvent.ACTION_MOVE: {
+                final long day = getDayAt(ev.getX(), ev.getY());
+                if(day != NO_DAY) {
+                    mSelection.selectRange(mDragAnchor, day);
+                }
+                break;
+            }
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mIsDragging = false;
+                mDragAnchor = NO_DAY;
+                mDragStartDay = NO_DAY;
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Find the day at a position in this view
+     *
+     * @return The day in milliseconds, or NO_DAY
+     */
+    private long getDayAt(final float x, final float y) {
+        final int childCount = getChildCount();
+        for(int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            if(!(child instanceof WeekLayout) || y < child.getTop() || y >= child.getBottom()) {
+                continue;
             }
 
-            // set the text
-            header.setText(nameOfDay);
+            // Find the day in this week
+            final WeekLayout weekLayout = (WeekLayout) child;
+            final float weekX = x - weekLayout.getLeft();
+            final int dayCount = weekLayout.getChildCount();
+            for(int index = 0; index < dayCount; index++) {
+                final View dayView = weekLayout.getChildAt(index);
+                if(dayView != null && dayView.isEnabled() &&
+                        weekX >= dayView.getLeft() && weekX < dayView.getRight()) {
+                    return (Long) dayView.getTag();
+                }
+            }
+        }
+        return NO_DAY;
+    }
 
-            // add TextView to ViewGroup
-            headers.addView(header);
+    @Override
+    protected void applyTypeface(final Typeface typeface) {
+        final int childCount = getChildCount();
+        for(int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            if(child instanceof WeekLayout) {
+                final WeekLayout weekLayout = (WeekLayout) child;
+                final int dayCount = weekLayout.getChildCount();
+                for(int index = 0; index < dayCount; index++) {
+                    final TextView dayTextView =
+                            (TextView) weekLayout.getChildAt(index).findViewById(R.id.lib_calendar_day_text);
+                    // keep the style of a DayDecoration
+                    final Typeface current = dayTextView.getTypeface();
+                    dayTextView.setTypeface(typeface, current != null ? current.getStyle() : Typeface.NORMAL);
+                }
+            } else if(child instanceof ViewGroup) {
+                // the headers
+                final ViewGroup headers = (ViewGroup) child;
+                final int headerCount = headers.getChildCount();
+                for(int index = 0; index < headerCount; index++) {
+                    ((TextView) headers.getChildAt(index)).setTypeface(typeface);
+                }
+            }
+        }
+    }
 
-            // increment dayOfWeek, make sure it's a valid day
-            dayOfWeek = dayOfWeek % 7;
-            dayOfWeek++;
-        } while(dayOfWeek != lastDayOfWeek + 1);
+    @Override
+    protected void dispatchDraw(final Canvas canvas) {
+        super.dispatchDraw(canvas);
 
-        // add the headers View
-        addView(headers);
+        final DebugOverlay debugOverlay = mDebugOverlay;
+        final int[] bindKinds = mDebugBindKinds;
+        if(debugOverlay == null || bindKinds == null) {
+            return;
+        }
+        final ViewGroup[] dayLayouts = mDayLayouts;
+        for(int dayIndex = 0; dayIndex < MAX_DAYS_IN_GRID; dayIndex++) {
+            final ViewGroup layout = dayLayouts[dayIndex];
+            if(layout == null || bindKinds[dayIndex] == DebugOverlay.BIND_NONE) {
+                continue;
+            }
+            final View weekLayout = (View) layout.getParent();
+            debugOverlay.drawCell(canvas, weekLayout.getLeft() + layout.getLeft(), weekLayout.getTop() + layout.getTop(),
+                    mDebugAdapterNanos[dayIndex], bindKinds[dayIndex]);
+        }
     }
 
     private int getAvailableDayWidth() {
@@ -316,7 +1066,7 @@ public class CalendarView extends AbstractCalendarView implements View.OnClickLi
                             final ViewGroup.LayoutParams params =
                                     dayView.getLayoutParams();
 
-                            if(i == 0) {
+                            if(!(child instanceof WeekLayout)) {
                                 // This is the dayOfWeek TextView(header), so we use wrap_content on the height
                                 params.width = dayWidth;
                             } else {
@@ -0,0 +1,20 @@
+package com.vdesmet.lib.calendar;
+
+/**
+ * A DayAdapter which describes the categories of a day as indices in a CategoryPalette.
+ * When a palette is set on the CalendarView, getCategoryMask() is used instead of getCategoryColors().
+ *
+ * @see com.vdesmet.lib.calendar.AbstractCalendarView#setCategoryPalette(CategoryPalette)
+ * @see com.vdesmet.lib.calendar.CategoryMaskStore
+ */
+public interface CategoryMaskAdapter extends DayAdapter {
+
+    /**
+     * Retrieves the categories which will be shown below the TextView
+     * Bit N is set when the day belongs to category N of the palette.
+     *
+     * @param dayInMillis The date to retrieve the categories for
+     * @return The category mask, or 0 for no categories
+     */
+    public abstract int getCategoryMask(long dayInMillis);
+}
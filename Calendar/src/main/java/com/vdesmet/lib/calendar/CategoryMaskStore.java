@@ -0,0 +1,109 @@
+package com.vdesmet.lib.calendar;
+
+import android.util.SparseArray;
+
+import java.util.Calendar;
+
+/**
+ * Compact storage of the categories of days, which can be used to back a CategoryMaskAdapter.
+ * Every month is stored as an int[31] of category masks, so a month costs the same regardless of the
+ * number of categories per day. A month without any categories is removed, so the store only uses memory
+ * for the stored data. It holds source data rather than a cache, so it's never trimmed by CalendarCaches.
+ */
+public class CategoryMaskStore {
+    private static final int MAX_DAYS_IN_MONTH = 31;
+
+    private final SparseArray<int[]> mMonths;
+    private final Calendar mCalendar;
+
+    public CategoryMaskStore() {
+        mMonths = new SparseArray<int[]>();
+        mCalendar = Calendar.getInstance();
+    }
+
+    /**
+     * Retrieve the category mask of a day
+     *
+     * @param dayInMillis The date
+     * @return The category mask, or 0 if no categories were stored
+     */
+    public int getCategoryMask(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        final int[] month = mMonths.get(DayUtils.getMonthKey(calendar));
+        if(month == null) {
+            return 0;
+        }
+        return month[calendar.get(Calendar.DAY_OF_MONTH) - 1];
+    }
+
+    /**
+     * Replace the category mask of a day
+     *
+     * @param dayInMillis The date
+     * @param mask        The new category mask
+     */
+    public void setCategoryMask(final long dayInMillis, final int mask) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        final int monthKey = DayUtils.getMonthKey(calendar);
+        int[] month = mMonths.get(monthKey);
+        if(month == null) {
+            if(mask == 0) {
+                // nothing to store
+                return;
+            }
+            month = new int[MAX_DAYS_IN_MONTH];
+            mMonths.put(monthKey, month);
+        }
+        month[calendar.get(Calendar.DAY_OF_MONTH) - 1] = mask;
+        if(mask == 0 && isEmpty(month)) {
+            mMonths.remove(monthKey);
+        }
+    }
+
+    /**
+     * Add a category to a day
+     *
+     * @param dayInMillis The date
+     * @param index       The index of the category in the palette
+     */
+    public void addCategory(final long dayInMillis, final int index) {
+        setCategoryMask(dayInMillis, getCategoryMask(dayInMillis) | (1 << index));
+    }
+
+    /**
+     * Remove a category from a day
+     *
+     * @param dayInMillis The date
+     * @param index       The index of the category in the palette
+     */
+    public void removeCategory(final long dayInMillis, final int index) {
+        setCategoryMask(dayInMillis, getCategoryMask(dayInMillis) & ~(1 << index));
+    }
+
+    /**
+     * Remove all stored categories
+     */
+    public void clear() {
+        mMonths.clear();
+    }
+
+    private static boolean isEmpty(final int[] month) {
+        for(final int mask : month) {
+            if(mask != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of bytes used by the stored masks, excluding the SparseArray itself
+     *
+     * @return The size in bytes
+     */
+    public int getSizeInBytes() {
+        return mMonths.size() * MAX_DAYS_IN_MONTH * 4;
+    }
+}
@@ -0,0 +1,85 @@
+package com.vdesmet.lib.calendar;
+
+/**
+ * A fixed list of category colors. Days refer to these colors by their index,
+ * so a day's categories can be stored as a single int bitmask instead of an array of colors.
+ *
+ * @see com.vdesmet.lib.calendar.CategoryMaskAdapter
+ */
+public final class CategoryPalette {
+    /**
+     * The maximum number of colors in a palette, one for every bit in an int
+     */
+    public static final int MAX_COLORS = 32;
+
+    private final int[] mColors;
+    // the bits of the categories in this palette
+    private final int mKnownMask;
+
+    /**
+     * Create a new palette
+     *
+     * @param colors The colors of the categories, for example 0xFFFF4444. Index 0 is bit 0 of the category mask.
+     */
+    public CategoryPalette(final int... colors) {
+        if(colors == null || colors.length == 0 || colors.length > MAX_COLORS) {
+            throw new IllegalArgumentException("A palette needs between 1 and " + MAX_COLORS + " colors");
+        }
+        mColors = new int[colors.length];
+        System.arraycopy(colors, 0, mColors, 0, colors.length);
+        // 1 << 32 is 1 in Java, so a full palette needs its own mask
+        mKnownMask = colors.length == MAX_COLORS ? -1 : (1 << colors.length) - 1;
+    }
+
+    public int getColor(final int index) {
+        return mColors[index];
+    }
+
+    public int size() {
+        return mColors.length;
+    }
+
+    /**
+     * Get the mask for a single category
+     *
+     * @param index The index of the category in this palette
+     * @return A mask with only the bit of this category set
+     */
+    public int getMask(final int index) {
+        if(index < 0 || index >= mColors.length) {
+            throw new IllegalArgumentException("index must be between 0 and " + (mColors.length - 1));
+        }
+        return 1 << index;
+    }
+
+    /**
+     * Clear the bits of categories which aren't in this palette, e.g. when an adapter uses a larger palette
+     *
+     * @param mask The category mask
+     * @return The mask with only the categories of this palette
+     */
+    public int clearUnknownCategories(final int mask) {
+        return mask & mKnownMask;
+    }
+
+    /**
+     * Convert a category mask to colors. Categories which aren't in this palette are ignored. Prefer iterating the mask where possible, this allocates a new array.
+     *
+     * @param mask The category mask
+     * @return The colors, in palette order, or null if the mask is empty
+     */
+    public int[] getColors(int mask) {
+        mask &= mKnownMask;
+        if(mask == 0) {
+            return null;
+        }
+        final int[] colors = new int[Integer.bitCount(mask)];
+        int position = 0;
+        while(mask != 0) {
+            colors[position++] = mColors[Integer.numberOfTrailingZeros(mask)];
+            // clear the lowest bit
+            mask &= mask - 1;
+        }
+        return colors;
+    }
+}
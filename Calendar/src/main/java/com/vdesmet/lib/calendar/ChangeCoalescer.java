@@ -0,0 +1,127 @@
+package com.vdesmet.lib.calendar;
+
+import android.support.v4.view.ViewCompat;
+import android.util.SparseBooleanArray;
+
+import java.util.Calendar;
+
+/**
+ * Collects the changes of an ObservableDayAdapter until the next frame,
+ * and then applies them to the Calendar at once. A day which changed multiple times is bound once.
+ */
+class ChangeCoalescer implements DayAdapterObserver, Runnable {
+    // Larger ranges are handled as a change of all days
+    private static final int MAX_RANGE_DAYS = 400;
+
+    private final AbstractCalendarView mCalendarView;
+    private final SparseBooleanArray mDirtyDays;
+    private final Calendar mCalendar;
+    private boolean mAllDaysDirty;
+    private boolean mIsScheduled;
+
+    ChangeCoalescer(final AbstractCalendarView calendarView) {
+        mCalendarView = calendarView;
+        mDirtyDays = new SparseBooleanArray();
+        mCalendar = Calendar.getInstance();
+    }
+
+    @Override
+    public void onDaysChanged(final long... daysInMillis) {
+        if(!mAllDaysDirty) {
+            final Calendar calendar = mCalendar;
+            for(final long dayInMillis : daysInMillis) {
+                calendar.setTimeInMillis(dayInMillis);
+                mDirtyDays.put(DayUtils.toEpochDay(calendar), true);
+            }
+        }
+        schedule();
+    }
+
+    @Override
+    public void onDayRangeChanged(final long firstDayInMillis, final long lastDayInMillis) {
+        if(!mAllDaysDirty) {
+            final Calendar calendar = mCalendar;
+            calendar.setTimeInMillis(firstDayInMillis);
+            final int firstDay = DayUtils.toEpochDay(calendar);
+            calendar.setTimeInMillis(lastDayInMillis);
+            final int lastDay = DayUtils.toEpochDay(calendar);
+
+            if(lastDay - firstDay >= MAX_RANGE_DAYS) {
+                markAllDaysDirty();
+            } else {
+                for(int day = firstDay; day <= lastDay; day++) {
+                    mDirtyDays.put(day, true);
+                }
+            }
+        }
+        schedule();
+    }
+
+    @Override
+    public void onDataSetChanged() {
+        markAllDaysDirty();
+        schedule();
+    }
+
+    private void markAllDaysDirty() {
+        mAllDaysDirty = true;
+        mDirtyDays.clear();
+    }
+
+    private void schedule() {
+        if(!mIsScheduled) {
+            mIsScheduled = true;
+            ViewCompat.postOnAnimation(mCalendarView, this);
+        }
+    }
+
+    /**
+     * Drop the pending changes, e.g. when the adapter is replaced
+     */
+    void cancel() {
+        if(mIsScheduled) {
+            mCalendarView.removeCallbacks(this);
+            mIsScheduled = false;
+        }
+        mAllDaysDirty = false;
+        mDirtyDays.clear();
+    }
+
+    /**
+     * Apply all changes of this frame
+     */
+    @Override
+    public void run() {
+        mIsScheduled = false;
+        final AbstractCalendarView calendarView = mCalendarView;
+        final DecorationCache decorationCache = calendarView.mDecorationCache;
+
+        if(mAllDaysDirty) {
+            mAllDaysDirty = false;
+            if(decorationCache != null) {
+                decorationCache.clear();
+            }
+            calendarView.notifyAllDaysChanged();
+            return;
+        }
+
+        final SparseBooleanArray dirtyDays = mDirtyDays;
+        final int dayCount = dirtyDays.size();
+        if(dayCount == 0) {
+            return;
+        }
+        final long[] daysInMillis = new long[dayCount];
+        final Calendar calendar = mCalendar;
+        for(int i = 0; i < dayCount; i++) {
+            final int epochDay = dirtyDays.keyAt(i);
+            if(decorationCache != null) {
+                decorationCache.remove(epochDay);
+            }
+            DayUtils.setToEpochDay(calendar, epochDay);
+            daysInMillis[i] = calendar.getTimeInMillis();
+        }
+        dirtyDays.clear();
+
+        calendarView.notifyDaysChanged(daysInMillis);
+    }
+}
@@ -0,0 +1,441 @@
+package com.vdesmet.lib.calendar;
+
+import android.util.SparseArray;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+
+/**
+ * DayAdapter which merges the results of multiple DayAdapters, for example a personal, a team and a holiday calendar.
+ *
+ * Each source is queried once per month. The results are stored per source, and merged into a single packed
+ * color buffer for that month. Sources can be enabled or disabled without querying them again.
+ * A day is only enabled when all enabled sources agree it's enabled.
+ *
+ * Changes of sources which are ObservableDayAdapters are passed on to the observers of this adapter.
+ *
+ * The cached months count towards the memory budget of CalendarCaches, and may be dropped when it's exceeded.
+ */
+public class CompositeDayAdapter implements ObservableDayAdapter {
+    private static final int MAX_DAYS_IN_MONTH = 31;
+    private static final long[] NO_DAYS = new long[0];
+
+    private final ArrayList<DayAdapter> mSources;
+    private final ArrayList<Boolean> mSourceEnabled;
+    private final SparseArray<MonthData> mMonths;
+    private final Calendar mCalendar;
+    private final DayAdapterObservable mObservable;
+    private final DayAdapterObserver mSourceObserver;
+    // kept here, because CalendarCaches only holds it weakly
+    private final MonthCache mMonthCache;
+    // the most recently requested month, months far away from it are dropped first
+    private int mLastMonthKey;
+    // true when months were dropped to stay within the budget, their changes can't be tracked anymore
+    private boolean mHasDroppedMonths;
+
+    public CompositeDayAdapter(final DayAdapter... sources) {
+        mSources = new ArrayList<DayAdapter>();
+        mSourceEnabled = new ArrayList<Boolean>();
+        mMonths = new SparseArray<MonthData>();
+        mCalendar = Calendar.getInstance();
+        mObservable = new DayAdapterObservable();
+        mSourceObserver = new SourceObserver();
+        mMonthCache = new MonthCache();
+        CalendarCaches.register(mMonthCache);
+
+        for(final DayAdapter source : sources) {
+            addSource(source);
+        }
+    }
+
+    /**
+     * Add a source to the end of the list. Colors of this source will be shown after the colors of earlier sources.
+     * Note that this drops all cached months, so call notifyDataSetChanged() on the CalendarView afterwards
+     *
+     * @param source The DayAdapter to add
+     */
+    public void addSource(final DayAdapter source) {
+        if(source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+        mSources.add(source);
+        mSourceEnabled.add(Boolean.TRUE);
+        if(source instanceof ObservableDayAdapter) {
+            ((ObservableDayAdapter) source).registerObserver(mSourceObserver);
+        }
+        invalidate();
+    }
+
+    @Override
+    public void registerObserver(final DayAdapterObserver observer) {
+        mObservable.registerObserver(observer);
+    }
+
+    @Override
+    public void unregisterObserver(final DayAdapterObserver observer) {
+        mObservable.unregisterObserver(observer);
+    }
+
+    public int getSourceCount() {
+        return mSources.size();
+    }
+
+    public DayAdapter getSource(final int index) {
+        return mSources.get(index);
+    }
+
+    public boolean isSourceEnabled(final int index) {
+        return mSourceEnabled.get(index);
+    }
+
+    /**
+     * Enable or disable a source, without querying the sources again.
+     * Only the days for which the source provided colors or disabled the day will change.
+     * Registered observers are told about those days, otherwise pass the result to
+     * AbstractCalendarView.notifyDaysChanged() to update those days.
+     * If months were dropped to stay within the memory budget, the changed days of those months are unknown,
+     * so observers are told the whole data set changed instead.
+     *
+     * @param index   The index of the source
+     * @param enabled Whether the source should be shown
+     * @return The days(in milliseconds) whose colors or enabled state changed
+     */
+    public long[] setSourceEnabled(final int index, final boolean enabled) {
+        if(mSourceEnabled.get(index) == enabled) {
+            // nothing changes
+            return NO_DAYS;
+        }
+        mSourceEnabled.set(index, enabled);
+
+        final SparseArray<MonthData> months = mMonths;
+        final int monthCount = months.size();
+
+        // collect the days this source affects, per cached month
+        int changedCount = 0;
+        final int[] changedMasks = new int[monthCount];
+        for(int i = 0; i < monthCount; i++) {
+            final MonthData month = months.valueAt(i);
+            final int mask = month.getAffectedDays(index);
+            if(mask != 0) {
+                month.merge(mSourceEnabled);
+                changedMasks[i] = mask;
+                changedCount += Integer.bitCount(mask);
+            }
+        }
+
+        // convert the masks to milliseconds, which is what the views use
+        final long[] changedDays = new long[changedCount];
+        final Calendar calendar = mCalendar;
+        int position = 0;
+        for(int i = 0; i < monthCount; i++) {
+            int mask = changedMasks[i];
+            if(mask == 0) {
+                continue;
+            }
+            final int monthKey = months.keyAt(i);
+            calendar.clear();
+            calendar.set(DayUtils.getYearFromMonthKey(monthKey), DayUtils.getMonthFromMonthKey(monthKey), 1);
+            int dayOfMonth = 1;
+            while(mask != 0) {
+                if((mask & 1) != 0) {
+                    calendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
+                    changedDays[position++] = calendar.getTimeInMillis();
+                }
+                mask >>>= 1;
+                dayOfMonth++;
+            }
+        }
+        if(mHasDroppedMonths) {
+            // a dropped month may still be shown with the old colors
+            mHasDroppedMonths = false;
+            mObservable.notifyDataSetChanged();
+        } else if(changedCount > 0) {
+            mObservable.notifyDaysChanged(changedDays);
+        }
+        return changedDays;
+    }
+
+    /**
+     * Drop all cached months. The sources will be queried again the next time a month is shown.
+     * Call this when the data of a source changed.
+     */
+    public void invalidate() {
+        mMonths.clear();
+        mHasDroppedMonths = false;
+    }
+
+    @Override
+    public int[] getCategoryColors(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        final MonthData month = getMonth(calendar);
+        return month.getColors(calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    @Override
+    public boolean isDayEnabled(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        final MonthData month = getMonth(calendar);
+        return month.isEnabled(calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    @Override
+    public void updateTextView(final TextView dateTextView, final long dayInMillis) {
+        final ArrayList<DayAdapter> sources = mSources;
+        final int sourceCount = sources.size();
+        for(int i = 0; i < sourceCount; i++) {
+            if(mSourceEnabled.get(i)) {
+                sources.get(i).updateTextView(dateTextView, dayInMillis);
+            }
+        }
+    }
+
+    @Override
+    public void updateHeaderTextView(final TextView header, final int dayOfWeek) {
+        final ArrayList<DayAdapter> sources = mSources;
+        final int sourceCount = sources.size();
+        for(int i = 0; i < sourceCount; i++) {
+            if(mSourceEnabled.get(i)) {
+                sources.get(i).updateHeaderTextView(header, dayOfWeek);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the cached data of the month the calendar is set to, or query all sources if it's not cached yet
+     */
+    private MonthData getMonth(final Calendar calendar) {
+        final int monthKey = DayUtils.getMonthKey(calendar);
+        mLastMonthKey = monthKey;
+        MonthData month = mMonths.get(monthKey);
+        if(month == null) {
+            // query every source once for all the days in this month
+            final Calendar day = Calendar.getInstance();
+            day.setTimeInMillis(calendar.getTimeInMillis());
+            day.set(Calendar.DAY_OF_MONTH, 1);
+            DayUtils.setToMidnight(day);
+
+            month = new MonthData(mSources, day);
+            month.merge(mSourceEnabled);
+            mMonths.put(monthKey, month);
+            CalendarCaches.enforceBudget();
+        }
+        return month;
+    }
+
+    /**
+     * Drops the months furthest away from the last requested month when the caches are trimmed
+     */
+    private final class MonthCache implements CalendarCaches.TrimmableCache {
+        @Override
+        public long getRetainedBytes() {
+            final SparseArray<MonthData> months = mMonths;
+            long retainedBytes = 0;
+            for(int i = months.size() - 1; i >= 0; i--) {
+                retainedBytes += months.valueAt(i).getSizeInBytes();
+            }
+            return retainedBytes;
+        }
+
+        @Override
+        public void trimToSize(final long maxBytes) {
+            final SparseArray<MonthData> months = mMonths;
+            long retainedBytes = getRetainedBytes();
+            int size = months.size();
+            while(size > 0 && retainedBytes > maxBytes) {
+                // the keys are sorted, so the month furthest away is either the first or the last
+                final int first = months.keyAt(0);
+                final int last = months.keyAt(size - 1);
+                final int index = mLastMonthKey - first > last - mLastMonthKey ? 0 : size - 1;
+                retainedBytes -= months.valueAt(index).getSizeInBytes();
+                months.delete(months.keyAt(index));
+                mHasDroppedMonths = true;
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Drops the cached months a source changed, and passes the change on to the observers of this adapter
+     */
+    private final class SourceObserver implements DayAdapterObserver {
+        @Override
+        public void onDaysChanged(final long... daysInMillis) {
+            final Calendar calendar = mCalendar;
+            for(final long dayInMillis : daysInMillis) {
+                calendar.setTimeInMillis(dayInMillis);
+                mMonths.remove(DayUtils.getMonthKey(calendar));
+            }
+            mObservable.notifyDaysChanged(daysInMillis);
+        }
+
+        @Override
+        public void onDayRangeChanged(final long firstDayInMillis, final long lastDayInMillis) {
+            final Calendar calendar = mCalendar;
+            calendar.setTimeInMillis(firstDayInMillis);
+            final int firstMonth = DayUtils.getMonthKey(calendar);
+            calendar.setTimeInMillis(lastDayInMillis);
+            final int lastMonth = DayUtils.getMonthKey(calendar);
+            for(int month = firstMonth; month <= lastMonth; month++) {
+                mMonths.remove(month);
+            }
+            mObservable.notifyDayRangeChanged(firstDayInMillis, lastDayInMillis);
+        }
+
+        @Override
+        public void onDataSetChanged() {
+            invalidate();
+            mObservable.notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * The colors and enabled states of all sources in a single month.
+     * Colors are stored packed: the colors of day N are stored at colors[offsets[N - 1]] until colors[offsets[N]]
+     */
+    private static final class MonthData {
+        private final int mDaysInMonth;
+        private final int[][] mSourceOffsets;
+        private final int[][] mSourceColors;
+        private final int[] mSourceDisabledDays;
+
+        private int[] mOffsets;
+        private int[] mColors;
+        private int mDisabledDays;
+
+        MonthData(final ArrayList<DayAdapter> sources, final Calendar firstDayOfMonth) {
+            final int sourceCount = sources.size();
+            final int daysInMonth = firstDayOfMonth.getActualMaximum(Calendar.DAY_OF_MONTH);
+            final long firstDayInMillis = firstDayOfMonth.getTimeInMillis();
+
+            mDaysInMonth = daysInMonth;
+            mSourceOffsets = new int[sourceCount][];
+            mSourceColors = new int[sourceCount][];
+            mSourceDisabledDays = new int[sourceCount];
+
+            final int[][] dayColors = new int[MAX_DAYS_IN_MONTH][];
+            for(int source = 0; source < sourceCount; source++) {
+                final DayAdapter adapter = sources.get(source);
+                int disabledDays = 0;
+                int colorCount = 0;
+
+                // run through the month once for this source
+                firstDayOfMonth.setTimeInMillis(firstDayInMillis);
+                for(int day = 0; day < daysInMonth; day++) {
+                    final long dayInMillis = firstDayOfMonth.getTimeInMillis();
+                    if(!adapter.isDayEnabled(dayInMillis)) {
+                        disabledDays |= 1 << day;
+                    }
+                    final int[] colors = adapter.getCategoryColors(dayInMillis);
+                    dayColors[day] = colors;
+                    if(colors != null) {
+                        colorCount += colors.length;
+                    }
+                    firstDayOfMonth.add(Calendar.DAY_OF_MONTH, 1);
+                }
+
+                // pack the colors of this source
+                final int[] offsets = new int[daysInMonth + 1];
+                final int[] packed = new int[colorCount];
+                int position = 0;
+                for(int day = 0; day < daysInMonth; day++) {
+                    offsets[day] = position;
+                    final int[] colors = dayColors[day];
+                    if(colors != null) {
+                        System.arraycopy(colors, 0, packed, position, colors.length);
+                        position += colors.length;
+                    }
+                }
+                offsets[daysInMonth] = position;
+
+                mSourceOffsets[source] = offsets;
+                mSourceColors[source] = packed;
+                mSourceDisabledDays[source] = disabledDays;
+            }
+        }
+
+        /**
+         * Merge the packed buffers of all enabled sources into a single packed buffer.
+         */
+        void merge(final ArrayList<Boolean> sourceEnabled) {
+            final int sourceCount = mSourceColors.length;
+            final int daysInMonth = mDaysInMonth;
+
+            // calculate the size of the merged buffer
+            int colorCount = 0;
+            int disabledDays = 0;
+            for(int source = 0; source < sourceCount; source++) {
+                if(sourceEnabled.get(source)) {
+                    colorCount += mSourceColors[source].length;
+                    disabledDays |= mSourceDisabledDays[source];
+                }
+            }
+
+            // merge the sources day by day, keeping the order of the sources
+            final int[] offsets = new int[daysInMonth + 1];
+            final int[] merged = new int[colorCount];
+            int position = 0;
+            for(int day = 0; day < daysInMonth; day++) {
+                offsets[day] = position;
+                for(int source = 0; source < sourceCount; source++) {
+                    if(sourceEnabled.get(source)) {
+                        final int[] sourceOffsets = mSourceOffsets[source];
+                        final int start = sourceOffsets[day];
+                        final int length = sourceOffsets[day + 1] - start;
+                        System.arraycopy(mSourceColors[source], start, merged, position, length);
+                        position += length;
+                    }
+                }
+            }
+            offsets[daysInMonth] = position;
+
+            mOffsets = offsets;
+            mColors = merged;
+            mDisabledDays = disabledDays;
+        }
+
+        /**
+         * Get a mask of the days(bit 0 is the first day of the month) this source has any influence on
+         */
+        int getAffectedDays(final int source) {
+            final int[] offsets = mSourceOffsets[source];
+            int mask = mSourceDisabledDays[source];
+            for(int day = 0; day < mDaysInMonth; day++) {
+                if(offsets[day + 1] != offsets[day]) {
+                    mask |= 1 << day;
+                }
+            }
+            return mask;
+        }
+
+        int[] getColors(final int dayOfMonth) {
+            final int start = mOffsets[dayOfMonth - 1];
+            final int length = mOffsets[dayOfMonth] - start;
+            if(length == 0) {
+                return null;
+            }
+            final int[] colors = new int[length];
+            System.arraycopy(mColors, start, colors, 0, length);
+            return colors;
+        }
+
+        boolean isEnabled(final int dayOfMonth) {
+            return (mDisabledDays & (1 << (dayOfMonth - 1))) == 0;
+        }
+
+        /**
+         * Estimate the memory used by the buffers of this month, including the array headers
+         */
+        int getSizeInBytes() {
+            final int sourceCount = mSourceColors.length;
+            // the object, its fields and the arrays of the sources
+            int size = 48 + sourceCount * 16;
+            for(int source = 0; source < sourceCount; source++) {
+                size += 32 + (mSourceOffsets[source].length + mSourceColors[source].length) * 4;
+            }
+            return size + 32 + (mOffsets.length + mColors.length) * 4;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.vdesmet.lib.calendar;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps the observers of an ObservableDayAdapter, and sends the changes to them.
+ */
+public class DayAdapterObservable {
+    private final ArrayList<DayAdapterObserver> mObservers;
+
+    public DayAdapterObservable() {
+        mObservers = new ArrayList<DayAdapterObserver>();
+    }
+
+    public void registerObserver(final DayAdapterObserver observer) {
+        if(observer == null) {
+            throw new IllegalArgumentException("observer cannot be null");
+        }
+        synchronized(mObservers) {
+            if(!mObservers.contains(observer)) {
+                mObservers.add(observer);
+            }
+        }
+    }
+
+    public void unregisterObserver(final DayAdapterObserver observer) {
+        synchronized(mObservers) {
+            mObservers.remove(observer);
+        }
+    }
+
+    public boolean hasObservers() {
+        synchronized(mObservers) {
+            return !mObservers.isEmpty();
+        }
+    }
+
+    /**
+     * Tell the observers some days changed. Must be called on the main thread.
+     *
+     * @param daysInMillis The days which changed
+     */
+    public void notifyDaysChanged(final long... daysInMillis) {
+        for(final DayAdapterObserver observer : getObservers()) {
+            observer.onDaysChanged(daysInMillis);
+        }
+    }
+
+    /**
+     * Tell the observers a range of days changed. Must be called on the main thread.
+     *
+     * @param firstDayInMillis The first day which changed
+     * @param lastDayInMillis  The last day which changed
+     */
+    public void notifyDayRangeChanged(final long firstDayInMillis, final long lastDayInMillis) {
+        for(final DayAdapterObserver observer : getObservers()) {
+            observer.onDayRangeChanged(firstDayInMillis, lastDayInMillis);
+        }
+    }
+
+    /**
+     * Tell the observers all days might have changed. Must be called on the main thread.
+     */
+    public void notifyDataSetChanged() {
+        for(final DayAdapterObserver observer : getObservers()) {
+            observer.onDataSetChanged();
+        }
+    }
+
+    private DayAdapterObserver[] getObservers() {
+        // copy, so observers can unregister while they're notified
+        synchronized(mObservers) {
+            return mObservers.toArray(new DayAdapterObserver[mObservers.size()]);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.vdesmet.lib.calendar;
+
+/**
+ * Receives changes of an ObservableDayAdapter.
+ * The Calendars collect all changes until the next frame, and update each changed day only once.
+ */
+public interface DayAdapterObserver {
+
+    /**
+     * Called when the data of some days changed
+     *
+     * @param daysInMillis The days which changed
+     */
+    public abstract void onDaysChanged(long... daysInMillis);
+
+    /**
+     * Called when the data of a range of days changed
+     *
+     * @param firstDayInMillis The first day which changed
+     * @param lastDayInMillis  The last day which changed
+     */
+    public abstract void onDayRangeChanged(long firstDayInMillis, long lastDayInMillis);
+
+    /**
+     * Called when the data of all days might have changed
+     */
+    public abstract void onDataSetChanged();
+}
@@ -0,0 +1,95 @@
+package com.vdesmet.lib.calendar;
+
+import android.graphics.Typeface;
+
+/**
+ * Immutable description of how a day should look.
+ * Because a decoration is a value, the Calendar can cache it and skip days whose decoration didn't change.
+ *
+ * @see com.vdesmet.lib.calendar.DecorationDayAdapter
+ */
+public final class DayDecoration {
+    /**
+     * Color value which keeps the default color of the style
+     */
+    public static final int DEFAULT_COLOR = 0;
+
+    /**
+     * A decoration which doesn't change anything
+     */
+    public static final DayDecoration NONE = new DayDecoration(DEFAULT_COLOR, DEFAULT_COLOR, null, Typeface.NORMAL);
+
+    private final int mTextColor;
+    private final int mBackgroundColor;
+    private final String mBadge;
+    private final int mTypefaceStyle;
+
+    /**
+     * @param textColor       The color of the number, or DEFAULT_COLOR
+     * @param backgroundColor The background color of the day, or DEFAULT_COLOR
+     * @param badge           A short text shown in the corner of the day, or null
+     * @param typefaceStyle   The style of the number, e.g. Typeface.BOLD
+     */
+    public DayDecoration(final int textColor, final int backgroundColor, final String badge, final int typefaceStyle) {
+        mTextColor = textColor;
+        mBackgroundColor = backgroundColor;
+        mBadge = badge;
+        mTypefaceStyle = typefaceStyle;
+    }
+
+    public int getTextColor() {
+        return mTextColor;
+    }
+
+    public int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    public String getBadge() {
+        return mBadge;
+    }
+
+    public int getTypefaceStyle() {
+        return mTypefaceStyle;
+    }
+
+    public DayDecoration withTextColor(final int textColor) {
+        return new DayDecoration(textColor, mBackgroundColor, mBadge, mTypefaceStyle);
+    }
+
+    public DayDecoration withBackgroundColor(final int backgroundColor) {
+        return new DayDecoration(mTextColor, backgroundColor, mBadge, mTypefaceStyle);
+    }
+
+    public DayDecoration withBadge(final String badge) {
+        return new DayDecoration(mTextColor, mBackgroundColor, badge, mTypefaceStyle);
+    }
+
+    public DayDecoration withTypefaceStyle(final int typefaceStyle) {
+        return new DayDecoration(mTextColor, mBackgroundColor, mBadge, typefaceStyle);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof DayDecoration)) {
+            return false;
+        }
+        final DayDecoration other = (DayDecoration) o;
+        return mTextColor == other.mTextColor &&
+                mBackgroundColor == other.mBackgroundColor &&
+                mTypefaceStyle == other.mTypefaceStyle &&
+                (mBadge == null ? other.mBadge == null : mBadge.equals(other.mBadge));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mTextColor;
+        result = 31 * result + mBackgroundColor;
+        result = 31 * result + (mBadge != null ? mBadge.hashCode() : 0);
+        result = 31 * result + mTypefaceStyle;
+        return result;
+    }
+}
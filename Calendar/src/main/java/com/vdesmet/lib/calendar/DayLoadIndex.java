@@ -0,0 +1,178 @@
+package com.vdesmet.lib.calendar;
+
+import java.util.Calendar;
+
+/**
+ * The load(number of events, booked minutes, etc.) of every day in a range, used by DayStyleFactory.DAY_STYLE_HEATMAP.
+ *
+ * Events are stored in a difference array, and the load of each day is the prefix sum of that array.
+ * The prefix sums are calculated in a single pass when they're needed, so the cells of a month cost O(1) each.
+ * Adding or removing a single event only recalculates the prefix sums from the first day of that event.
+ * The methods are synchronized, so the index can also be used by a MonthRenderer on another thread.
+ *
+ * @see com.vdesmet.lib.calendar.AbstractCalendarView#setDayLoadIndex(DayLoadIndex)
+ */
+public class DayLoadIndex {
+    private final int mFirstDay;
+    private final int mDayCount;
+    private final int[] mDeltas;
+    private final int[] mLoads;
+    private final int[] mRunningMax;
+    private final Calendar mCalendar;
+
+    // The first day(index) of which the prefix sums are out of date, or mDayCount if all are up to date
+    private int mDirtyFrom;
+
+    /**
+     * Create an empty index
+     *
+     * @param firstDayInMillis The first day of the range
+     * @param lastDayInMillis  The last day of the range, inclusive
+     */
+    public DayLoadIndex(final long firstDayInMillis, final long lastDayInMillis) {
+        mCalendar = Calendar.getInstance();
+        mFirstDay = toEpochDay(firstDayInMillis);
+        mDayCount = toEpochDay(lastDayInMillis) - mFirstDay + 1;
+        if(mDayCount <= 0) {
+            throw new IllegalArgumentException("lastDayInMillis must be after firstDayInMillis");
+        }
+        mDeltas = new int[mDayCount + 1];
+        mLoads = new int[mDayCount];
+        mRunningMax = new int[mDayCount];
+        mDirtyFrom = mDayCount;
+    }
+
+    /**
+     * Add an event to the index. Parts of the event outside of the range of this index are ignored.
+     * The loads aren't recalculated until they're needed, so adding many events costs a single pass.
+     *
+     * @param startDayInMillis The first day of the event
+     * @param endDayInMillis   The last day of the event, inclusive
+     * @param weight           The load the event adds to each day, e.g. 1 or the number of booked minutes
+     * @return true if the event is part of this range, false if it was ignored
+     */
+    public synchronized boolean addEvent(final long startDayInMillis, final long endDayInMillis, final int weight) {
+        final int start = Math.max(toEpochDay(startDayInMillis) - mFirstDay, 0);
+        final int end = Math.min(toEpochDay(endDayInMillis) - mFirstDay, mDayCount - 1);
+        if(start > end || weight == 0) {
+            // The event is outside of this range
+            return false;
+        }
+
+        mDeltas[start] += weight;
+        mDeltas[end + 1] -= weight;
+        mDirtyFrom = Math.min(mDirtyFrom, start);
+        return true;
+    }
+
+    /**
+     * Add many events at once, e.g. when loading a schedule
+     *
+     * @param startDaysInMillis The first day of each event
+     * @param endDaysInMillis   The last day of each event, inclusive
+     * @param weights           The load each event adds to each of its days
+     * @return true if any of the events is part of this range, see addEvent()
+     */
+    public synchronized boolean addEvents(final long[] startDaysInMillis, final long[] endDaysInMillis,
+                                          final int[] weights) {
+        final int eventCount = startDaysInMillis.length;
+        if(endDaysInMillis.length != eventCount || weights.length != eventCount) {
+            throw new IllegalArgumentException("Every event needs a start day, an end day and a weight");
+        }
+        boolean isChanged = false;
+        for(int i = 0; i < eventCount; i++) {
+            isChanged |= addEvent(startDaysInMillis[i], endDaysInMillis[i], weights[i]);
+        }
+        return isChanged;
+    }
+
+    /**
+     * Remove an event which was previously added with the same arguments
+     *
+     * @param startDayInMillis The first day of the event
+     * @param endDayInMillis   The last day of the event, inclusive
+     * @param weight           The weight the event was added with
+     * @return true if the event is part of this range, see addEvent()
+     */
+    public synchronized boolean removeEvent(final long startDayInMillis, final long endDayInMillis, final int weight) {
+        return addEvent(startDayInMillis, endDayInMillis, -weight);
+    }
+
+    /**
+     * Get the load of a day
+     *
+     * @param dayInMillis The date
+     * @return The load, or 0 if the day is outside of this range
+     */
+    public synchronized int getLoad(final long dayInMillis) {
+        return getLoadForEpochDay(toEpochDay(dayInMillis));
+    }
+
+    /**
+     * Get the load of a day
+     *
+     * @param epochDay The date as epoch day
+     * @return The load, or 0 if the day is outside of this range
+     * @see com.vdesmet.lib.calendar.DayUtils#toEpochDay(java.util.Calendar)
+     */
+    public synchronized int getLoadForEpochDay(final int epochDay) {
+        final int index = epochDay - mFirstDay;
+        if(index < 0 || index >= mDayCount) {
+            return 0;
+        }
+        update();
+        return mLoads[index];
+    }
+
+    /**
+     * Get the highest load of all days in this range
+     *
+     * @return The maximum load, or 0 if there are no events
+     */
+    public synchronized int getMaxLoad() {
+        update();
+        return Math.max(mRunningMax[mDayCount - 1], 0);
+    }
+
+    /**
+     * Remove all events
+     */
+    public synchronized void clear() {
+        for(int i = 0; i <= mDayCount; i++) {
+            mDeltas[i] = 0;
+        }
+        mDirtyFrom = 0;
+    }
+
+    /**
+     * Recalculate the prefix sums from the first changed day
+     */
+    private void update() {
+        final int from = mDirtyFrom;
+        final int dayCount = mDayCount;
+        if(from >= dayCount) {
+            return;
+        }
+
+        final int[] deltas = mDeltas;
+        final int[] loads = mLoads;
+        final int[] runningMax = mRunningMax;
+        int load = from == 0 ? 0 : loads[from - 1];
+        int max = from == 0 ? Integer.MIN_VALUE : runningMax[from - 1];
+        for(int i = from; i < dayCount; i++) {
+            load += deltas[i];
+            loads[i] = load;
+            if(load > max) {
+                max = load;
+            }
+            runningMax[i] = max;
+        }
+        mDirtyFrom = dayCount;
+    }
+
+    private int toEpochDay(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        return DayUtils.toEpochDay(calendar);
+    }
+}
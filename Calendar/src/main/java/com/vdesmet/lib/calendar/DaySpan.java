@@ -0,0 +1,53 @@
+package com.vdesmet.lib.calendar;
+
+import java.util.Calendar;
+
+/**
+ * An event which covers one or more days, like a trip or a sprint.
+ * Spans are drawn as a continuous bar across the days of a week.
+ *
+ * @see com.vdesmet.lib.calendar.SpanDayAdapter
+ */
+public final class DaySpan {
+    private final int mFirstDay;
+    private final int mLastDay;
+    private final int mColor;
+
+    /**
+     * @param firstDayInMillis The first day of the span
+     * @param lastDayInMillis  The last day of the span, inclusive
+     * @param color            The color of the bar, for example 0xFFFF4444
+     */
+    public DaySpan(final long firstDayInMillis, final long lastDayInMillis, final int color) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(firstDayInMillis);
+        mFirstDay = DayUtils.toEpochDay(calendar);
+        calendar.setTimeInMillis(lastDayInMillis);
+        mLastDay = DayUtils.toEpochDay(calendar);
+        mColor = color;
+
+        if(mLastDay < mFirstDay) {
+            throw new IllegalArgumentException("lastDayInMillis cannot be before firstDayInMillis");
+        }
+    }
+
+    /**
+     * @return The first day as epoch day
+     * @see com.vdesmet.lib.calendar.DayUtils#toEpochDay(java.util.Calendar)
+     */
+    public int getFirstDay() {
+        return mFirstDay;
+    }
+
+    /**
+     * @return The last day as epoch day, inclusive
+     * @see com.vdesmet.lib.calendar.DayUtils#toEpochDay(java.util.Calendar)
+     */
+    public int getLastDay() {
+        return mLastDay;
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+}
@@ -0,0 +1,145 @@
+package com.vdesmet.lib.calendar;
+
+import java.util.Calendar;
+
+/**
+ * Helper methods to convert between Calendars, milliseconds and the compact keys used by the caches.
+ */
+public final class DayUtils {
+    private static final int MONTHS_IN_YEAR = 12;
+    private static final int DAYS_IN_WEEK = 7;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    // Number of days between 0000-03-01 and 1970-01-01
+    private static final int DAYS_0000_TO_1970 = 719468;
+    private static final int DAYS_PER_400_YEARS = 146097;
+
+    private DayUtils() {
+    }
+
+    /**
+     * Get a key which uniquely identifies a month. Keys of consecutive months are consecutive integers.
+     *
+     * @param year  The year, e.g. 2013
+     * @param month The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @return A key which can be used in SparseArrays
+     */
+    public static int getMonthKey(final int year, final int month) {
+        return year * MONTHS_IN_YEAR + month;
+    }
+
+    /**
+     * Get the month key of the date the calendar is set to
+     *
+     * @param calendar The calendar
+     * @return A key which can be used in SparseArrays
+     */
+    public static int getMonthKey(final Calendar calendar) {
+        return getMonthKey(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH));
+    }
+
+    public static int getYearFromMonthKey(final int monthKey) {
+        return monthKey / MONTHS_IN_YEAR;
+    }
+
+    public static int getMonthFromMonthKey(final int monthKey) {
+        return monthKey % MONTHS_IN_YEAR;
+    }
+
+    /**
+     * Set all the time fields of the calendar to 0, so it represents the start of the day
+     *
+     * @param calendar The calendar to update
+     */
+    public static void setToMidnight(final Calendar calendar) {
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+    }
+
+    /**
+     * Get the number of days since 1970-01-01 for a local date. Unlike milliseconds, this doesn't depend on
+     * the timezone, which makes it usable as a compact key for a single day.
+     *
+     * @param year       The year, e.g. 2013
+     * @param month      The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @param dayOfMonth The day of the month, 1 - 31
+     * @return The epoch day
+     */
+    public static int toEpochDay(final int year, final int month, final int dayOfMonth) {
+        // Count from March, so the leap day is the last day of a year
+        final int y = month <= Calendar.FEBRUARY ? year - 1 : year;
+        final int era = (y >= 0 ? y : y - 399) / 400;
+        final int yearOfEra = y - era * 400;
+        final int monthFromMarch = (month + 10) % MONTHS_IN_YEAR;
+        final int dayOfYear = (153 * monthFromMarch + 2) / 5 + dayOfMonth - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Get the epoch day of the date the calendar is set to
+     *
+     * @param calendar The calendar
+     * @return The epoch day
+     */
+    public static int toEpochDay(final Calendar calendar) {
+        return toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH),
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Set the calendar to midnight of the given epoch day
+     *
+     * @param calendar The calendar to update
+     * @param epochDay The epoch day
+     */
+    public static void setToEpochDay(final Calendar calendar, final int epochDay) {
+        final int days = epochDay + DAYS_0000_TO_1970;
+        final int era = (days >= 0 ? days : days - DAYS_PER_400_YEARS + 1) / DAYS_PER_400_YEARS;
+        final int dayOfEra = days - era * DAYS_PER_400_YEARS;
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int monthFromMarch = (5 * dayOfYear + 2) / 153;
+        final int dayOfMonth = dayOfYear - (153 * monthFromMarch + 2) / 5 + 1;
+        final int month = monthFromMarch < 10 ? monthFromMarch + 2 : monthFromMarch - 10;
+        final int year = yearOfEra + era * 400 + (month <= Calendar.FEBRUARY ? 1 : 0);
+
+        calendar.clear();
+        calendar.set(year, month, dayOfMonth);
+    }
+
+    /**
+     * Get the day of the week of an epoch day
+     *
+     * @param epochDay The epoch day
+     * @return The day of the week, between Calendar.SUNDAY and Calendar.SATURDAY
+     */
+    public static int getDayOfWeek(final int epochDay) {
+        // 1970-01-01 was a thursday
+        int dayOfWeek = (epochDay + Calendar.THURSDAY - 1) % DAYS_IN_WEEK;
+        if(dayOfWeek < 0) {
+            dayOfWeek += DAYS_IN_WEEK;
+        }
+        return dayOfWeek + 1;
+    }
+
+    public static boolean isLeapYear(final int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    /**
+     * Get the number of days in a month
+     *
+     * @param year  The year, e.g. 2013
+     * @param month The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @return The number of days, 28 - 31
+     */
+    public static int getDaysInMonth(final int year, final int month) {
+        if(month == Calendar.FEBRUARY && isLeapYear(year)) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month];
+    }
+}
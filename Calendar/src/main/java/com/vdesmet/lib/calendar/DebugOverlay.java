@@ -0,0 +1,128 @@
+package com.vdesmet.lib.calendar;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.view.View;
+
+/**
+ * Draws render timings and the way each day was bound on top of the Calendars, to diagnose jank.
+ * Shared by a MultiCalendarView and its pages. The timings are kept in fixed size buffers,
+ * and drawing formats them into a reused char buffer, so the overlay doesn't allocate.
+ */
+class DebugOverlay {
+    // How a day was bound the last time
+    static final int BIND_NONE = 0;
+    static final int BIND_INFLATED = 1;
+    static final int BIND_REBOUND = 2;
+    static final int BIND_REUSED = 3;
+
+    private static final char[] BIND_LABELS = {' ', 'I', 'B', 'R'};
+    private static final int BUILD_TIME_COUNT = 16;
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private final LongRingBuffer mBuildTimes;
+    private final Paint mCellPaint;
+    private final Paint mSummaryPaint;
+    private final Paint mBackgroundPaint;
+    private final float mPadding;
+    private final char[] mText = new char[64];
+    private int mTextLength;
+    // The view which draws the summary, redrawn when a page is built
+    private View mSummaryView;
+
+    DebugOverlay(final Resources resources) {
+        mBuildTimes = new LongRingBuffer(BUILD_TIME_COUNT);
+        mPadding = resources.getDimension(R.dimen.lib_debug_padding);
+
+        mCellPaint = new Paint();
+        mCellPaint.setAntiAlias(true);
+        mCellPaint.setTextSize(resources.getDimension(R.dimen.lib_debug_text_size));
+        mCellPaint.setColor(resources.getColor(R.color.lib_calendar_debug_text));
+
+        mSummaryPaint = new Paint(mCellPaint);
+        mSummaryPaint.setTextAlign(Paint.Align.RIGHT);
+
+        mBackgroundPaint = new Paint();
+        mBackgroundPaint.setColor(resources.getColor(R.color.lib_calendar_debug_background));
+    }
+
+    /**
+     * Remember how long building a page took
+     */
+    void recordBuild(final long durationNanos) {
+        mBuildTimes.add(durationNanos);
+        if(mSummaryView != null) {
+            mSummaryView.invalidate();
+        }
+    }
+
+    void setSummaryView(final View view) {
+        this.mSummaryView = view;
+    }
+
+    /**
+     * Draw the adapter time and the bind type of a single day at the top left of the day
+     */
+    void drawCell(final Canvas canvas, final float left, final float top,
+                  final long adapterNanos, final int bindKind) {
+        mTextLength = 0;
+        append(BIND_LABELS[bindKind]);
+        append(' ');
+        appendMillis(adapterNanos);
+        canvas.drawText(mText, 0, mTextLength, left + mPadding, top + mPadding - mCellPaint.ascent(), mCellPaint);
+    }
+
+    /**
+     * Draw the number of live pages, the build time of the pages and the size of the caches in a strip
+     */
+    void drawSummary(final Canvas canvas, final float right, final float top, final float bottom,
+                     final int livePageCount) {
+        mTextLength = 0;
+        append("pages ");
+        appendNumber(livePageCount);
+        append("  build ");
+        appendMillis(mBuildTimes.getLast());
+        append(" avg ");
+        appendMillis(mBuildTimes.getAverage());
+        append("  cache ");
+        appendNumber((int) (CalendarCaches.getRetainedBytes() / 1024));
+        append("KB");
+
+        final float textWidth = mSummaryPaint.measureText(mText, 0, mTextLength);
+        canvas.drawRect(right - textWidth - mPadding * 2, top, right, bottom, mBackgroundPaint);
+        canvas.drawText(mText, 0, mTextLength, right - mPadding,
+                (top + bottom - mSummaryPaint.ascent() - mSummaryPaint.descent()) / 2, mSummaryPaint);
+    }
+
+    private void append(final char c) {
+        if(mTextLength < mText.length) {
+            mText[mTextLength++] = c;
+        }
+    }
+
+    private void append(final String text) {
+        final int length = text.length();
+        for(int i = 0; i < length; i++) {
+            append(text.charAt(i));
+        }
+    }
+
+    private void appendNumber(final int number) {
+        if(number >= 10) {
+            appendNumber(number / 10);
+        }
+        append((char) ('0' + number % 10));
+    }
+
+    /**
+     * Append a duration as milliseconds with one decimal, e.g. 1.2ms
+     */
+    private void appendMillis(final long nanos) {
+        final int tenthsOfMillis = (int) (nanos / (NANOS_PER_MICRO * 100));
+        appendNumber(tenthsOfMillis / 10);
+        append('.');
+        append((char) ('0' + tenthsOfMillis % 10));
+        append("ms");
+    }
+}
@@ -0,0 +1,133 @@
+package com.vdesmet.lib.calendar;
+
+import android.util.SparseArray;
+
+/**
+ * Cache of the decorations of days, keyed by epoch day. Shared between the pages of a MultiCalendarView,
+ * so a month which is built again doesn't query the adapter again.
+ */
+class DecorationCache implements CalendarCaches.TrimmableCache {
+    // an entry in the SparseArray and a DayDecoration, which is often shared
+    private static final int ENTRY_BYTES = 40;
+
+    private final SparseArray<DayDecoration> mDecorations;
+    // the most recently requested day, entries far away from it are dropped first
+    private int mLastEpochDay;
+    private DecorationDayAdapter mAdapter;
+    // true after a restore, the next adapter is assumed to return the same data as the previous one
+    private boolean mAdoptsNextAdapter;
+    private CalendarMetricsListener mMetricsListener;
+
+    DecorationCache() {
+        mDecorations = new SparseArray<DayDecoration>();
+        CalendarCaches.register(this);
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        return (long) mDecorations.size() * ENTRY_BYTES;
+    }
+
+    @Override
+    public void trimToSize(final long maxBytes) {
+        final SparseArray<DayDecoration> decorations = mDecorations;
+        final long maxEntries = maxBytes / ENTRY_BYTES;
+        int size = decorations.size();
+        while(size > maxEntries) {
+            // the keys are sorted, so the day furthest away is either the first or the last
+            final int first = decorations.keyAt(0);
+            final int last = decorations.keyAt(size - 1);
+            decorations.delete(mLastEpochDay - first > last - mLastEpochDay ? first : last);
+            size--;
+        }
+    }
+
+    void setMetricsListener(final CalendarMetricsListener listener) {
+        mMetricsListener = listener;
+    }
+
+    /**
+     * Retrieve the decoration of a day, asking the adapter if it's not cached
+     *
+     * @param adapter     The adapter
+     * @param epochDay    The day as epoch day, used as key
+     * @param dayInMillis The day in milliseconds, passed to the adapter
+     * @return The decoration, never null
+     */
+    DayDecoration get(final DecorationDayAdapter adapter, final int epochDay, final long dayInMillis) {
+        if(adapter != mAdapter) {
+            if(!mAdoptsNextAdapter) {
+                // another adapter, the cached decorations are useless
+                mDecorations.clear();
+            }
+            mAdapter = adapter;
+        }
+        mAdoptsNextAdapter = false;
+
+        mLastEpochDay = epochDay;
+        DayDecoration decoration = mDecorations.get(epochDay);
+        final CalendarMetricsListener metricsListener = mMetricsListener;
+        if(metricsListener != null) {
+            metricsListener.onCacheLookup(CalendarMetricsListener.CACHE_DECORATIONS, decoration != null);
+        }
+        if(decoration == null) {
+            if(metricsListener == null) {
+                decoration = adapter.getDecoration(dayInMillis);
+            } else {
+                final long start = System.nanoTime();
+                decoration = adapter.getDecoration(dayInMillis);
+                metricsListener.onAdapterCallback(CalendarMetricsListener.CALLBACK_GET_DECORATION,
+                        System.nanoTime() - start);
+            }
+            if(decoration == null) {
+                decoration = DayDecoration.NONE;
+            }
+            mDecorations.put(epochDay, decoration);
+            CalendarCaches.enforceBudget();
+        }
+        return decoration;
+    }
+
+    /**
+     * Retrieve a cached decoration, without asking the adapter
+     *
+     * @return The decoration, or null if it's not cached
+     */
+    DayDecoration peek(final int epochDay) {
+        return mDecorations.get(epochDay);
+    }
+
+    /**
+     * Keep the decorations when the adapter is replaced by the new instance of the same adapter,
+     * e.g. after the Activity was recreated
+     */
+    void adoptNextAdapter() {
+        mAdoptsNextAdapter = true;
+    }
+
+    void remove(final int epochDay) {
+        mDecorations.remove(epochDay);
+    }
+
+    void clear() {
+        mDecorations.clear();
+    }
+
+    /**
+     * Copy the decorations, without a reference to the adapter or the metrics listener,
+     * so a copy can be retained without leaking them
+     *
+     * @return A new cache with the same decorations
+     */
+    DecorationCache copyAnswers() {
+        final DecorationCache copy = new DecorationCache();
+        final SparseArray<DayDecoration> decorations = mDecorations;
+        final int size = decorations.size();
+        for(int i = 0; i < size; i++) {
+            // a DayDecoration is immutable, so it can be shared
+            copy.mDecorations.append(decorations.keyAt(i), decorations.valueAt(i));
+        }
+        copy.mLastEpochDay = mLastEpochDay;
+        return copy;
+    }
+}
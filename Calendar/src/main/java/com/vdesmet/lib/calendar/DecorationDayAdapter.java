@@ -0,0 +1,19 @@
+package com.vdesmet.lib.calendar;
+
+/**
+ * A DayAdapter which describes the appearance of a day with an immutable DayDecoration,
+ * instead of changing the TextView. When the adapter implements this interface,
+ * getDecoration() is used and updateTextView() is no longer called for days.
+ *
+ * Decorations are cached per day. Call notifyDecorationsChanged() on the Calendar when they change.
+ */
+public interface DecorationDayAdapter extends DayAdapter {
+
+    /**
+     * Retrieves the decoration of a day
+     *
+     * @param dayInMillis The date to retrieve the decoration for
+     * @return The decoration, or null for DayDecoration.NONE
+     */
+    public abstract DayDecoration getDecoration(long dayInMillis);
+}
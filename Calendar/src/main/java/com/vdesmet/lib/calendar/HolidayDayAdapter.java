@@ -0,0 +1,108 @@
+package com.vdesmet.lib.calendar;
+
+import android.widget.TextView;
+
+import java.util.Calendar;
+
+/**
+ * DayAdapter which adds a category color to the holidays of a region.
+ * It can be used on its own, or on top of an existing DayAdapter.
+ */
+public class HolidayDayAdapter implements DayAdapter {
+    private final HolidayRegion mRegion;
+    private final int mColor;
+    // the colors of a holiday without colors of the delegate, shared by all those days
+    private final int[] mHolidayColors;
+    private final DayAdapter mDelegate;
+    private final Calendar mCalendar;
+    private boolean mDisableHolidays;
+
+    /**
+     * @param region The holidays to show, for example HolidayRegion.NETHERLANDS
+     * @param color  The category color of a holiday, for example 0xFFFF4444
+     */
+    public HolidayDayAdapter(final HolidayRegion region, final int color) {
+        this(region, color, null);
+    }
+
+    /**
+     * @param region   The holidays to show, for example HolidayRegion.NETHERLANDS
+     * @param color    The category color of a holiday, for example 0xFFFF4444
+     * @param delegate The DayAdapter to add the holidays to, or null
+     */
+    public HolidayDayAdapter(final HolidayRegion region, final int color, final DayAdapter delegate) {
+        if(region == null) {
+            throw new IllegalArgumentException("region cannot be null");
+        }
+        mRegion = region;
+        mColor = color;
+        mHolidayColors = new int[] {color};
+        mDelegate = delegate;
+        mCalendar = Calendar.getInstance();
+    }
+
+    /**
+     * Set whether holidays should be disabled, so they can't be clicked
+     *
+     * @param disableHolidays true to disable holidays
+     */
+    public void setDisableHolidays(final boolean disableHolidays) {
+        mDisableHolidays = disableHolidays;
+    }
+
+    public HolidayRegion getRegion() {
+        return mRegion;
+    }
+
+    /**
+     * Check whether a day is a holiday
+     *
+     * @param dayInMillis The date
+     * @return true if the day is a holiday in the region of this adapter
+     */
+    public boolean isHoliday(final long dayInMillis) {
+        final Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(dayInMillis);
+        return mRegion.isHoliday(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH),
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    @Override
+    public int[] getCategoryColors(final long dayInMillis) {
+        final int[] colors = mDelegate != null ? mDelegate.getCategoryColors(dayInMillis) : null;
+        if(!isHoliday(dayInMillis)) {
+            return colors;
+        }
+        if(colors == null) {
+            return mHolidayColors;
+        }
+
+        // add the holiday color after the colors of the delegate
+        final int[] combined = new int[colors.length + 1];
+        System.arraycopy(colors, 0, combined, 0, colors.length);
+        combined[colors.length] = mColor;
+        return combined;
+    }
+
+    @Override
+    public boolean isDayEnabled(final long dayInMillis) {
+        if(mDelegate != null && !mDelegate.isDayEnabled(dayInMillis)) {
+            return false;
+        }
+        return !mDisableHolidays || !isHoliday(dayInMillis);
+    }
+
+    @Override
+    public void updateTextView(final TextView dateTextView, final long dayInMillis) {
+        if(mDelegate != null) {
+            mDelegate.updateTextView(dateTextView, dayInMillis);
+        }
+    }
+
+    @Override
+    public void updateHeaderTextView(final TextView header, final int dayOfWeek) {
+        if(mDelegate != null) {
+            mDelegate.updateHeaderTextView(header, dayOfWeek);
+        }
+    }
+}
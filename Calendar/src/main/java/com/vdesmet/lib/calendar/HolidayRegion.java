@@ -0,0 +1,172 @@
+package com.vdesmet.lib.calendar;
+
+import android.util.SparseArray;
+
+import java.util.Calendar;
+
+/**
+ * A set of holidays of a region.
+ * The holidays of a year are calculated the first time a day in that year is requested, and stored as a
+ * bitmask per month. Regions are meant to be shared, the predefined regions are used by all Calendars in the process.
+ */
+public class HolidayRegion {
+    private static final int MONTHS_IN_YEAR = 12;
+
+    public static final HolidayRegion NETHERLANDS = new HolidayRegion(
+            HolidayRule.fixed(Calendar.JANUARY, 1),                             // New Year's Day
+            HolidayRule.easter(0),                                              // Easter Sunday
+            HolidayRule.easter(1),                                              // Easter Monday
+            HolidayRule.fixedMovedOn(Calendar.APRIL, 27, Calendar.SUNDAY, -1),  // King's Day, on Saturday when it's a Sunday
+            HolidayRule.fixed(Calendar.MAY, 5),                                 // Liberation Day
+            HolidayRule.easter(39),                                             // Ascension Day
+            HolidayRule.easter(49),                                             // Whit Sunday
+            HolidayRule.easter(50),                                             // Whit Monday
+            HolidayRule.fixed(Calendar.DECEMBER, 25),                           // Christmas Day
+            HolidayRule.fixed(Calendar.DECEMBER, 26));                          // Boxing Day
+
+    /**
+     * The federal holidays of the United States. Holidays on a fixed date are marked on the day they're observed,
+     * e.g. Independence Day 2026 on Friday 3 July.
+     */
+    public static final HolidayRegion UNITED_STATES = new HolidayRegion(
+            HolidayRule.fixedObserved(Calendar.JANUARY, 1),                          // New Year's Day
+            HolidayRule.nthWeekday(Calendar.JANUARY, Calendar.MONDAY, 3),            // Martin Luther King Jr. Day
+            HolidayRule.nthWeekday(Calendar.FEBRUARY, Calendar.MONDAY, 3),           // Presidents' Day
+            HolidayRule.nthWeekday(Calendar.MAY, Calendar.MONDAY, HolidayRule.LAST), // Memorial Day
+            HolidayRule.fixedObserved(Calendar.JUNE, 19),                            // Juneteenth
+            HolidayRule.fixedObserved(Calendar.JULY, 4),                             // Independence Day
+            HolidayRule.nthWeekday(Calendar.SEPTEMBER, Calendar.MONDAY, 1),          // Labor Day
+            HolidayRule.nthWeekday(Calendar.OCTOBER, Calendar.MONDAY, 2),            // Columbus Day
+            HolidayRule.fixedObserved(Calendar.NOVEMBER, 11),                        // Veterans Day
+            HolidayRule.nthWeekday(Calendar.NOVEMBER, Calendar.THURSDAY, 4),         // Thanksgiving
+            HolidayRule.fixedObserved(Calendar.DECEMBER, 25));                       // Christmas Day
+
+    private final HolidayRule[] mRules;
+    private final SparseArray<int[]> mYears;
+    // the most recently requested year, years far away from it are dropped first
+    private int mLastYear;
+    // kept here, because CalendarCaches only holds it weakly
+    private final YearCache mYearCache;
+
+    public HolidayRegion(final HolidayRule... rules) {
+        mRules = new HolidayRule[rules.length];
+        System.arraycopy(rules, 0, mRules, 0, rules.length);
+        mYears = new SparseArray<int[]>();
+        mYearCache = new YearCache();
+        CalendarCaches.register(mYearCache);
+    }
+
+    /**
+     * Create a region which contains the holidays of this region, and some additional holidays
+     *
+     * @param rules The additional holidays
+     * @return The new region
+     */
+    public HolidayRegion with(final HolidayRule... rules) {
+        final HolidayRule[] combined = new HolidayRule[mRules.length + rules.length];
+        System.arraycopy(mRules, 0, combined, 0, mRules.length);
+        System.arraycopy(rules, 0, combined, mRules.length, rules.length);
+        return new HolidayRegion(combined);
+    }
+
+    /**
+     * Get the holidays of a year. Do not modify the returned array.
+     *
+     * @param year The year, e.g. 2013
+     * @return An array of 12 masks, one per month. Bit 0 of a mask is the first day of that month
+     */
+    public int[] getHolidayMasks(final int year) {
+        synchronized(mYears) {
+            mLastYear = year;
+            int[] masks = mYears.get(year);
+            if(masks == null) {
+                masks = calculate(year);
+                mYears.put(year, masks);
+            }
+            return masks;
+        }
+    }
+
+    /**
+     * Check whether a day is a holiday
+     *
+     * @param year       The year, e.g. 2013
+     * @param month      The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @param dayOfMonth The day of the month
+     * @return true if it's a holiday in this region
+     */
+    public boolean isHoliday(final int year, final int month, final int dayOfMonth) {
+        return (getHolidayMasks(year)[month] & (1 << (dayOfMonth - 1))) != 0;
+    }
+
+    /**
+     * Drop all calculated years
+     */
+    public void clearCache() {
+        synchronized(mYears) {
+            mYears.clear();
+        }
+    }
+
+    /**
+     * Drops calculated years when the caches are trimmed, they're calculated again when needed
+     */
+    private final class YearCache implements CalendarCaches.TrimmableCache {
+        // 12 masks, the array header and the entry in the SparseArray
+        private static final int YEAR_BYTES = MONTHS_IN_YEAR * 4 + 24;
+
+        @Override
+        public long getRetainedBytes() {
+            synchronized(mYears) {
+                return (long) mYears.size() * YEAR_BYTES;
+            }
+        }
+
+        @Override
+        public void trimToSize(final long maxBytes) {
+            synchronized(mYears) {
+                final SparseArray<int[]> years = mYears;
+                final long maxYears = maxBytes / YEAR_BYTES;
+                for(int size = years.size(); size > maxYears; size--) {
+                    // the keys are sorted, so the year furthest away is either the first or the last
+                    final int first = years.keyAt(0);
+                    final int last = years.keyAt(size - 1);
+                    years.delete(mLastYear - first > last - mLastYear ? first : last);
+                }
+            }
+        }
+    }
+
+    private int[] calculate(final int year) {
+        final int[] masks = new int[MONTHS_IN_YEAR];
+        final int firstDayOfYear = DayUtils.toEpochDay(year, Calendar.JANUARY, 1);
+        final int firstDayOfNextYear = DayUtils.toEpochDay(year + 1, Calendar.JANUARY, 1);
+
+        // the first day of each month, to find the month of a holiday
+        final int[] monthStarts = new int[MONTHS_IN_YEAR];
+        for(int month = 0; month < MONTHS_IN_YEAR; month++) {
+            monthStarts[month] = DayUtils.toEpochDay(year, month, 1);
+        }
+
+        for(final HolidayRule rule : mRules) {
+            // the holidays of the surrounding years may be observed in this year, e.g. on 31 December
+            for(int ruleYear = year - 1; ruleYear <= year + 1; ruleYear++) {
+                addHoliday(masks, monthStarts, firstDayOfYear, firstDayOfNextYear, rule.getEpochDay(ruleYear));
+            }
+        }
+        return masks;
+    }
+
+    private static void addHoliday(final int[] masks, final int[] monthStarts, final int firstDayOfYear,
+                                   final int firstDayOfNextYear, final int epochDay) {
+        if(epochDay < firstDayOfYear || epochDay >= firstDayOfNextYear) {
+            // e.g. a holiday relative to Easter which falls in another year, or NO_DAY
+            return;
+        }
+        int month = MONTHS_IN_YEAR - 1;
+        while(epochDay < monthStarts[month]) {
+            month--;
+        }
+        masks[month] |= 1 << (epochDay - monthStarts[month]);
+    }
+}
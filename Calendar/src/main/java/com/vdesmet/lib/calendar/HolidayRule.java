@@ -0,0 +1,204 @@
+package com.vdesmet.lib.calendar;
+
+import java.util.Calendar;
+
+/**
+ * A rule which calculates the date of a single holiday in a given year.
+ * Use the static factory methods to create a rule.
+ *
+ * @see com.vdesmet.lib.calendar.HolidayRegion
+ */
+public final class HolidayRule {
+    public static final int LAST = -1;
+    // returned by getEpochDay() when the holiday doesn't occur in a year, e.g. 29 February
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    private static final int TYPE_FIXED = 0;
+    private static final int TYPE_NTH_WEEKDAY = 1;
+    private static final int TYPE_EASTER = 2;
+    private static final int TYPE_FIXED_OBSERVED = 3;
+
+    private static final int DAYS_IN_WEEK = 7;
+
+    private final int mType;
+    private final int mMonth;
+    private final int mDay;
+    private final int mDayOfWeek;
+    private final int mDaysMoved;
+
+    private HolidayRule(final int type, final int month, final int day, final int dayOfWeek, final int daysMoved) {
+        mType = type;
+        mMonth = month;
+        mDay = day;
+        mDayOfWeek = dayOfWeek;
+        mDaysMoved = daysMoved;
+    }
+
+    /**
+     * A holiday on the same date every year, for example Christmas: fixed(Calendar.DECEMBER, 25).
+     * A holiday on 29 February only occurs in leap years.
+     *
+     * @param month      The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @param dayOfMonth The day of the month
+     * @return The rule
+     */
+    public static HolidayRule fixed(final int month, final int dayOfMonth) {
+        checkDate(month, dayOfMonth);
+        return new HolidayRule(TYPE_FIXED, month, dayOfMonth, 0, 0);
+    }
+
+    /**
+     * A holiday on the same date every year, which moves when it falls on a certain day of the week.
+     * For example King's Day, which is observed on Saturday when 27 April is a Sunday:
+     * fixedMovedOn(Calendar.APRIL, 27, Calendar.SUNDAY, -1)
+     *
+     * @param month      The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @param dayOfMonth The day of the month
+     * @param dayOfWeek  The day of the week on which the holiday moves, e.g. Calendar.SUNDAY
+     * @param daysMoved  The number of days the holiday moves, negative to move it to an earlier day
+     * @return The rule
+     */
+    public static HolidayRule fixedMovedOn(final int month, final int dayOfMonth, final int dayOfWeek,
+                                           final int daysMoved) {
+        checkDate(month, dayOfMonth);
+        if(dayOfWeek < Calendar.SUNDAY || dayOfWeek > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("day must be between " + Calendar.SUNDAY + " and " + Calendar.SATURDAY);
+        }
+        return new HolidayRule(TYPE_FIXED, month, dayOfMonth, dayOfWeek, daysMoved);
+    }
+
+    /**
+     * A holiday on the same date every year, which is observed on Friday when it falls on a Saturday, and on Monday
+     * when it falls on a Sunday. For example Independence Day in the United States: fixedObserved(Calendar.JULY, 4).
+     * The observed day may be in another year, e.g. New Year's Day on a Saturday is observed on 31 December.
+     *
+     * @param month      The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @param dayOfMonth The day of the month
+     * @return The rule
+     */
+    public static HolidayRule fixedObserved(final int month, final int dayOfMonth) {
+        checkDate(month, dayOfMonth);
+        return new HolidayRule(TYPE_FIXED_OBSERVED, month, dayOfMonth, 0, 0);
+    }
+
+    private static void checkDate(final int month, final int dayOfMonth) {
+        if(month < Calendar.JANUARY || month > Calendar.DECEMBER) {
+            throw new IllegalArgumentException("month must be between " + Calendar.JANUARY + " and " + Calendar.DECEMBER);
+        }
+        // 2000 is a leap year, so 29 February is accepted
+        if(dayOfMonth < 1 || dayOfMonth > DayUtils.getDaysInMonth(2000, month)) {
+            throw new IllegalArgumentException("dayOfMonth is not valid for this month. dayOfMonth: " + dayOfMonth);
+        }
+    }
+
+    /**
+     * A holiday on the nth day of the week in a month,
+     * for example Thanksgiving: nthWeekday(Calendar.NOVEMBER, Calendar.THURSDAY, 4)
+     *
+     * @param month     The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @param dayOfWeek The day of the week, e.g. Calendar.MONDAY
+     * @param n         1 for the first occurrence in the month, 2 for the second, etc. Or LAST for the last one
+     * @return The rule
+     */
+    public static HolidayRule nthWeekday(final int month, final int dayOfWeek, final int n) {
+        if(month < Calendar.JANUARY || month > Calendar.DECEMBER) {
+            throw new IllegalArgumentException("month must be between " + Calendar.JANUARY + " and " + Calendar.DECEMBER);
+        }
+        if(dayOfWeek < Calendar.SUNDAY || dayOfWeek > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("day must be between " + Calendar.SUNDAY + " and " + Calendar.SATURDAY);
+        }
+        if(n != LAST && (n < 1 || n > 4)) {
+            throw new IllegalArgumentException("n must be between 1 and 4, or LAST");
+        }
+        return new HolidayRule(TYPE_NTH_WEEKDAY, month, n, dayOfWeek, 0);
+    }
+
+    /**
+     * A holiday relative to (western) Easter Sunday, for example Easter Monday: easter(1)
+     *
+     * @param daysAfterEaster The number of days after Easter Sunday, may be negative
+     * @return The rule
+     */
+    public static HolidayRule easter(final int daysAfterEaster) {
+        return new HolidayRule(TYPE_EASTER, 0, daysAfterEaster, 0, 0);
+    }
+
+    /**
+     * Calculate the date of this holiday
+     *
+     * @param year The year, e.g. 2013
+     * @return The date as epoch day, or NO_DAY if the holiday doesn't occur in this year
+     * @see com.vdesmet.lib.calendar.DayUtils#toEpochDay(int, int, int)
+     */
+    public int getEpochDay(final int year) {
+        switch(mType) {
+            case TYPE_FIXED: {
+                if(mDay > DayUtils.getDaysInMonth(year, mMonth)) {
+                    // 29 February in a year which isn't a leap year
+                    return NO_DAY;
+                }
+                final int epochDay = DayUtils.toEpochDay(year, mMonth, mDay);
+                // mDayOfWeek is 0 if the holiday never moves
+                return DayUtils.getDayOfWeek(epochDay) == mDayOfWeek ? epochDay + mDaysMoved : epochDay;
+            }
+
+            case TYPE_FIXED_OBSERVED: {
+                if(mDay > DayUtils.getDaysInMonth(year, mMonth)) {
+                    return NO_DAY;
+                }
+                final int epochDay = DayUtils.toEpochDay(year, mMonth, mDay);
+                switch(DayUtils.getDayOfWeek(epochDay)) {
+                    case Calendar.SATURDAY:
+                        return epochDay - 1;
+                    case Calendar.SUNDAY:
+                        return epochDay + 1;
+                    default:
+                        return epochDay;
+                }
+            }
+
+            case TYPE_NTH_WEEKDAY:
+                if(mDay == LAST) {
+                    // move back from the last day of the month
+                    final int lastDay = DayUtils.toEpochDay(year, mMonth, DayUtils.getDaysInMonth(year, mMonth));
+                    final int daysBack = (DayUtils.getDayOfWeek(lastDay) - mDayOfWeek + DAYS_IN_WEEK) % DAYS_IN_WEEK;
+                    return lastDay - daysBack;
+                } else {
+                    // move forward from the first day of the month
+                    final int firstDay = DayUtils.toEpochDay(year, mMonth, 1);
+                    final int daysForward = (mDayOfWeek - DayUtils.getDayOfWeek(firstDay) + DAYS_IN_WEEK) % DAYS_IN_WEEK;
+                    return firstDay + daysForward + (mDay - 1) * DAYS_IN_WEEK;
+                }
+
+            case TYPE_EASTER:
+                return getEasterSunday(year) + mDay;
+
+            default:
+                throw new IllegalStateException("Unknown holiday rule type: " + mType);
+        }
+    }
+
+    /**
+     * Calculate Easter Sunday in the Gregorian calendar, using the anonymous Gregorian algorithm
+     *
+     * @param year The year, e.g. 2013
+     * @return Easter Sunday as epoch day
+     */
+    public static int getEasterSunday(final int year) {
+        final int a = year % 19;
+        final int b = year / 100;
+        final int c = year % 100;
+        final int d = b / 4;
+        final int e = b % 4;
+        final int f = (b + 8) / 25;
+        final int g = (b - f + 1) / 3;
+        final int h = (19 * a + b - d - g + 15) % 30;
+        final int i = c / 4;
+        final int k = c % 4;
+        final int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        final int m = (a + 11 * h + 22 * l) / 451;
+        final int month = (h + l - 7 * m + 114) / 31;       // 3 = March, 4 = April
+        final int day = ((h + l - 7 * m + 114) % 31) + 1;
+        return DayUtils.toEpochDay(year, month - 1, day);
+    }
+}
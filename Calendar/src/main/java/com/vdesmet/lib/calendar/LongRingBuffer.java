@@ -0,0 +1,54 @@
+package com.vdesmet.lib.calendar;
+
+/**
+ * Fixed size buffer of the most recent values. Adding a value never allocates.
+ */
+class LongRingBuffer {
+    private final long[] mValues;
+    private int mNext;
+    private int mSize;
+
+    LongRingBuffer(final int capacity) {
+        mValues = new long[capacity];
+    }
+
+    void add(final long value) {
+        mValues[mNext] = value;
+        mNext = (mNext + 1) % mValues.length;
+        if(mSize < mValues.length) {
+            mSize++;
+        }
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @param index 0 is the oldest value, size() - 1 the most recent
+     */
+    long get(final int index) {
+        final int capacity = mValues.length;
+        return mValues[(mNext - mSize + index + capacity) % capacity];
+    }
+
+    long getLast() {
+        return mSize == 0 ? 0 : get(mSize - 1);
+    }
+
+    long getAverage() {
+        if(mSize == 0) {
+            return 0;
+        }
+        long total = 0;
+        for(int i = 0; i < mSize; i++) {
+            total += mValues[i];
+        }
+        return total / mSize;
+    }
+
+    void clear() {
+        mNext = 0;
+        mSize = 0;
+    }
+}
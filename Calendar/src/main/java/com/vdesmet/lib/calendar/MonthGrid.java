@@ -0,0 +1,100 @@
+package com.vdesmet.lib.calendar;
+
+/**
+ * The layout of the days of a month in rows and columns, the same way a CalendarView shows them.
+ * Every row starts at the first day of the week, and the days of the previous and next month fill
+ * the first and last row. Plain Java, so it can be used on any thread and without Android.
+ */
+public final class MonthGrid {
+    private static final int DAYS_IN_WEEK = 7;
+
+    private final int mYear;
+    private final int mMonth;
+    private final int mFirstDayOfWeek;
+    private final int mColumnCount;
+    private final int mRowCount;
+    private final int mFirstDayInGrid;
+    private final int mFirstDayOfMonth;
+    private final int mDaysInMonth;
+    private final int mDaysInPreviousMonth;
+
+    /**
+     * @param year           The year, e.g. 2013
+     * @param month          The month, between Calendar.JANUARY and Calendar.DECEMBER
+     * @param firstDayOfWeek The day of the week in the first column, e.g. Calendar.MONDAY
+     * @param lastDayOfWeek  The day of the week in the last column, e.g. Calendar.SUNDAY or Calendar.FRIDAY
+     */
+    public MonthGrid(final int year, final int month, final int firstDayOfWeek, final int lastDayOfWeek) {
+        mYear = year;
+        mMonth = month;
+        mFirstDayOfWeek = firstDayOfWeek;
+        mColumnCount = (lastDayOfWeek - firstDayOfWeek + DAYS_IN_WEEK) % DAYS_IN_WEEK + 1;
+
+        mFirstDayOfMonth = DayUtils.toEpochDay(year, month, 1);
+        mDaysInMonth = DayUtils.getDaysInMonth(year, month);
+        mDaysInPreviousMonth = month == 0 ?
+                DayUtils.getDaysInMonth(year - 1, 11) : DayUtils.getDaysInMonth(year, month - 1);
+
+        // go back to the first day of the week, on or before the first day of the month
+        final int daysBefore = (DayUtils.getDayOfWeek(mFirstDayOfMonth) - firstDayOfWeek + DAYS_IN_WEEK) % DAYS_IN_WEEK;
+        mFirstDayInGrid = mFirstDayOfMonth - daysBefore;
+        // a row is needed as long as it starts before the end of the month
+        mRowCount = (mFirstDayOfMonth + mDaysInMonth - 1 - mFirstDayInGrid) / DAYS_IN_WEEK + 1;
+    }
+
+    public int getYear() {
+        return mYear;
+    }
+
+    public int getMonth() {
+        return mMonth;
+    }
+
+    /**
+     * @return The number of days in a row, 1 - 7
+     */
+    public int getColumnCount() {
+        return mColumnCount;
+    }
+
+    /**
+     * @return The number of weeks, 4 - 6
+     */
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    /**
+     * @return The day of the week shown in a column, e.g. Calendar.MONDAY
+     */
+    public int getDayOfWeek(final int column) {
+        return (mFirstDayOfWeek - 1 + column) % DAYS_IN_WEEK + 1;
+    }
+
+    /**
+     * @return The day in a cell as epoch day, see DayUtils
+     */
+    public int getEpochDay(final int row, final int column) {
+        return mFirstDayInGrid + row * DAYS_IN_WEEK + column;
+    }
+
+    /**
+     * @return Whether the epoch day is part of this month, instead of the previous or next month
+     */
+    public boolean isInMonth(final int epochDay) {
+        return epochDay >= mFirstDayOfMonth && epochDay < mFirstDayOfMonth + mDaysInMonth;
+    }
+
+    /**
+     * @return The day of the month of an epoch day in the grid, also for the days of the previous and next month
+     */
+    public int getDayOfMonth(final int epochDay) {
+        final int dayOfMonth = epochDay - mFirstDayOfMonth + 1;
+        if(dayOfMonth < 1) {
+            return mDaysInPreviousMonth + dayOfMonth;
+        } else if(dayOfMonth > mDaysInMonth) {
+            return dayOfMonth - mDaysInMonth;
+        }
+        return dayOfMonth;
+    }
+}
@@ -0,0 +1,177 @@
+package com.vdesmet.lib.calendar;
+
+import android.util.SparseArray;
+
+/**
+ * Cache of the answers of the DayAdapter for every day of a month: whether the day is enabled and its categories.
+ * Shared between the pages of a MultiCalendarView, and retained across a configuration change,
+ * so a restored Calendar doesn't query the adapter again.
+ */
+class MonthModelCache implements CalendarCaches.TrimmableCache {
+    // a model has two arrays of 31 entries, plus the arrays of category colors
+    private static final int MODEL_BYTES = 300;
+
+    private final SparseArray<MonthModel> mModels;
+    private DayAdapter mAdapter;
+    // true after a restore, the next adapter is assumed to return the same data as the previous one
+    private boolean mAdoptsNextAdapter;
+    // the most recently requested month, months far away from it are dropped first
+    private int mLastMonthKey;
+
+    MonthModelCache() {
+        mModels = new SparseArray<MonthModel>();
+        CalendarCaches.register(this);
+    }
+
+    /**
+     * Retrieve the model of a month, creating an empty model if needed
+     *
+     * @param adapter  The adapter, the models are dropped when it changes
+     * @param monthKey The month, see DayUtils.getMonthKey()
+     * @return The model
+     */
+    MonthModel get(final DayAdapter adapter, final int monthKey) {
+        if(adapter != mAdapter) {
+            if(!mAdoptsNextAdapter) {
+                // another adapter, the cached answers are useless
+                mModels.clear();
+            }
+            mAdapter = adapter;
+        }
+        mAdoptsNextAdapter = false;
+        mLastMonthKey = monthKey;
+
+        MonthModel model = mModels.get(monthKey);
+        if(model == null) {
+            model = new MonthModel();
+            mModels.put(monthKey, model);
+            CalendarCaches.enforceBudget();
+        }
+        return model;
+    }
+
+    /**
+     * Keep the models when the adapter is replaced by the new instance of the same adapter,
+     * e.g. after the Activity was recreated
+     */
+    void adoptNextAdapter() {
+        mAdoptsNextAdapter = true;
+    }
+
+    /**
+     * Forget the answers for a single day
+     */
+    void remove(final int monthKey, final int dayOfMonth) {
+        final MonthModel model = mModels.get(monthKey);
+        if(model != null) {
+            model.forget(dayOfMonth);
+        }
+    }
+
+    void clear() {
+        mModels.clear();
+    }
+
+    /**
+     * Copy the answers, without a reference to the adapter, so a copy can be retained without leaking it
+     *
+     * @return A new cache with copies of the models
+     */
+    MonthModelCache copyAnswers() {
+        final MonthModelCache copy = new MonthModelCache();
+        final SparseArray<MonthModel> models = mModels;
+        final int size = models.size();
+        for(int i = 0; i < size; i++) {
+            copy.mModels.append(models.keyAt(i), models.valueAt(i).copy());
+        }
+        copy.mLastMonthKey = mLastMonthKey;
+        return copy;
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        return (long) mModels.size() * MODEL_BYTES;
+    }
+
+    @Override
+    public void trimToSize(final long maxBytes) {
+        final SparseArray<MonthModel> models = mModels;
+        final long maxModels = maxBytes / MODEL_BYTES;
+        int size = models.size();
+        while(size > maxModels) {
+            // the keys are sorted, so the month furthest away is either the first or the last
+            final int first = models.keyAt(0);
+            final int last = models.keyAt(size - 1);
+            models.delete(mLastMonthKey - first > last - mLastMonthKey ? first : last);
+            size--;
+        }
+    }
+
+    /**
+     * The answers of the adapter for the days of a single month. Bit 0 of the masks is the first day of the month.
+     */
+    static final class MonthModel {
+        private static final int MAX_DAYS_IN_MONTH = 31;
+
+        private int mEnabledKnownMask;
+        private int mEnabledMask;
+        private int mCategoriesKnownMask;
+        private final int[] mCategoryMasks = new int[MAX_DAYS_IN_MONTH];
+        private final int[][] mCategoryColors = new int[MAX_DAYS_IN_MONTH][];
+
+        boolean hasEnabled(final int dayOfMonth) {
+            return (mEnabledKnownMask & (1 << (dayOfMonth - 1))) != 0;
+        }
+
+        boolean isEnabled(final int dayOfMonth) {
+            return (mEnabledMask & (1 << (dayOfMonth - 1))) != 0;
+        }
+
+        void setEnabled(final int dayOfMonth, final boolean enabled) {
+            final int bit = 1 << (dayOfMonth - 1);
+            mEnabledKnownMask |= bit;
+            mEnabledMask = enabled ? mEnabledMask | bit : mEnabledMask & ~bit;
+        }
+
+        boolean hasCategories(final int dayOfMonth) {
+            return (mCategoriesKnownMask & (1 << (dayOfMonth - 1))) != 0;
+        }
+
+        int getCategoryMask(final int dayOfMonth) {
+            return mCategoryMasks[dayOfMonth - 1];
+        }
+
+        int[] getCategoryColors(final int dayOfMonth) {
+            return mCategoryColors[dayOfMonth - 1];
+        }
+
+        void setCategoryMask(final int dayOfMonth, final int mask) {
+            mCategoriesKnownMask |= 1 << (dayOfMonth - 1);
+            mCategoryMasks[dayOfMonth - 1] = mask;
+        }
+
+        void setCategoryColors(final int dayOfMonth, final int[] colors) {
+            mCategoriesKnownMask |= 1 << (dayOfMonth - 1);
+            // copied, because an adapter may reuse its array for the next day
+            mCategoryColors[dayOfMonth - 1] = colors != null ? colors.clone() : null;
+        }
+
+        MonthModel copy() {
+            final MonthModel copy = new MonthModel();
+            copy.mEnabledKnownMask = mEnabledKnownMask;
+            copy.mEnabledMask = mEnabledMask;
+            copy.mCategoriesKnownMask = mCategoriesKnownMask;
+            System.arraycopy(mCategoryMasks, 0, copy.mCategoryMasks, 0, MAX_DAYS_IN_MONTH);
+            // the arrays of colors are copies owned by this model, which are never changed, only replaced
+            System.arraycopy(mCategoryColors, 0, copy.mCategoryColors, 0, MAX_DAYS_IN_MONTH);
+            return copy;
+        }
+
+        void forget(final int dayOfMonth) {
+            final int bit = 1 << (dayOfMonth - 1);
+            mEnabledKnownMask &= ~bit;
+            mCategoriesKnownMask &= ~bit;
+            mCategoryColors[dayOfMonth - 1] = null;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.vdesmet.lib.calendar;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import com.vdesmet.lib.calendar.factory.DayStyleFactory;
+
+import java.util.Calendar;
+
+/**
+ * Draws a month onto a Canvas or Bitmap without creating any views, e.g. for thumbnails in notifications
+ * or app widgets. It takes the same settings as a CalendarView.
+ * <p/>
+ * Rendering can happen on any thread, and a single renderer can render several months in parallel,
+ * as long as its settings aren't changed meanwhile. AvailabilityRules and DayLoadIndex are synchronized,
+ * but the DayAdapter is called from all rendering threads at once, so it must be thread-safe itself,
+ * which e.g. CompositeDayAdapter isn't. DayAdapter.updateTextView() and updateHeaderTextView() aren't
+ * called, since there are no TextViews; use a DecorationDayAdapter to change the looks of a day.
+ */
+public class MonthRenderer {
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    private static final int DAYS_IN_WEEK = 7;
+    // the text size, relative to the size of a day
+    private static final float DAY_TEXT_SCALE = 0.45f;
+    private static final float HEADER_TEXT_SCALE = 0.3f;
+
+    private final Context mContext;
+    private final Resources mResources;
+    private final int mDayBackgroundColor;
+
+    private int mDayStyle = DayStyleFactory.DEFAULT_STYLE;
+    private int mFirstDayOfWeek = Calendar.MONDAY;
+    private int mLastDayOfWeek = Calendar.SUNDAY;
+    private int mFirstValidDay = NO_DAY;
+    private int mLastValidDay = NO_DAY;
+    private boolean mShowHeaders = true;
+    private Typeface mTypeface;
+    private DayAdapter mDayAdapter;
+    private CategoryPalette mCategoryPalette;
+    private AvailabilityRules mAvailabilityRules;
+    private DayLoadIndex mDayLoadIndex;
+
+    public MonthRenderer(final Context context) {
+        mContext = context.getApplicationContext();
+        mResources = context.getResources();
+        mDayBackgroundColor = mResources.getColor(R.color.lib_calendar_day_background);
+    }
+
+    public void setDayStyle(final int dayStyle) {
+        if(!DayStyleFactory.isValidStyle(dayStyle)) {
+            throw new IllegalArgumentException("Day Style is invalid. Check DayStyleFactory for options");
+        }
+        mDayStyle = dayStyle;
+    }
+
+    public void setFirstDayOfWeek(final int day) {
+        if(day < Calendar.SUNDAY || day > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("day must be between " + Calendar.SUNDAY + " and " + Calendar.SATURDAY);
+        }
+        mFirstDayOfWeek = day;
+    }
+
+    public void setLastDayOfWeek(final int day) {
+        if(day < Calendar.SUNDAY || day > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("day must be between " + Calendar.SUNDAY + " and " + Calendar.SATURDAY);
+        }
+        mLastDayOfWeek = day;
+    }
+
+    /**
+     * @param firstValidDay The days before this day are disabled, or null to enable all days
+     */
+    public void setFirstValidDay(final Calendar firstValidDay) {
+        mFirstValidDay = firstValidDay != null ? DayUtils.toEpochDay(firstValidDay) : NO_DAY;
+    }
+
+    /**
+     * @param lastValidDay The days after this day are disabled, or null to enable all days
+     */
+    public void setLastValidDay(final Calendar lastValidDay) {
+        mLastValidDay = lastValidDay != null ? DayUtils.toEpochDay(lastValidDay) : NO_DAY;
+    }
+
+    public void setHeadersVisible(final boolean visible) {
+        mShowHeaders = visible;
+    }
+
+    /**
+     * @param typeface The typeface, or null for the default typeface. Loading the default typeface blocks
+     *                 the first render, so render on a background thread or call CalendarResources.warmUp()
+     */
+    public void setTypeface(final Typeface typeface) {
+        mTypeface = typeface;
+    }
+
+    public void setDayAdapter(final DayAdapter adapter) {
+        mDayAdapter = adapter;
+    }
+
+    public void setCategoryPalette(final CategoryPalette palette) {
+        mCategoryPalette = palette;
+    }
+
+    public void setAvailabilityRules(final AvailabilityRules rules) {
+        mAvailabilityRules = rules;
+    }
+
+    public void setDayLoadIndex(final DayLoadIndex index) {
+        mDayLoadIndex = index;
+    }
+
+    /**
+     * Draw a month onto the whole bitmap
+     *
+     * @param bitmap A mutable bitmap
+     * @param year   The year, e.g. 2013
+     * @param month  The month, between Calendar.JANUARY and Calendar.DECEMBER
+     */
+    public void render(final Bitmap bitmap, final int year, final int month) {
+        render(new Canvas(bitmap), bitmap.getWidth(), bitmap.getHeight(), year, month);
+    }
+
+    /**
+     * Draw a month at the origin of the canvas
+     *
+     * @param canvas The canvas
+     * @param width  The width available for the month
+     * @param height The height available for the month
+     * @param year   The year, e.g. 2013
+     * @param month  The month, between Calendar.JANUARY and Calendar.DECEMBER
+     */
+    public void render(final Canvas canvas, final int width, final int height, final int year, final int month) {
+        final MonthGrid grid = new MonthGrid(year, month, mFirstDayOfWeek, mLastDayOfWeek);
+        final CalendarResources calendarResources = CalendarResources.getInstance(mContext);
+        final Typeface typeface = mTypeface != null ? mTypeface : CalendarResources.getDefaultTypeface(mContext);
+        final int dayStyle = mDayStyle;
+        final int columnCount = grid.getColumnCount();
+        final int rowCount = grid.getRowCount();
+
+        // the headers take half the height of a week
+        final float headerHeight = mShowHeaders ? height / (rowCount * 2f + 1f) : 0f;
+        final float dayWidth = (float) width / columnCount;
+        final float dayHeight = (height - headerHeight) / rowCount;
+        final float daySize = Math.min(dayWidth, dayHeight);
+
+        // every render has its own paints, so months can be rendered in parallel
+        final Paint fillPaint = new Paint();
+        final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setTypeface(typeface);
+
+        fillPaint.setColor(mResources.getColor(DayStyleFactory.getBackgroundResourceForStyle(dayStyle)));
+        canvas.drawRect(0, 0, width, height, fillPaint);
+
+        if(mShowHeaders) {
+            textPaint.setTextSize(daySize * HEADER_TEXT_SCALE);
+            textPaint.setColor(calendarResources.getDayTextColor());
+            for(int column = 0; column < columnCount; column++) {
+                drawCenteredText(canvas, textPaint, calendarResources.getDayName(grid.getDayOfWeek(column)),
+                        (column + 0.5f) * dayWidth, headerHeight / 2f);
+            }
+        }
+
+        final DayRenderer dayRenderer = new DayRenderer(grid, calendarResources, typeface, fillPaint, textPaint,
+                daySize);
+        for(int row = 0; row < rowCount; row++) {
+            final float top = headerHeight + row * dayHeight;
+            for(int column = 0; column < columnCount; column++) {
+                final float left = column * dayWidth;
+                dayRenderer.render(canvas, grid.getEpochDay(row, column), left, top, left + dayWidth, top + dayHeight);
+            }
+        }
+    }
+
+    private static void drawCenteredText(final Canvas canvas, final Paint paint, final String text,
+                                         final float centerX, final float centerY) {
+        canvas.drawText(text, centerX, centerY - (paint.ascent() + paint.descent()) / 2f, paint);
+    }
+
+    /**
+     * The state of a single render call, which draws the days one by one
+     */
+    private class DayRenderer {
+        private final MonthGrid mGrid;
+        private final CalendarResources mCalendarResources;
+        private final Typeface mDayTypeface;
+        private final Paint mFillPaint;
+        private final Paint mTextPaint;
+        private final float mDayTextSize;
+        private final Calendar mCalendar = Calendar.getInstance();
+        // the typeface of each style of DayDecoration, created when needed
+        private final Typeface[] mStyledTypefaces = new Typeface[Typeface.BOLD_ITALIC + 1];
+
+        private final int mEnabledMask;
+        private final int mMaxLoad;
+        private final boolean mShowLoad;
+        // the load of every day in the grid, copied at once so the days and the maximum match
+        private final int[] mLoads;
+        private final int mFirstDayInGrid;
+
+        DayRenderer(final MonthGrid grid, final CalendarResources calendarResources, final Typeface typeface,
+                    final Paint fillPaint, final Paint textPaint, final float daySize) {
+            mGrid = grid;
+            mCalendarResources = calendarResources;
+            mDayTypeface = typeface;
+            mFillPaint = fillPaint;
+            mTextPaint = textPaint;
+            mDayTextSize = daySize * DAY_TEXT_SCALE;
+
+            // compile the availability rules and the load of this month once
+            mEnabledMask = mAvailabilityRules != null ?
+                    mAvailabilityRules.getEnabledMask(grid.getYear(), grid.getMonth()) : -1;
+            mFirstDayInGrid = grid.getEpochDay(0, 0);
+            final DayLoadIndex dayLoadIndex = mDayLoadIndex;
+            mShowLoad = mDayStyle == DayStyleFactory.DAY_STYLE_HEATMAP && dayLoadIndex != null;
+            if(mShowLoad) {
+                // the index might be changed by another thread meanwhile
+                final int dayCount = grid.getRowCount() * DAYS_IN_WEEK;
+                mLoads = new int[dayCount];
+                synchronized(dayLoadIndex) {
+                    mMaxLoad = dayLoadIndex.getMaxLoad();
+                    for(int i = 0; i < dayCount; i++) {
+                        mLoads[i] = dayLoadIndex.getLoadForEpochDay(mFirstDayInGrid + i);
+                    }
+                }
+            } else {
+                mLoads = null;
+                mMaxLoad = 0;
+            }
+        }
+
+        void render(final Canvas canvas, final int epochDay, final float left, final float top,
+                    final float right, final float bottom) {
+            final DayAdapter adapter = mDayAdapter;
+            final CalendarResources calendarResources = mCalendarResources;
+            final Paint fillPaint = mFillPaint;
+            final Paint textPaint = mTextPaint;
+            final int dayOfMonth = mGrid.getDayOfMonth(epochDay);
+            final Calendar calendar = mCalendar;
+            DayUtils.setToEpochDay(calendar, epochDay);
+            final long dayInMillis = calendar.getTimeInMillis();
+
+            // the tiled style leaves a line between the days, like the background of its views
+            final float gap = mDayStyle == DayStyleFactory.DAY_STYLE_TILED ? 1f : 0f;
+            textPaint.setTextSize(mDayTextSize);
+            textPaint.setTypeface(mDayTypeface);
+
+            // the same rules as CalendarView, see CalendarView.bindDay()
+            if(!mGrid.isInMonth(epochDay) ||
+                    (mEnabledMask & (1 << (dayOfMonth - 1))) == 0 ||
+                    (adapter != null && !adapter.isDayEnabled(dayInMillis)) ||
+                    (mFirstValidDay != NO_DAY && epochDay < mFirstValidDay) ||
+                    (mLastValidDay != NO_DAY && epochDay > mLastValidDay)) {
+                fillRect(canvas, calendarResources.getDayDisabledBackgroundColor(mDayStyle),
+                        left + gap, top + gap, right, bottom);
+                textPaint.setColor(calendarResources.getDayDisabledTextColor());
+                drawCenteredText(canvas, textPaint, calendarResources.getDayNumber(dayOfMonth),
+                        (left + right) / 2f, (top + bottom) / 2f);
+                return;
+            }
+
+            int backgroundColor;
+            if(mShowLoad) {
+                backgroundColor = DayStyleFactory.getHeatmapColor(calendarResources.getHeatmapLowColor(),
+                        calendarResources.getHeatmapHighColor(), mLoads[epochDay - mFirstDayInGrid], mMaxLoad);
+            } else {
+                backgroundColor = mDayStyle == DayStyleFactory.DAY_STYLE_TILED ? mDayBackgroundColor : 0;
+            }
+            int textColor = calendarResources.getDayTextColor();
+            String badge = null;
+
+            if(adapter instanceof DecorationDayAdapter) {
+                final DayDecoration decoration = ((DecorationDayAdapter) adapter).getDecoration(dayInMillis);
+                if(decoration != null) {
+                    if(decoration.getTextColor() != DayDecoration.DEFAULT_COLOR) {
+                        textColor = decoration.getTextColor();
+                    }
+                    if(decoration.getBackgroundColor() != DayDecoration.DEFAULT_COLOR) {
+                        backgroundColor = decoration.getBackgroundColor();
+                    }
+                    if(decoration.getTypefaceStyle() != Typeface.NORMAL) {
+                        textPaint.setTypeface(getStyledTypeface(decoration.getTypefaceStyle()));
+                    }
+                    badge = decoration.getBadge();
+                }
+            }
+
+            fillRect(canvas, backgroundColor, left + gap, top + gap, right, bottom);
+            textPaint.setColor(textColor);
+            drawCenteredText(canvas, textPaint, calendarResources.getDayNumber(dayOfMonth),
+                    (left + right) / 2f, (top + bottom) / 2f);
+
+            if(badge != null) {
+                final float padding = calendarResources.getBadgePadding();
+                textPaint.setTypeface(mDayTypeface);
+                textPaint.setTextSize(calendarResources.getBadgeTextSize());
+                textPaint.setColor(calendarResources.getBadgeTextColor());
+                textPaint.setTextAlign(Paint.Align.RIGHT);
+                canvas.drawText(badge, right - padding, top + padding - textPaint.ascent(), textPaint);
+                textPaint.setTextAlign(Paint.Align.CENTER);
+            }
+
+            if(adapter != null && !mShowLoad) {
+                drawCategories(canvas, adapter, dayInMillis, left, right, bottom);
+            }
+        }
+
+        /**
+         * Draw the categories as small squares in a row, centered at the bottom of the day
+         */
+        private void drawCategories(final Canvas canvas, final DayAdapter adapter, final long dayInMillis,
+                                    final float left, final float right, final float bottom) {
+            final CategoryPalette palette = mCategoryPalette;
+            final int[] colors;
+            if(palette != null && adapter instanceof CategoryMaskAdapter) {
+                colors = palette.getColors(((CategoryMaskAdapter) adapter).getCategoryMask(dayInMillis));
+            } else {
+                colors = adapter.getCategoryColors(dayInMillis);
+            }
+            if(colors == null || colors.length == 0) {
+                return;
+            }
+
+            // the category height includes the padding below the categories
+            final float size = mCalendarResources.getCategoryHeight() / 2f;
+            final float spacing = size / 2f;
+            final float totalWidth = colors.length * size + (colors.length - 1) * spacing;
+            float categoryLeft = (left + right - totalWidth) / 2f;
+            final float categoryBottom = bottom - size;
+            for(final int color : colors) {
+                fillRect(canvas, color, categoryLeft, categoryBottom - size, categoryLeft + size, categoryBottom);
+                categoryLeft += size + spacing;
+            }
+        }
+
+        private void fillRect(final Canvas canvas, final int color, final float left, final float top,
+                              final float right, final float bottom) {
+            if(color == 0) {
+                // transparent, nothing to draw
+                return;
+            }
+            mFillPaint.setColor(color);
+            canvas.drawRect(left, top, right, bottom, mFillPaint);
+        }
+
+        private Typeface getStyledTypeface(final int style) {
+            if(mStyledTypefaces[style] == null) {
+                mStyledTypefaces[style] = Typeface.create(mDayTypeface, style);
+            }
+            return mStyledTypefaces[style];
+        }
+    }
+}
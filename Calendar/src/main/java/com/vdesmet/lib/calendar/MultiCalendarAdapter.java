@@ -3,9 +3,12 @@ package com.vdesmet.lib.calendar;
 import android.content.Context;
 import android.graphics.Typeface;
 import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewCompat;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.LinearLayout;
 
 import com.viewpagerindicator.TitleProvider;
 
@@ -14,6 +17,8 @@ import java.util.Calendar;
 public class MultiCalendarAdapter extends PagerAdapter implements TitleProvider {
     private final Context mContext;
     private final MultiCalendarView mCalendarView;
+    // the titles of pages with several months, by position
+    private final SparseArray<String> mRangeTitles = new SparseArray<String>();
 
     public MultiCalendarAdapter(final Context context, final MultiCalendarView calendarView) {
         super();
@@ -38,24 +43,124 @@ public class MultiCalendarAdapter extends PagerAdapter implements TitleProvider
             final int diffMonths = (years * 12) + months;
 
             // January - February is 1 month later, but we have 2 months to show
-            return diffMonths + 1;
+            final int monthCount = diffMonths + 1;
+
+            // a page shows several months, the last page may have empty columns
+            final int monthsPerPage = calendarView.getMonthsPerPage();
+            return (monthCount + monthsPerPage - 1) / monthsPerPage;
         }
         return 0;
     }
 
+    @Override
+    public void notifyDataSetChanged() {
+        // the first month or the number of months per page might have changed
+        mRangeTitles.clear();
+        super.notifyDataSetChanged();
+    }
+
     @Override
     public void destroyItem(final ViewGroup container, final int position, final Object item) {
         if(item instanceof View) {
-            container.removeView((View) item);
+            final MultiCalendarView calendarView = mCalendarView;
+            final View page = (View) item;
+            final int columnCount = calendarView.getMonthViewCount(page);
+            for(int column = 0; column < columnCount; column++) {
+                final CalendarView monthView = calendarView.getMonthView(page, column);
+                if(monthView != null) {
+                    // the page left before it was bound with the adapter
+                    monthView.cancelUpgrade();
+                }
+            }
+            container.removeView(page);
+            for(int column = 0; column < columnCount; column++) {
+                final CalendarView monthView = calendarView.getMonthView(page, column);
+                if(monthView != null) {
+                    // the page is gone for good, don't keep the adapter and listeners alive through it
+                    monthView.releaseReferences();
+                }
+            }
         }
     }
 
     @Override
     public View instantiateItem(final ViewGroup container, final int position) {
+        final CalendarMetricsListener metricsListener = mCalendarView.getMetricsListener();
+        if(metricsListener == null) {
+            return createPage(container, position);
+        }
+        CalendarTrace.beginSection("MultiCalendarAdapter#instantiateItem");
+        final long start = System.nanoTime();
+        final View page = createPage(container, position);
+        metricsListener.onPageInstantiated(position, System.nanoTime() - start);
+        CalendarTrace.endSection();
+        return page;
+    }
 
-        // initialize variables
+    private View createPage(final ViewGroup container, final int position) {
         final MultiCalendarView multiCalendarView = mCalendarView;
         final Context context = multiCalendarView.getContext();
+        final int monthsPerPage = multiCalendarView.getMonthsPerPage();
+        final View page;
+
+        if(monthsPerPage == 1) {
+            // create the View. Note that we use a container around the CalendarView to support wrap_content
+            final LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+            page = inflater.inflate(R.layout.lib_calendar_single_month, container, false);
+            multiCalendarView.mInflatedViewCount++;
+            setupMonthView((CalendarView) page.findViewById(R.id.lib_calendar_single_month), position);
+        } else {
+            // the months share a single row of headers and are built in the same layout pass
+            final LinearLayout columns = new LinearLayout(context);
+            columns.setOrientation(LinearLayout.HORIZONTAL);
+            final int monthMarginLeft = CalendarResources.getInstance(context).getMonthMarginLeft();
+            final int monthCount = getMonthCount();
+            for(int column = 0; column < monthsPerPage; column++) {
+                final int monthIndex = position * monthsPerPage + column;
+                final View columnView;
+                if(monthIndex < monthCount) {
+                    final CalendarView monthView = new CalendarView(context, false);
+                    setupMonthView(monthView, monthIndex);
+                    columnView = monthView;
+                } else {
+                    // keep the columns aligned with the headers after the last month
+                    columnView = new View(context);
+                }
+                columns.addView(columnView, MultiCalendarView.createColumnLayoutParams(monthMarginLeft));
+            }
+            page = columns;
+        }
+
+        // a page created while scrolling is drawn into a layer like the other pages
+        final int layerType = multiCalendarView.getPageLayerType();
+        if(layerType != ViewCompat.LAYER_TYPE_NONE) {
+            ViewCompat.setLayerType(page, layerType, null);
+        }
+
+        // return view
+        container.addView(page);
+
+        return page;
+    }
+
+    /**
+     * @return The number of months in the range of the MultiCalendarView
+     */
+    private int getMonthCount() {
+        final MultiCalendarView calendarView = mCalendarView;
+        return DayUtils.getMonthKey(calendarView.getLastValidDay()) -
+                DayUtils.getMonthKey(calendarView.getFirstValidDay()) + 1;
+    }
+
+    /**
+     * Apply the settings of the MultiCalendarView to the CalendarView of a single month
+     *
+     * @param monthView  The CalendarView
+     * @param monthIndex The index of the month, 0 for the month of the first valid day
+     */
+    private void setupMonthView(final CalendarView monthView, final int monthIndex) {
+        // initialize variables
+        final MultiCalendarView multiCalendarView = mCalendarView;
         final Calendar firstDay = multiCalendarView.getFirstValidDay();
         final Calendar lastDay = multiCalendarView.getLastValidDay();
         final DayAdapter dayAdapter = multiCalendarView.getDayAdapter();
@@ -64,20 +169,18 @@ public class MultiCalendarAdapter extends PagerAdapter implements TitleProvider
         final int lastDayOfWeek = multiCalendarView.getLastDayOfWeek();
         final int dayStyle = multiCalendarView.getDayStyle();
         final Typeface typeface = multiCalendarView.getTypeface();
-        final LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        final CategoryPalette categoryPalette = multiCalendarView.getCategoryPalette();
+        final AvailabilityRules availabilityRules = multiCalendarView.getAvailabilityRules();
+        final DayLoadIndex dayLoadIndex = multiCalendarView.getDayLoadIndex();
 
         // create first day of the monthView
         final Calendar firstMonthDay = Calendar.getInstance();
         firstMonthDay.setTimeInMillis(firstDay.getTimeInMillis());
-        firstMonthDay.add(Calendar.MONTH, position);
-        if(position != 0) {
+        firstMonthDay.add(Calendar.MONTH, monthIndex);
+        if(monthIndex != 0) {
             firstMonthDay.set(Calendar.DAY_OF_MONTH, 1);
         }
 
-        // create the View. Note that we use a container around the CalendarView to support wrap_content
-        final View monthViewContainer = inflater.inflate(R.layout.lib_calendar_single_month, container, false);
-        final CalendarView monthView = (CalendarView) monthViewContainer.findViewById(R.id.lib_calendar_single_month);
-
         monthView.setFirstValidDay(firstMonthDay);
 
         if(lastDay.get(Calendar.MONTH) == firstMonthDay.get(Calendar.MONTH)) {
@@ -89,7 +192,21 @@ public class MultiCalendarAdapter extends PagerAdapter implements TitleProvider
 
         // add adapter and onClickListener
         monthView.setOnDayClickListener(onDayClickListener);
+        monthView.setObservesAdapter(false);
         monthView.setDayAdapter(dayAdapter);
+        monthView.setCategoryPalette(categoryPalette);
+        monthView.setAvailabilityRules(availabilityRules);
+        monthView.setDayLoadIndex(dayLoadIndex);
+        monthView.setWeekSpanCache(multiCalendarView.getWeekSpanCache());
+        monthView.setDecorationCache(multiCalendarView.getDecorationCache());
+        monthView.setMonthModelCache(multiCalendarView.getMonthModelCache());
+        monthView.setSelection(multiCalendarView.getSelection());
+        monthView.setShowToday(multiCalendarView.isShowToday());
+        monthView.setMetricsListener(multiCalendarView.getMetricsListener());
+        monthView.setDebugOverlay(multiCalendarView.getDebugOverlay());
+        monthView.setSkeleton(multiCalendarView.isFastScrolling());
+        monthView.setHeadersVisible(multiCalendarView.isHeadersVisible() && !multiCalendarView.usesSharedHeaders());
+        monthView.setHeatmapColors(multiCalendarView.getHeatmapLowColor(), multiCalendarView.getHeatmapHighColor());
 
         // set first and last day of week
         monthView.setFirstDayOfWeek(firstDayOfWeek);
@@ -97,11 +214,6 @@ public class MultiCalendarAdapter extends PagerAdapter implements TitleProvider
 
         // set day style
         monthView.setDayStyle(dayStyle);
-
-        // return view
-        container.addView(monthViewContainer);
-
-        return monthViewContainer;
     }
 
     @Override
@@ -122,52 +234,26 @@ public class MultiCalendarAdapter extends PagerAdapter implements TitleProvider
      */
     @Override
     public String getTitle(final int position) {
-        final Context context = mContext;
-        final Calendar date = Calendar.getInstance();
-        date.setTimeInMillis((mCalendarView.getFirstValidDay().getTimeInMillis()));
-        date.add(Calendar.MONTH, position);
-
-        final String month;
-        switch(date.get(Calendar.MONTH)) {
-            case Calendar.JANUARY:
-                month = context.getString(R.string.lib_month_january);
-                break;
-            case Calendar.FEBRUARY:
-                month = context.getString(R.string.lib_month_february);
-                break;
-            case Calendar.MARCH:
-                month = context.getString(R.string.lib_month_march);
-                break;
-            case Calendar.APRIL:
-                month = context.getString(R.string.lib_month_april);
-                break;
-            case Calendar.MAY:
-                month = context.getString(R.string.lib_month_may);
-                break;
-            case Calendar.JUNE:
-                month = context.getString(R.string.lib_month_june);
-                break;
-            case Calendar.JULY:
-                month = context.getString(R.string.lib_month_july);
-                break;
-            case Calendar.AUGUST:
-                month = context.getString(R.string.lib_month_august);
-                break;
-            case Calendar.SEPTEMBER:
-                month = context.getString(R.string.lib_month_september);
-                break;
-            case Calendar.OCTOBER:
-                month = context.getString(R.string.lib_month_october);
-                break;
-            case Calendar.NOVEMBER:
-                month = context.getString(R.string.lib_month_november);
-                break;
-            default:
-            case Calendar.DECEMBER:
-                month = context.getString(R.string.lib_month_december);
-                break;
+        // This is called for every frame of the indicator, so don't create any objects
+        final CalendarResources calendarResources = CalendarResources.getInstance(mContext);
+        final int monthsPerPage = mCalendarView.getMonthsPerPage();
+        final int monthKey = DayUtils.getMonthKey(mCalendarView.getFirstValidDay()) + position * monthsPerPage;
+        final String firstTitle = calendarResources.getMonthTitle(
+                DayUtils.getYearFromMonthKey(monthKey), DayUtils.getMonthFromMonthKey(monthKey));
+        if(monthsPerPage == 1) {
+            return firstTitle;
         }
 
-        return month + " " + date.get(Calendar.YEAR);
+        // MARCH 2013 - APRIL 2013, created once for every page
+        String title = mRangeTitles.get(position);
+        if(title == null) {
+            // the last page may show fewer months
+            final int monthIndex = position * monthsPerPage;
+            final int lastMonthKey = monthKey + Math.min(monthsPerPage, getMonthCount() - monthIndex) - 1;
+            title = lastMonthKey == monthKey ? firstTitle : firstTitle + " - " + calendarResources.getMonthTitle(
+                    DayUtils.getYearFromMonthKey(lastMonthKey), DayUtils.getMonthFromMonthKey(lastMonthKey));
+            mRangeTitles.put(position, title);
+        }
+        return title;
     }
 }
@@ -1,24 +1,54 @@
 package com.vdesmet.lib.calendar;
 
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Typeface;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
 import android.util.AttributeSet;
+import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import com.viewpagerindicator.TitlePageIndicator;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 
 public class MultiCalendarView extends AbstractCalendarView {
+    // Never draw the pages into a hardware layer
+    public static final int LAYER_POLICY_NONE = 0;
+    // Draw the pages into a hardware layer while the ViewPager is scrolling
+    public static final int LAYER_POLICY_WHILE_SCROLLING = 1;
+    // Pages created while scrolling faster than this only show the day numbers
+    private static final float FAST_SCROLL_PAGES_PER_SECOND = 3f;
+    // The number of pages kept alive on either side of the current page, like the ViewPager does
+    public static final int DEFAULT_OFFSCREEN_PAGE_LIMIT = 1;
 
     private boolean mShowIndicator;
     private ViewPager mViewPager;
     private ViewPager.OnPageChangeListener mOnPageChangeListener;
+    private final PageChangeListener mPageChangeListener = new PageChangeListener();
+    private int mLayerPolicy = LAYER_POLICY_WHILE_SCROLLING;
+    private boolean mIsScrolling;
+    private boolean mUseFastScrollSkeletons = true;
+    private boolean mIsFastScrolling;
+    private float mLastScrollPosition;
+    private long mLastScrollTime;
+    private int mOffscreenPageLimit = DEFAULT_OFFSCREEN_PAGE_LIMIT;
     private MultiCalendarAdapter mAdapter;
-    private int mViewPagerPosition = -1;
+    // the first month to show when the ViewPager is created, counted from the month of the first valid day
+    private int mPendingMonthIndex = -1;
     private TitlePageIndicator mIndicator;
+    private boolean mUseSharedHeaders;
+    private ViewGroup mSharedHeaders;
+    private int mMonthsPerPage = 1;
+    // reused by getLiveMonthViews(), so notifying the pages doesn't allocate
+    private final ArrayList<CalendarView> mLiveMonthViews = new ArrayList<CalendarView>();
     private OnCalendarLoadedListener mOnCalendarLoadedListener;
 
     public MultiCalendarView(final Context context) {
@@ -44,88 +74,503 @@ public class MultiCalendarView extends AbstractCalendarView {
         mFirstDayOfWeek = Calendar.MONDAY;
         mLastDayOfWeek = Calendar.SUNDAY;
 
-        // Add ViewPager + TitlePageIndicator
+        // The ViewPager and TitlePageIndicator are created when we're measured with a valid range
+    }
+
+    /**
+     * Create the ViewPager, and the TitlePageIndicator if it's visible.
+     * Nothing happens if they're already created, or if the first valid day isn't set yet.
+     */
+    private void createPagerIfNeeded() {
+        if(mViewPager != null || mFirstValidDay == null) {
+            return;
+        }
         final ViewPager viewPager = new ViewPager(getContext());
+        viewPager.setOffscreenPageLimit(mOffscreenPageLimit);
         final MultiCalendarAdapter adapter = new MultiCalendarAdapter(getContext(), this);
         viewPager.setAdapter(adapter);
+        mAdapter = adapter;
+        mViewPager = viewPager;
+
+        if(mShowIndicator) {
+            createIndicator(true);
+        } else {
+            viewPager.setOnPageChangeListener(mPageChangeListener);
+        }
+        if(usesSharedHeaders() && mShowHeaders) {
+            mSharedHeaders = createSharedHeaders();
+            addViewInLayout(mSharedHeaders, -1, mSharedHeaders.getLayoutParams(), true);
+        }
+
+        // We're in a measure pass, so don't request another layout
+        addViewInLayout(viewPager, -1, generateDefaultLayoutParams(), true);
+    }
+
+    /**
+     * Create a single row of headers, aligned with the days of the pages
+     */
+    private ViewGroup createSharedHeaders() {
+        final int monthMarginLeft = CalendarResources.getInstance(getContext()).getMonthMarginLeft();
+        if(mMonthsPerPage > 1) {
+            // The headers of every column, laid out like the months of a page
+            final LinearLayout columns = new LinearLayout(getContext());
+            columns.setOrientation(HORIZONTAL);
+            for(int i = 0; i < mMonthsPerPage; i++) {
+                final LinearLayout headers = (LinearLayout) createHeaders(columns);
+                headers.setGravity(Gravity.CENTER_HORIZONTAL);
+                columns.addView(headers, createColumnLayoutParams(monthMarginLeft));
+            }
+            columns.setLayoutParams(new LinearLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            return columns;
+        }
+
+        final ViewGroup headers = createHeaders(this);
+        final LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+        // The pages show the CalendarView at the left, with a small margin
+        params.gravity = Gravity.LEFT;
+        params.leftMargin = monthMarginLeft;
+        headers.setLayoutParams(params);
+        return headers;
+    }
+
+    /**
+     * @return The LayoutParams of a column of a page with several months, which all get the same width
+     */
+    static LinearLayout.LayoutParams createColumnLayoutParams(final int monthMarginLeft) {
+        final LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
+                0, ViewGroup.LayoutParams.WRAP_CONTENT, 1f);
+        params.leftMargin = monthMarginLeft;
+        return params;
+    }
+
+    /**
+     * Create the shared headers again, e.g. after the DayAdapter or the days of the week changed
+     */
+    private void updateSharedHeaders() {
+        if(mViewPager == null) {
+            // The headers are created together with the ViewPager
+            return;
+        }
+        if(mSharedHeaders != null) {
+            removeView(mSharedHeaders);
+            mSharedHeaders = null;
+        }
+        if(usesSharedHeaders() && mShowHeaders) {
+            mSharedHeaders = createSharedHeaders();
+            // Add the headers between the indicator and the ViewPager
+            addView(mSharedHeaders, indexOfChild(mViewPager));
+        }
+    }
+
+    /**
+     * Show a single row of headers above the ViewPager, instead of headers on every page.
+     * The headers don't move while paging, and pages are created faster.
+     *
+     * @param enabled Whether all pages should share the headers
+     */
+    public void setSharedHeadersEnabled(final boolean enabled) {
+        mUseSharedHeaders = enabled;
+        notifyDataSetChanged();
+    }
+
+    public boolean isSharedHeadersEnabled() {
+        return mUseSharedHeaders;
+    }
+
+    /**
+     * @return Whether the pages leave the headers to us, which is always the case with several months per page
+     */
+    boolean usesSharedHeaders() {
+        return mUseSharedHeaders || mMonthsPerPage > 1;
+    }
+
+    /**
+     * Show several consecutive months next to each other on every page, e.g. on a tablet.
+     * The ViewPager then pages by this number of months, and the months share a single row of headers.
+     *
+     * @param monthsPerPage The number of months on a page, at least 1
+     */
+    public void setMonthsPerPage(final int monthsPerPage) {
+        if(monthsPerPage < 1) {
+            throw new IllegalArgumentException("A page needs at least one month: " + monthsPerPage);
+        }
+        if(monthsPerPage == mMonthsPerPage) {
+            return;
+        }
+        // keep showing the same first month
+        final int currentMonthIndex = getCurrentMonthIndex();
+        mMonthsPerPage = monthsPerPage;
+        notifyDataSetChanged();
+        if(currentMonthIndex >= 0) {
+            setCurrentMonthIndex(currentMonthIndex);
+        }
+        requestLayout();
+    }
+
+    public int getMonthsPerPage() {
+        return mMonthsPerPage;
+    }
+
+    @Override
+    protected int getMonthColumnCount() {
+        return mMonthsPerPage;
+    }
 
+    /**
+     * @return The row of headers above the ViewPager, or null if every page shows its own headers
+     */
+    ViewGroup getSharedHeaders() {
+        return mSharedHeaders;
+    }
+
+    /**
+     * Give the shared headers the same width as the days on the pages
+     */
+    void updateSharedHeaderWidth(final int dayWidth) {
+        final ViewGroup headers = mSharedHeaders;
+        if(mMonthsPerPage > 1) {
+            final int columnCount = headers.getChildCount();
+            for(int i = 0; i < columnCount; i++) {
+                updateHeaderWidth((ViewGroup) headers.getChildAt(i), dayWidth);
+            }
+        } else {
+            updateHeaderWidth(headers, dayWidth);
+        }
+    }
+
+    private static void updateHeaderWidth(final ViewGroup headers, final int dayWidth) {
+        final int headerCount = headers.getChildCount();
+        for(int i = 0; i < headerCount; i++) {
+            // We're measuring, so change the LayoutParams without requesting another layout
+            headers.getChildAt(i).getLayoutParams().width = dayWidth;
+        }
+    }
+
+    private void createIndicator(final boolean inLayout) {
         final TitlePageIndicator indicator = new TitlePageIndicator(getContext());
+        // use the system typeface until the default typeface is loaded
+        if(mTypeface == null) {
+            setDefaultTypeface();
+        }
         if(mTypeface != null) {
             indicator.setTypeface(mTypeface);
         }
-        indicator.setViewPager(viewPager);
+        indicator.setViewPager(mViewPager);
+        // the indicator listens to the ViewPager, and passes the changes on to us
+        indicator.setOnPageChangeListener(mPageChangeListener);
+        mIndicator = indicator;
 
-        addView(indicator);
+        // The indicator is shown above the ViewPager
+        if(inLayout) {
+            addViewInLayout(indicator, 0, generateDefaultLayoutParams(), true);
+        } else {
+            addView(indicator, 0);
+        }
+    }
 
-        // Add view to layout
-        addView(viewPager);
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        createPagerIfNeeded();
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
 
-        mAdapter = adapter;
-        mViewPager = viewPager;
-        mIndicator = indicator;
+    /**
+     * Set the number of months kept alive on either side of the current month. More pages make
+     * swiping back cheaper, fewer pages use less memory.
+     *
+     * @param limit The number of pages on either side, at least 1
+     */
+    public void setOffscreenPageLimit(final int limit) {
+        if(limit < 1) {
+            throw new IllegalArgumentException("The offscreen page limit must be at least 1: " + limit);
+        }
+        mOffscreenPageLimit = limit;
+        if(mViewPager != null) {
+            mViewPager.setOffscreenPageLimit(limit);
+        }
+    }
+
+    public int getOffscreenPageLimit() {
+        return mOffscreenPageLimit;
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // trim the shared caches when the system runs low on memory
+        CalendarCaches.registerComponentCallbacks(getContext());
+    }
+
+    /**
+     * Show or hide the TitlePageIndicator. A hidden indicator is never created.
+     *
+     * @param visible Whether the indicator should be visible
+     */
     public void setIndicatorVisible(boolean visible) {
         this.mShowIndicator = visible;
+        if(mIndicator != null) {
+            mIndicator.setVisibility(visible ? View.VISIBLE : View.GONE);
+        } else if(visible && mViewPager != null) {
+            createIndicator(false);
+        }
+    }
+
+    /**
+     * @return The number of pages the ViewPager currently keeps alive, or 0 if it's not created yet
+     */
+    private int getLivePageCount() {
+        return mViewPager != null ? mViewPager.getChildCount() : 0;
     }
 
     @Override
     public void notifyDataSetChanged() {
+        if(mMonthModelCache != null) {
+            // the answers of the adapter might have changed
+            mMonthModelCache.clear();
+        }
+        if(mDecorationCache != null) {
+            // all decorations might have changed
+            mDecorationCache.clear();
+        }
+        updateSharedHeaders();
         if(mAdapter != null) {
             mAdapter.notifyDataSetChanged();
             mViewPager.setAdapter(mAdapter);
-            mIndicator.setViewPager(mViewPager);
+            if(mIndicator != null) {
+                // this makes the indicator the listener of the ViewPager again
+                mIndicator.setViewPager(mViewPager);
+            }
         }
     }
 
     @Override
-    public TextView getTextViewForDate(final long dayInMillis) {
-        // Loop through all children in our ViewPager
-        final int childCount = mViewPager.getChildCount();
-        for(int i = 0; i < childCount; i++) {
-            final View child = mViewPager.getChildAt(i);
+    public void notifyDaysChanged(final long... daysInMillis) {
+        // The cache is shared by all pages, so drop the days once, also for months without a live page
+        if(mMonthModelCache != null) {
+            final Calendar calendar = Calendar.getInstance();
+            for(final long dayInMillis : daysInMillis) {
+                calendar.setTimeInMillis(dayInMillis);
+                mMonthModelCache.remove(DayUtils.getMonthKey(calendar), calendar.get(Calendar.DAY_OF_MONTH));
+            }
+        }
+
+        // Let every page which is currently alive update its own days
+        final ArrayList<CalendarView> monthViews = getLiveMonthViews();
+        final int monthCount = monthViews.size();
+        for(int i = 0; i < monthCount; i++) {
+            final CalendarView monthView = monthViews.get(i);
+            monthView.rebindDays(daysInMillis);
+        }
+    }
+
+    @Override
+    protected void applyTypeface(final Typeface typeface) {
+        // the pages wait for the typeface themselves
+        if(mIndicator != null) {
+            mIndicator.setTypeface(typeface);
+        }
+        if(mSharedHeaders != null) {
+            applyHeaderTypeface(mSharedHeaders, typeface);
+        }
+    }
+
+    private static void applyHeaderTypeface(final ViewGroup headers, final Typeface typeface) {
+        final int headerCount = headers.getChildCount();
+        for(int i = 0; i < headerCount; i++) {
+            final View header = headers.getChildAt(i);
+            if(header instanceof TextView) {
+                ((TextView) header).setTypeface(typeface);
+            } else if(header instanceof ViewGroup) {
+                // the headers of a column
+                applyHeaderTypeface((ViewGroup) header, typeface);
+            }
+        }
+    }
+
+    @Override
+    public void setMetricsListener(final CalendarMetricsListener listener) {
+        super.setMetricsListener(listener);
+        final ArrayList<CalendarView> monthViews = getLiveMonthViews();
+        final int monthCount = monthViews.size();
+        for(int i = 0; i < monthCount; i++) {
+            final CalendarView monthView = monthViews.get(i);
+            monthView.setMetricsListener(listener);
+        }
+    }
+
+    @Override
+    void setDebugOverlay(final DebugOverlay overlay) {
+        super.setDebugOverlay(overlay);
+        if(overlay != null) {
+            // the pages record their build times in the same overlay, which we summarize
+            overlay.setSummaryView(this);
+        }
+        final ArrayList<CalendarView> monthViews = getLiveMonthViews();
+        final int monthCount = monthViews.size();
+        for(int i = 0; i < monthCount; i++) {
+            final CalendarView monthView = monthViews.get(i);
+            monthView.setDebugOverlay(overlay);
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(final Canvas canvas) {
+        super.dispatchDraw(canvas);
+
+        final DebugOverlay debugOverlay = mDebugOverlay;
+        if(debugOverlay == null) {
+            return;
+        }
+        // draw the summary on top of the indicator, or at the top of the view without an indicator
+        final TitlePageIndicator indicator = mIndicator;
+        if(indicator != null && indicator.getVisibility() == View.VISIBLE) {
+            debugOverlay.drawSummary(canvas, indicator.getRight(), indicator.getTop(), indicator.getBottom(),
+                    getLivePageCount());
+        } else {
+            final float textHeight = getResources().getDimension(R.dimen.lib_debug_summary_height);
+            debugOverlay.drawSummary(canvas, getWidth(), 0, textHeight, getLivePageCount());
+        }
+    }
+
+    @Override
+    public void setShowToday(final boolean showToday) {
+        super.setShowToday(showToday);
+        final ArrayList<CalendarView> monthViews = getLiveMonthViews();
+        final int monthCount = monthViews.size();
+        for(int i = 0; i < monthCount; i++) {
+            final CalendarView monthView = monthViews.get(i);
+            monthView.setShowToday(showToday);
+        }
+    }
+
+    @Override
+    public void notifyAllDaysChanged() {
+        if(mMonthModelCache != null) {
+            // the answers of the adapter might have changed for every month, not only for the live pages
+            mMonthModelCache.clear();
+        }
+        final ArrayList<CalendarView> monthViews = getLiveMonthViews();
+        final int monthCount = monthViews.size();
+        for(int i = 0; i < monthCount; i++) {
+            final CalendarView monthView = monthViews.get(i);
+            monthView.rebindAllDays();
+        }
+    }
+
+    @Override
+    public void notifyDecorationsChanged(final long... daysInMillis) {
+        // The cache is shared by all pages, so drop the days once, before the pages look at them
+        final DecorationCache cache = getDecorationCache();
+        final Calendar calendar = Calendar.getInstance();
+        for(final long dayInMillis : daysInMillis) {
+            calendar.setTimeInMillis(dayInMillis);
+            cache.remove(DayUtils.toEpochDay(calendar));
+        }
+
+        final ArrayList<CalendarView> monthViews = getLiveMonthViews();
+        final int monthCount = monthViews.size();
+        for(int i = 0; i < monthCount; i++) {
+            final CalendarView monthView = monthViews.get(i);
+            monthView.rebindDecorations(daysInMillis);
+        }
+    }
+
+    /**
+     * Update the multi-day spans of all live pages, for example after SpanDayAdapter.getSpanVersion() changed.
+     */
+    public void notifySpansChanged() {
+        final ArrayList<CalendarView> monthViews = getLiveMonthViews();
+        final int monthCount = monthViews.size();
+        for(int i = 0; i < monthCount; i++) {
+            final CalendarView monthView = monthViews.get(i);
+            monthView.notifySpansChanged();
+        }
+    }
+
+    /**
+     * Retrieve the CalendarViews of a page in the ViewPager
+     *
+     * @param page A child of the ViewPager
+     * @return The number of columns of the page, which are CalendarViews or empty columns at the end of the range
+     */
+    int getMonthViewCount(final View page) {
+        return page instanceof ViewGroup ? ((ViewGroup) page).getChildCount() : 0;
+    }
+
+    /**
+     * @param page   A child of the ViewPager
+     * @param column The column of the page, 0 for a page with a single month
+     * @return The CalendarView of this column, or null
+     */
+    CalendarView getMonthView(final View page, final int column) {
+        if(page instanceof ViewGroup) {
+            // The CalendarViews are the children of our ViewGroup
+            final View monthView = ((ViewGroup) page).getChildAt(column);
+            if(monthView instanceof CalendarView) {
+                return (CalendarView) monthView;
+            }
+        }
+        return null;
+    }
 
-            if(child != null && child instanceof ViewGroup) {
-                // The CalendarView is the first child in our ViewGroup
-                final CalendarView monthView = (CalendarView) ((ViewGroup) child).getChildAt(0);
+    /**
+     * @return The CalendarViews of all live pages, in a list which is reused by the next call
+     */
+    private ArrayList<CalendarView> getLiveMonthViews() {
+        final ArrayList<CalendarView> monthViews = mLiveMonthViews;
+        monthViews.clear();
+        final int childCount = getLivePageCount();
+        for(int i = 0; i < childCount; i++) {
+            final View page = mViewPager.getChildAt(i);
+            final int columnCount = getMonthViewCount(page);
+            for(int column = 0; column < columnCount; column++) {
+                final CalendarView monthView = getMonthView(page, column);
                 if(monthView != null) {
-                    // Let the (single) CalendarView find a suitable TextView
-                    final TextView result = monthView.getTextViewForDate(dayInMillis);
-                    if(result != null) {
-                        // If one is found, return it
-                        return result;
-                    }
+                    monthViews.add(monthView);
                 }
             }
         }
+        return monthViews;
+    }
+
+    @Override
+    public TextView getTextViewForDate(final long dayInMillis) {
+        // Loop through all children in our ViewPager
+        final ArrayList<CalendarView> monthViews = getLiveMonthViews();
+        final int monthCount = monthViews.size();
+        for(int i = 0; i < monthCount; i++) {
+            final CalendarView monthView = monthViews.get(i);
+            // Let the (single) CalendarView find a suitable TextView
+            final TextView result = monthView.getTextViewForDate(dayInMillis);
+            if(result != null) {
+                // If one is found, return it
+                return result;
+            }
+        }
         return null;
     }
 
+    /**
+     * @return The ViewPager, or null if the view wasn't measured with a valid range yet
+     */
     public ViewPager getViewPager() {
         return mViewPager;
     }
 
     @Override
     protected void initView() {
-        if(mFirstValidDay != null) {
-
-            // If indicator is visible while it shouldn't, or visa versa
-            if(mShowIndicator != (getChildAt(0) == mIndicator)) {
-                // Show or hide the view
-                if(mShowIndicator) {
-                    mIndicator.setVisibility(View.VISIBLE);
-                } else {
-                    mIndicator.setVisibility(View.GONE);
-                }
-            }
-            if(mOnPageChangeListener != null) {
-                mViewPager.setOnPageChangeListener(mOnPageChangeListener);
-            }
+        if(mFirstValidDay != null && mViewPager != null) {
 
-            if(mViewPagerPosition != -1) {
-                // We need to change the ViewPager position
-                mViewPager.setCurrentItem(mViewPagerPosition);
-                mViewPagerPosition = -1;
+            // Show or hide the indicator, if it's created
+            if(mIndicator != null) {
+                mIndicator.setVisibility(mShowIndicator ? View.VISIBLE : View.GONE);
+            }
+            if(mPendingMonthIndex != -1) {
+                // We need to change the ViewPager position, to the page which shows this month
+                mViewPager.setCurrentItem(mPendingMonthIndex / mMonthsPerPage);
+                mPendingMonthIndex = -1;
             }
 
             mIsViewInitialized = true;
@@ -136,21 +581,203 @@ public class MultiCalendarView extends AbstractCalendarView {
         }
     }
 
+    /**
+     * Listen to the page changes of the ViewPager. Unlike ViewPager.setOnPageChangeListener(),
+     * this doesn't replace the listener of the indicator.
+     */
     public void setOnPageChangeListener(final ViewPager.OnPageChangeListener onPageChangeListener) {
-        if(mViewPager != null) {
-            mViewPager.setOnPageChangeListener(onPageChangeListener);
-        }
         mOnPageChangeListener = onPageChangeListener;
     }
 
+    /**
+     * Choose when the pages are drawn into a hardware layer. While scrolling, a page in a layer
+     * only has to be composited instead of drawing all of its days again for every frame.
+     * This has no effect before Honeycomb.
+     *
+     * @param policy LAYER_POLICY_WHILE_SCROLLING, which is the default, or LAYER_POLICY_NONE
+     */
+    public void setLayerPolicy(final int policy) {
+        if(policy != LAYER_POLICY_NONE && policy != LAYER_POLICY_WHILE_SCROLLING) {
+            throw new IllegalArgumentException("Invalid layer policy: " + policy);
+        }
+        mLayerPolicy = policy;
+        updatePageLayers();
+    }
+
+    public int getLayerPolicy() {
+        return mLayerPolicy;
+    }
+
+    /**
+     * @return The layer type a page should currently use
+     */
+    int getPageLayerType() {
+        return mIsScrolling && mLayerPolicy == LAYER_POLICY_WHILE_SCROLLING ?
+                ViewCompat.LAYER_TYPE_HARDWARE : ViewCompat.LAYER_TYPE_NONE;
+    }
+
+    private void updatePageLayers() {
+        final int layerType = getPageLayerType();
+        final int childCount = getLivePageCount();
+        for(int i = 0; i < childCount; i++) {
+            final View page = mViewPager.getChildAt(i);
+            if(ViewCompat.getLayerType(page) != layerType) {
+                ViewCompat.setLayerType(page, layerType, null);
+            }
+        }
+    }
+
+    /**
+     * Pages which are created while flinging quickly only show their day numbers, without calling the
+     * DayAdapter. They're bound with the DayAdapter once the ViewPager stops scrolling. Enabled by default.
+     *
+     * @param enabled Whether pages may be created as skeletons while flinging
+     */
+    public void setFastScrollSkeletonsEnabled(final boolean enabled) {
+        mUseFastScrollSkeletons = enabled;
+        if(!enabled) {
+            mIsFastScrolling = false;
+            upgradeSkeletons();
+        }
+    }
+
+    public boolean isFastScrollSkeletonsEnabled() {
+        return mUseFastScrollSkeletons;
+    }
+
+    /**
+     * @return Whether a page created now should be a skeleton
+     */
+    boolean isFastScrolling() {
+        return mIsFastScrolling;
+    }
+
+    private void updateScrollVelocity(final int position, final float positionOffset) {
+        if(!mIsScrolling) {
+            // e.g. setCurrentItem() without smooth scrolling, which jumps without ever settling
+            mIsFastScrolling = false;
+            mLastScrollTime = 0;
+            return;
+        }
+        final long now = SystemClock.uptimeMillis();
+        final float scrollPosition = position + positionOffset;
+        if(mLastScrollTime != 0 && now > mLastScrollTime) {
+            final float pagesPerSecond = Math.abs(scrollPosition - mLastScrollPosition) * 1000f / (now - mLastScrollTime);
+            mIsFastScrolling = pagesPerSecond > FAST_SCROLL_PAGES_PER_SECOND;
+        }
+        mLastScrollPosition = scrollPosition;
+        mLastScrollTime = now;
+    }
+
+    /**
+     * Bind the skeleton pages which are still alive with the DayAdapter
+     */
+    private void upgradeSkeletons() {
+        final ArrayList<CalendarView> monthViews = getLiveMonthViews();
+        final int monthCount = monthViews.size();
+        for(int i = 0; i < monthCount; i++) {
+            final CalendarView monthView = monthViews.get(i);
+            if(monthView.isSkeleton()) {
+                monthView.requestUpgrade();
+            }
+        }
+    }
+
+    /**
+     * Receives the page changes of the ViewPager, from the indicator if it's created
+     */
+    private class PageChangeListener implements ViewPager.OnPageChangeListener {
+        @Override
+        public void onPageScrolled(final int position, final float positionOffset, final int positionOffsetPixels) {
+            if(mUseFastScrollSkeletons) {
+                updateScrollVelocity(position, positionOffset);
+            }
+            if(mOnPageChangeListener != null) {
+                mOnPageChangeListener.onPageScrolled(position, positionOffset, positionOffsetPixels);
+            }
+        }
+
+        @Override
+        public void onPageSelected(final int position) {
+            if(mOnPageChangeListener != null) {
+                mOnPageChangeListener.onPageSelected(position);
+            }
+        }
+
+        @Override
+        public void onPageScrollStateChanged(final int state) {
+            final boolean isScrolling = state != ViewPager.SCROLL_STATE_IDLE;
+            if(isScrolling != mIsScrolling) {
+                mIsScrolling = isScrolling;
+                updatePageLayers();
+            }
+            if(!isScrolling) {
+                // the scrolling settled, so show the pages with full fidelity
+                mIsFastScrolling = false;
+                mLastScrollTime = 0;
+                upgradeSkeletons();
+            }
+            if(mOnPageChangeListener != null) {
+                mOnPageChangeListener.onPageScrollStateChanged(state);
+            }
+        }
+    }
+
     public void setOnCalendarLoadedListener(final OnCalendarLoadedListener listener) {
         this.mOnCalendarLoadedListener = listener;
     }
 
+    /**
+     * Select the page which is shown when the ViewPager is created
+     *
+     * @param viewPagerPosition The page, with the current number of months per page
+     */
     public void setViewPagerPosition(final int viewPagerPosition) {
-        mViewPagerPosition = viewPagerPosition;
+        // remember the month, so the right page is shown when the number of months per page changes meanwhile
+        mPendingMonthIndex = viewPagerPosition * mMonthsPerPage;
+    }
+
+    /**
+     * @return The first month on the current page, counted from the month of the first valid day,
+     * or -1 if no page is selected yet
+     */
+    private int getCurrentMonthIndex() {
+        return mViewPager != null ? mViewPager.getCurrentItem() * mMonthsPerPage : mPendingMonthIndex;
+    }
+
+    /**
+     * Show the page with this month
+     */
+    private void setCurrentMonthIndex(final int monthIndex) {
+        if(mViewPager != null && mIsViewInitialized) {
+            mViewPager.setCurrentItem(monthIndex / mMonthsPerPage, false);
+        } else {
+            // the page is selected when the ViewPager is created
+            mPendingMonthIndex = monthIndex;
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final Parcelable state = super.onSaveInstanceState();
+        if(state instanceof SavedState) {
+            // save the month, the restored Calendar might show another number of months per page
+            ((SavedState) state).currentMonth = getCurrentMonthIndex();
+        }
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(final Parcelable state) {
+        super.onRestoreInstanceState(state);
+        if(state instanceof SavedState && ((SavedState) state).currentMonth >= 0) {
+            setCurrentMonthIndex(((SavedState) state).currentMonth);
+        }
     }
 
+    /**
+     * @return The TitlePageIndicator, or null if it's hidden or not created yet
+     */
     public TitlePageIndicator getIndicator() {
         return mIndicator;
     }
@@ -0,0 +1,12 @@
+package com.vdesmet.lib.calendar;
+
+/**
+ * A DayAdapter which tells the Calendars which days changed, so they don't have to be notified manually.
+ * DayAdapterObservable can be used to implement this interface.
+ */
+public interface ObservableDayAdapter extends DayAdapter {
+
+    public abstract void registerObserver(DayAdapterObserver observer);
+
+    public abstract void unregisterObserver(DayAdapterObserver observer);
+}
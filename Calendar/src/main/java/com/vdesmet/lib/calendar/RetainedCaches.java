@@ -0,0 +1,64 @@
+package com.vdesmet.lib.calendar;
+
+import android.util.SparseArray;
+
+/**
+ * Keeps the caches of a Calendar alive between saving and restoring its state, e.g. while the Activity
+ * is recreated after a rotation. The SavedState only contains the id of the retained caches.
+ * Only copies of the answers are retained, never the adapter, so a state which is never restored
+ * doesn't keep the old Activity alive.
+ */
+final class RetainedCaches {
+    static final int NO_ID = -1;
+    // caches of Calendars which are never restored are dropped after a while
+    private static final int MAX_RETAINED = 4;
+
+    // identifies this process, the ids of a previous process mustn't match our caches
+    static final long PROCESS_TOKEN = System.currentTimeMillis();
+
+    private static final SparseArray<RetainedCaches> sRetained = new SparseArray<RetainedCaches>();
+    private static int sNextId;
+
+    final MonthModelCache mMonthModels;
+    final DecorationCache mDecorations;
+
+    private RetainedCaches(final MonthModelCache monthModels, final DecorationCache decorations) {
+        mMonthModels = monthModels;
+        mDecorations = decorations;
+    }
+
+    /**
+     * Retain the caches until take() is called with the returned id
+     *
+     * @return The id, or NO_ID if there's nothing to retain
+     */
+    static int retain(final MonthModelCache monthModels, final DecorationCache decorations) {
+        if(monthModels == null && decorations == null) {
+            return NO_ID;
+        }
+        final int id = sNextId++;
+        sRetained.put(id, new RetainedCaches(monthModels != null ? monthModels.copyAnswers() : null,
+                decorations != null ? decorations.copyAnswers() : null));
+        if(sRetained.size() > MAX_RETAINED) {
+            // the ids only grow, so the first one is the oldest
+            sRetained.delete(sRetained.keyAt(0));
+        }
+        return id;
+    }
+
+    /**
+     * Retrieve and forget the retained caches
+     *
+     * @param id           The id returned by retain()
+     * @param processToken The PROCESS_TOKEN when the caches were retained
+     * @return The caches, or null if they were already dropped
+     */
+    static RetainedCaches take(final int id, final long processToken) {
+        if(id == NO_ID || processToken != PROCESS_TOKEN) {
+            return null;
+        }
+        final RetainedCaches caches = sRetained.get(id);
+        sRetained.delete(id);
+        return caches;
+    }
+}
@@ -0,0 +1,29 @@
+package com.vdesmet.lib.calendar;
+
+import java.util.List;
+
+/**
+ * A DayAdapter which provides events covering multiple days.
+ * The spans of a week are packed into lanes once per data version, and cached.
+ *
+ * @see com.vdesmet.lib.calendar.DaySpan
+ */
+public interface SpanDayAdapter extends DayAdapter {
+
+    /**
+     * Retrieves the spans which overlap with a range of days
+     *
+     * @param firstDayInMillis The first day of the range
+     * @param lastDayInMillis  The last day of the range, inclusive
+     * @return The spans, or null
+     */
+    public abstract List<DaySpan> getSpans(long firstDayInMillis, long lastDayInMillis);
+
+    /**
+     * Get the version of the spans. Increase this value whenever a span was added, removed or changed,
+     * so the cached layouts of the weeks are calculated again.
+     *
+     * @return The version of the data
+     */
+    public abstract int getSpanVersion();
+}
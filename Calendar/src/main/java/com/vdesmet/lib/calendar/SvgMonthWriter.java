@@ -0,0 +1,296 @@
+package com.vdesmet.lib.calendar;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Calendar;
+
+/**
+ * Writes a month as SVG, with the same layout and colors as a CalendarView in the tiled or flat style.
+ * Plain Java, so it also runs on a server, e.g. to mail a summary of a month.
+ * <p/>
+ * The SVG is streamed to the Writer element by element, without building a document first. A writer
+ * has no state besides its settings, so a single instance can write many months in parallel.
+ */
+public class SvgMonthWriter {
+    // the colors of res/values/colors.xml
+    private static final int COLOR_DAY_TEXT = 0xff686868;
+    private static final int COLOR_DAY_TEXT_DISABLED = 0xffcbcbcb;
+    private static final int COLOR_DAY_BACKGROUND = 0xffffffff;
+    private static final int COLOR_DAY_BACKGROUND_DISABLED = 0xfff2f2f2;
+    private static final int COLOR_BACKGROUND = 0xffe5e5e5;
+    private static final int COLOR_BACKGROUND_FLAT = 0xffeeeeee;
+
+    // the sizes of res/values/dimens.xml and the layouts, in tenths of a dp
+    private static final int DAY_SIZE = 440;
+    private static final int DAY_PADDING_SIDES = 20;
+    private static final int DAY_TEXT_SIZE = 220;
+    private static final int WEEK_PADDING_TOP = 40;
+    private static final int HEADER_HEIGHT = 230;
+    private static final int HEADER_TEXT_SIZE = 140;
+    private static final int CATEGORY_SIZE = 40;
+    private static final int CATEGORY_PADDING_SIDES = 15;
+    private static final int CATEGORY_PADDING_START = 50;
+    private static final int CATEGORY_PADDING_BOTTOM = 40;
+    private static final int COLUMN_WIDTH = DAY_SIZE + 2 * DAY_PADDING_SIDES;
+    private static final int ROW_HEIGHT = DAY_SIZE + WEEK_PADDING_TOP;
+
+    // the values of DayStyleFactory, which isn't used here because it needs Android
+    private static final int DAY_STYLE_TILED = 0;
+    private static final int DAY_STYLE_FLAT = 1;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final int mDayStyle;
+    private final String[] mDayNames = new String[Calendar.SATURDAY + 1];
+    private boolean mShowHeaders = true;
+    private String mFontFamily = "sans-serif";
+
+    /**
+     * @param dayStyle DayStyleFactory.DAY_STYLE_TILED or DayStyleFactory.DAY_STYLE_FLAT
+     */
+    public SvgMonthWriter(final int dayStyle) {
+        if(dayStyle != DAY_STYLE_TILED && dayStyle != DAY_STYLE_FLAT) {
+            throw new IllegalArgumentException("Only the tiled and flat day styles can be written as SVG");
+        }
+        mDayStyle = dayStyle;
+
+        // the names of res/values/strings.xml
+        mDayNames[Calendar.MONDAY] = "MON";
+        mDayNames[Calendar.TUESDAY] = "TUE";
+        mDayNames[Calendar.WEDNESDAY] = "WED";
+        mDayNames[Calendar.THURSDAY] = "THU";
+        mDayNames[Calendar.FRIDAY] = "FRI";
+        mDayNames[Calendar.SATURDAY] = "SAT";
+        mDayNames[Calendar.SUNDAY] = "SUN";
+    }
+
+    /**
+     * @param dayOfWeek The day of the week, e.g. Calendar.MONDAY
+     * @param name      The name in the header of this day, e.g. a translation
+     */
+    public void setDayName(final int dayOfWeek, final String name) {
+        if(dayOfWeek < Calendar.SUNDAY || dayOfWeek > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("dayOfWeek must be between " + Calendar.SUNDAY + " and " + Calendar.SATURDAY);
+        }
+        mDayNames[dayOfWeek] = name;
+    }
+
+    public void setHeadersVisible(final boolean visible) {
+        mShowHeaders = visible;
+    }
+
+    /**
+     * @param fontFamily The font-family of the text, e.g. "Roboto, sans-serif"
+     */
+    public void setFontFamily(final String fontFamily) {
+        mFontFamily = fontFamily;
+    }
+
+    /**
+     * @return The width of the SVG of a month in this grid, in dp
+     */
+    public float getWidth(final MonthGrid grid) {
+        return getWidthInTenths(grid) / 10f;
+    }
+
+    /**
+     * @return The height of the SVG of a month in this grid, in dp
+     */
+    public float getHeight(final MonthGrid grid) {
+        return getHeightInTenths(grid) / 10f;
+    }
+
+    /**
+     * Write the month as a standalone svg element
+     *
+     * @param writer         The output, which isn't flushed or closed
+     * @param grid           The month and its days of the week
+     * @param enabledMask    The enabled days of the month, bit 0 is the first day. Use -1 to enable all days
+     * @param categoryColors The category colors of each day, where index 0 is the first day of the month.
+     *                       May be null, and so may the colors of a day
+     * @throws IOException When the writer fails
+     */
+    public void write(final Writer writer, final MonthGrid grid, final int enabledMask,
+                      final int[][] categoryColors) throws IOException {
+        final int width = getWidthInTenths(grid);
+        final int height = getHeightInTenths(grid);
+        final int columnCount = grid.getColumnCount();
+        final int rowCount = grid.getRowCount();
+        final int headerHeight = mShowHeaders ? HEADER_HEIGHT : 0;
+
+        writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+        writeTenths(writer, width);
+        writer.write("\" height=\"");
+        writeTenths(writer, height);
+        writer.write("\" viewBox=\"0 0 ");
+        writeTenths(writer, width);
+        writer.write(' ');
+        writeTenths(writer, height);
+        writer.write("\" font-family=\"");
+        writeEscaped(writer, mFontFamily);
+        writer.write("\" text-anchor=\"middle\">\n");
+
+        // the background of the whole month, which shows between the tiles
+        writeRect(writer, 0, 0, width, height,
+                mDayStyle == DAY_STYLE_TILED ? COLOR_BACKGROUND : COLOR_BACKGROUND_FLAT);
+
+        if(mShowHeaders) {
+            for(int column = 0; column < columnCount; column++) {
+                writeText(writer, mDayNames[grid.getDayOfWeek(column)], column * COLUMN_WIDTH + COLUMN_WIDTH / 2,
+                        HEADER_HEIGHT / 2, HEADER_TEXT_SIZE, COLOR_DAY_TEXT);
+            }
+        }
+
+        for(int row = 0; row < rowCount; row++) {
+            final int top = headerHeight + row * ROW_HEIGHT + WEEK_PADDING_TOP;
+            for(int column = 0; column < columnCount; column++) {
+                final int left = column * COLUMN_WIDTH + DAY_PADDING_SIDES;
+                final int epochDay = grid.getEpochDay(row, column);
+                final int dayOfMonth = grid.getDayOfMonth(epochDay);
+                final boolean isEnabled = grid.isInMonth(epochDay) && (enabledMask & (1 << (dayOfMonth - 1))) != 0;
+                writeDay(writer, left, top, dayOfMonth, isEnabled,
+                        isEnabled && categoryColors != null ? categoryColors[dayOfMonth - 1] : null);
+            }
+        }
+        writer.write("</svg>\n");
+    }
+
+    private void writeDay(final Writer writer, final int left, final int top, final int dayOfMonth,
+                          final boolean isEnabled, final int[] categoryColors) throws IOException {
+        // the flat style has no background for its days, see DayStyleFactory
+        if(mDayStyle == DAY_STYLE_TILED) {
+            writeRect(writer, left, top, DAY_SIZE, DAY_SIZE,
+                    isEnabled ? COLOR_DAY_BACKGROUND : COLOR_DAY_BACKGROUND_DISABLED);
+        }
+        // the number is written digit by digit, so a day doesn't create a String
+        writeTextStart(writer, left + DAY_SIZE / 2, top + DAY_SIZE / 2, DAY_TEXT_SIZE,
+                isEnabled ? COLOR_DAY_TEXT : COLOR_DAY_TEXT_DISABLED);
+        writeInt(writer, dayOfMonth);
+        writer.write("</text>\n");
+
+        if(categoryColors != null) {
+            // a row of categories, at the bottom left of the day like lib_calendar_day_categories
+            int categoryLeft = left + CATEGORY_PADDING_START + CATEGORY_PADDING_SIDES;
+            final int categoryTop = top + DAY_SIZE - CATEGORY_PADDING_BOTTOM - CATEGORY_SIZE;
+            for(final int color : categoryColors) {
+                writeRect(writer, categoryLeft, categoryTop, CATEGORY_SIZE, CATEGORY_SIZE, color);
+                categoryLeft += CATEGORY_SIZE + 2 * CATEGORY_PADDING_SIDES;
+            }
+        }
+    }
+
+    private static void writeRect(final Writer writer, final int x, final int y, final int width, final int height,
+                                  final int color) throws IOException {
+        writer.write("<rect x=\"");
+        writeTenths(writer, x);
+        writer.write("\" y=\"");
+        writeTenths(writer, y);
+        writer.write("\" width=\"");
+        writeTenths(writer, width);
+        writer.write("\" height=\"");
+        writeTenths(writer, height);
+        writer.write('"');
+        writeFill(writer, color);
+        writer.write("/>\n");
+    }
+
+    private static void writeText(final Writer writer, final String text, final int centerX, final int centerY,
+                                  final int textSize, final int color) throws IOException {
+        writeTextStart(writer, centerX, centerY, textSize, color);
+        writeEscaped(writer, text);
+        writer.write("</text>\n");
+    }
+
+    /**
+     * Write the opening tag of a text element, centered on the given point
+     */
+    private static void writeTextStart(final Writer writer, final int centerX, final int centerY,
+                                       final int textSize, final int color) throws IOException {
+        writer.write("<text x=\"");
+        writeTenths(writer, centerX);
+        writer.write("\" y=\"");
+        writeTenths(writer, centerY);
+        writer.write("\" font-size=\"");
+        writeTenths(writer, textSize);
+        writer.write("\" dominant-baseline=\"central\"");
+        writeFill(writer, color);
+        writer.write('>');
+    }
+
+    /**
+     * Write an ARGB color as fill and, if it's translucent, fill-opacity
+     */
+    private static void writeFill(final Writer writer, final int color) throws IOException {
+        writer.write(" fill=\"#");
+        for(int shift = 20; shift >= 0; shift -= 4) {
+            writer.write(HEX_DIGITS[(color >>> shift) & 0xF]);
+        }
+        writer.write('"');
+
+        final int alpha = color >>> 24;
+        if(alpha != 0xFF) {
+            writer.write(" fill-opacity=\"");
+            // in thousandths, written as 0.xxx
+            writeFraction(writer, (alpha * 1000 + 127) / 255, 1000);
+            writer.write('"');
+        }
+    }
+
+    /**
+     * Write a number in tenths as a decimal, without creating a String
+     */
+    private static void writeTenths(final Writer writer, final int tenths) throws IOException {
+        writeFraction(writer, tenths, 10);
+    }
+
+    private static void writeFraction(final Writer writer, final int value, final int divisor) throws IOException {
+        writeInt(writer, value / divisor);
+        int remainder = value % divisor;
+        if(remainder != 0) {
+            writer.write('.');
+            for(int digit = divisor / 10; digit > 0 && remainder != 0; digit /= 10) {
+                writer.write('0' + remainder / digit);
+                remainder %= digit;
+            }
+        }
+    }
+
+    private static void writeInt(final Writer writer, final int value) throws IOException {
+        // the coordinates are never negative
+        if(value >= 10) {
+            writeInt(writer, value / 10);
+        }
+        writer.write('0' + value % 10);
+    }
+
+    private static void writeEscaped(final Writer writer, final String text) throws IOException {
+        final int length = text.length();
+        for(int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            switch(c) {
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                default:
+                    writer.write(c);
+            }
+        }
+    }
+
+    private int getWidthInTenths(final MonthGrid grid) {
+        return grid.getColumnCount() * COLUMN_WIDTH;
+    }
+
+    private int getHeightInTenths(final MonthGrid grid) {
+        return (mShowHeaders ? HEADER_HEIGHT : 0) + grid.getRowCount() * ROW_HEIGHT;
+    }
+}
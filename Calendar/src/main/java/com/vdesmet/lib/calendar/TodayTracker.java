@@ -0,0 +1,150 @@
+package com.vdesmet.lib.calendar;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+
+/**
+ * Keeps track of the current day for all Calendars in the process.
+ * While there are listeners, it wakes up once at the next local midnight,
+ * and when the time or timezone is changed by the system.
+ * Listeners are only called when the day actually changed.
+ */
+public final class TodayTracker {
+    private static TodayTracker sInstance;
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final ArrayList<OnTodayChangedListener> mListeners;
+    private final Runnable mMidnightRunnable;
+    private final BroadcastReceiver mTimeChangedReceiver;
+    private int mToday;
+
+    public interface OnTodayChangedListener {
+        /**
+         * Called on the main thread when the current day changed
+         *
+         * @param previousTodayInMillis The previous day, at midnight
+         * @param todayInMillis         The new day, at midnight
+         */
+        public abstract void onTodayChanged(long previousTodayInMillis, long todayInMillis);
+    }
+
+    private TodayTracker(final Context context) {
+        mContext = context;
+        mHandler = new Handler(Looper.getMainLooper());
+        mListeners = new ArrayList<OnTodayChangedListener>();
+        mToday = DayUtils.toEpochDay(Calendar.getInstance());
+
+        mMidnightRunnable = new Runnable() {
+            @Override
+            public void run() {
+                update();
+            }
+        };
+        mTimeChangedReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(final Context context, final Intent intent) {
+                update();
+            }
+        };
+    }
+
+    /**
+     * Get the tracker of this process
+     *
+     * @param context Any context, only the application context is kept
+     */
+    public static synchronized TodayTracker getInstance(final Context context) {
+        if(sInstance == null) {
+            final Context applicationContext = context.getApplicationContext();
+            sInstance = new TodayTracker(applicationContext != null ? applicationContext : context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Add a listener. Must be called on the main thread.
+     * The first listener starts tracking midnight and time changes.
+     */
+    public void addListener(final OnTodayChangedListener listener) {
+        if(mListeners.contains(listener)) {
+            return;
+        }
+        mListeners.add(listener);
+        if(mListeners.size() == 1) {
+            final IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
+            filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_DATE_CHANGED);
+            mContext.registerReceiver(mTimeChangedReceiver, filter);
+
+            // the day might have changed while nobody was listening
+            update();
+        }
+    }
+
+    /**
+     * Remove a listener. Must be called on the main thread.
+     * Removing the last listener stops tracking.
+     */
+    public void removeListener(final OnTodayChangedListener listener) {
+        if(mListeners.remove(listener) && mListeners.isEmpty()) {
+            mContext.unregisterReceiver(mTimeChangedReceiver);
+            mHandler.removeCallbacks(mMidnightRunnable);
+        }
+    }
+
+    /**
+     * @return The current day, at midnight in milliseconds
+     */
+    public long getToday() {
+        return toMillis(mToday);
+    }
+
+    /**
+     * @return The current day, as the number of days since 1970-01-01
+     */
+    public int getTodayEpochDay() {
+        return mToday;
+    }
+
+    private void update() {
+        // Calendar.getInstance() uses the current default timezone
+        final Calendar now = Calendar.getInstance();
+        final int today = DayUtils.toEpochDay(now);
+
+        // schedule a single wakeup at the next midnight
+        final Calendar midnight = Calendar.getInstance();
+        DayUtils.setToEpochDay(midnight, today + 1);
+        mHandler.removeCallbacks(mMidnightRunnable);
+        if(!mListeners.isEmpty()) {
+            mHandler.postDelayed(mMidnightRunnable, midnight.getTimeInMillis() - now.getTimeInMillis());
+        }
+
+        final int previousToday = mToday;
+        if(today == previousToday) {
+            return;
+        }
+        mToday = today;
+
+        final long previousTodayInMillis = toMillis(previousToday);
+        final long todayInMillis = toMillis(today);
+        final OnTodayChangedListener[] listeners = mListeners.toArray(new OnTodayChangedListener[mListeners.size()]);
+        for(final OnTodayChangedListener listener : listeners) {
+            listener.onTodayChanged(previousTodayInMillis, todayInMillis);
+        }
+    }
+
+    private static long toMillis(final int epochDay) {
+        final Calendar calendar = Calendar.getInstance();
+        DayUtils.setToEpochDay(calendar, epochDay);
+        return calendar.getTimeInMillis();
+    }
+}
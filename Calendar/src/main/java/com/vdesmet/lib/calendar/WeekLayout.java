@@ -0,0 +1,192 @@
+package com.vdesmet.lib.calendar;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+import android.widget.LinearLayout;
+
+/**
+ * A single row of days. Draws the multi-day spans, the badges and the today marker of this week on top of the days,
+ * so a span is a single continuous bar and a badge doesn't need a view per day.
+ */
+public class WeekLayout extends LinearLayout {
+    // More lanes would cover the number of the day
+    private static final int MAX_VISIBLE_LANES = 3;
+
+    private static final int MAX_DAYS_IN_WEEK = 7;
+    public static final int NO_COLUMN = -1;
+
+    private final Paint mSpanPaint;
+    private final Paint mBadgePaint;
+    private final int mBadgePadding;
+    private final String[] mBadges = new String[MAX_DAYS_IN_WEEK];
+    private int mBadgeCount;
+    private final Paint mTodayPaint;
+    private final float mTodayStrokeWidth;
+    private int mTodayColumn = NO_COLUMN;
+    private final int mBarHeight;
+    private final int mBarSpacing;
+    private final int mBarOffsetBottom;
+
+    private WeekSpans mSpans;
+
+    public WeekLayout(final Context context) {
+        this(context, null);
+    }
+
+    public WeekLayout(final Context context, final AttributeSet attrs) {
+        super(context, attrs);
+
+        final CalendarResources resources = CalendarResources.getInstance(context);
+        mBarHeight = resources.getSpanBarHeight();
+        mBarSpacing = resources.getSpanBarSpacing();
+        // Draw the bars above the categories
+        mBarOffsetBottom = resources.getCategoryHeight() + mBarSpacing;
+
+        mSpanPaint = new Paint();
+        mSpanPaint.setAntiAlias(true);
+
+        mBadgePadding = resources.getBadgePadding();
+        mBadgePaint = new Paint();
+        mBadgePaint.setAntiAlias(true);
+        mBadgePaint.setTextAlign(Paint.Align.RIGHT);
+        mBadgePaint.setTextSize(resources.getBadgeTextSize());
+        mBadgePaint.setColor(resources.getBadgeTextColor());
+
+        mTodayStrokeWidth = resources.getTodayStrokeWidth();
+        mTodayPaint = new Paint();
+        mTodayPaint.setStyle(Paint.Style.STROKE);
+        mTodayPaint.setStrokeWidth(mTodayStrokeWidth);
+        mTodayPaint.setColor(resources.getTodayColor());
+    }
+
+    /**
+     * Mark a day in this row as today. Only the previous and the new day are redrawn.
+     *
+     * @param column The index of the day in this row, or NO_COLUMN
+     */
+    public void setTodayColumn(final int column) {
+        if(column == mTodayColumn) {
+            return;
+        }
+        invalidateColumn(mTodayColumn);
+        mTodayColumn = column;
+        invalidateColumn(column);
+    }
+
+    public int getTodayColumn() {
+        return mTodayColumn;
+    }
+
+    private void invalidateColumn(final int column) {
+        final View child = column != NO_COLUMN ? getChildAt(column) : null;
+        if(child != null) {
+            invalidate(child.getLeft(), child.getTop(), child.getRight(), child.getBottom());
+        }
+    }
+
+    /**
+     * Set the badge of a single day, drawn in its top right corner
+     *
+     * @param column The index of the day in this row
+     * @param badge  The text of the badge, or null
+     */
+    public void setBadge(final int column, final String badge) {
+        if(column < 0 || column >= MAX_DAYS_IN_WEEK) {
+            return;
+        }
+        final String current = mBadges[column];
+        if(current == null ? badge == null : current.equals(badge)) {
+            return;
+        }
+        if(current == null) {
+            mBadgeCount++;
+        } else if(badge == null) {
+            mBadgeCount--;
+        }
+        mBadges[column] = badge;
+        invalidate();
+    }
+
+    /**
+     * Set the spans of this week. The week isn't redrawn if equal spans are already set,
+     * e.g. when the spans of another week changed and all weeks were packed again.
+     *
+     * @param spans The packed spans, or null
+     */
+    public void setSpans(final WeekSpans spans) {
+        if(spans == null ? mSpans == null : spans.equals(mSpans)) {
+            // keep the newest instance, which is the one in the cache
+            mSpans = spans;
+            return;
+        }
+        mSpans = spans;
+
+        // The spans are only drawn, the size of the row doesn't change
+        invalidate();
+    }
+
+    public WeekSpans getSpans() {
+        return mSpans;
+    }
+
+    @Override
+    protected void dispatchDraw(final Canvas canvas) {
+        super.dispatchDraw(canvas);
+
+        if(mBadgeCount > 0) {
+            drawBadges(canvas);
+        }
+        final View today = mTodayColumn != NO_COLUMN ? getChildAt(mTodayColumn) : null;
+        if(today != null) {
+            // keep the whole stroke inside the day
+            final float inset = mTodayStrokeWidth / 2;
+            canvas.drawRect(today.getLeft() + inset, today.getTop() + inset,
+                    today.getRight() - inset, today.getBottom() - inset, mTodayPaint);
+        }
+
+        final WeekSpans spans = mSpans;
+        if(spans == null || spans.size() == 0) {
+            return;
+        }
+        final int childCount = getChildCount();
+        final int width = getWidth();
+        final Paint paint = mSpanPaint;
+
+        for(int i = 0; i < spans.size(); i++) {
+            final int lane = spans.getLane(i);
+            final int firstColumn = spans.getFirstColumn(i);
+            final int lastColumn = spans.getLastColumn(i);
+            if(lane >= MAX_VISIBLE_LANES || lastColumn >= childCount) {
+                continue;
+            }
+            final View firstChild = getChildAt(firstColumn);
+            final View lastChild = getChildAt(lastColumn);
+
+            // Continue to the edge of the row when the span continues in the previous/next week
+            final float left = spans.startsInRow(i) ? firstChild.getLeft() + mBarSpacing : 0;
+            final float right = spans.endsInRow(i) ? lastChild.getRight() - mBarSpacing : width;
+            final float bottom = firstChild.getBottom() - mBarOffsetBottom - lane * (mBarHeight + mBarSpacing);
+
+            paint.setColor(spans.getColor(i));
+            canvas.drawRect(left, bottom - mBarHeight, right, bottom, paint);
+        }
+    }
+
+    private void drawBadges(final Canvas canvas) {
+        final Paint paint = mBadgePaint;
+        final String[] badges = mBadges;
+        final int childCount = Math.min(getChildCount(), MAX_DAYS_IN_WEEK);
+        final float baseline = mBadgePadding - paint.ascent();
+
+        for(int column = 0; column < childCount; column++) {
+            final String badge = badges[column];
+            if(badge != null) {
+                final View child = getChildAt(column);
+                canvas.drawText(badge, child.getRight() - mBadgePadding, child.getTop() + baseline, paint);
+            }
+        }
+    }
+}
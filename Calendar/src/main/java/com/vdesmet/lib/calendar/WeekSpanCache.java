@@ -0,0 +1,91 @@
+package com.vdesmet.lib.calendar;
+
+import android.support.v4.util.LruCache;
+
+import java.util.Calendar;
+
+/**
+ * Cache of packed week rows, keyed by the first day of the row and the number of days in it.
+ * All entries are dropped when the span version of the adapter changes, so swiping back to a week
+ * or redrawing it doesn't pack the spans again.
+ */
+class WeekSpanCache implements CalendarCaches.TrimmableCache {
+    // enough for 64 weeks with a few spans each
+    private static final int MAX_BYTES = 64 * 256;
+
+    private final LruCache<Long, WeekSpans> mWeeks;
+    private final Calendar mCalendar;
+    private SpanDayAdapter mAdapter;
+    private int mVersion;
+    private CalendarMetricsListener mMetricsListener;
+
+    WeekSpanCache() {
+        mWeeks = new LruCache<Long, WeekSpans>(MAX_BYTES) {
+            @Override
+            protected int sizeOf(final Long key, final WeekSpans value) {
+                return value.getRetainedBytes();
+            }
+        };
+        mCalendar = Calendar.getInstance();
+        CalendarCaches.register(this);
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        return mWeeks.size();
+    }
+
+    @Override
+    public void trimToSize(final long maxBytes) {
+        if(mWeeks.size() <= maxBytes) {
+            return;
+        }
+        // the snapshot is ordered from the least to the most recently used week
+        for(final Long key : mWeeks.snapshot().keySet()) {
+            mWeeks.remove(key);
+            if(mWeeks.size() <= maxBytes) {
+                break;
+            }
+        }
+    }
+
+    void setMetricsListener(final CalendarMetricsListener listener) {
+        mMetricsListener = listener;
+    }
+
+    /**
+     * Retrieve the packed spans of a row
+     *
+     * @param adapter  The adapter which provides the spans
+     * @param firstDay The first day of the row, as epoch day
+     * @param dayCount The number of days in the row
+     * @return The packed spans, the same instance is returned as long as the data didn't change
+     */
+    WeekSpans get(final SpanDayAdapter adapter, final int firstDay, final int dayCount) {
+        final int version = adapter.getSpanVersion();
+        if(adapter != mAdapter || version != mVersion) {
+            // the data changed, all cached weeks are outdated
+            mWeeks.evictAll();
+            mAdapter = adapter;
+            mVersion = version;
+        }
+
+        final Long key = ((long) firstDay << 3) | dayCount;
+        WeekSpans spans = mWeeks.get(key);
+        if(mMetricsListener != null) {
+            mMetricsListener.onCacheLookup(CalendarMetricsListener.CACHE_WEEK_SPANS, spans != null);
+        }
+        if(spans == null) {
+            final Calendar calendar = mCalendar;
+            DayUtils.setToEpochDay(calendar, firstDay);
+            final long firstDayInMillis = calendar.getTimeInMillis();
+            DayUtils.setToEpochDay(calendar, firstDay + dayCount - 1);
+            final long lastDayInMillis = calendar.getTimeInMillis();
+
+            spans = WeekSpans.pack(adapter.getSpans(firstDayInMillis, lastDayInMillis), firstDay, dayCount);
+            mWeeks.put(key, spans);
+            CalendarCaches.enforceBudget();
+        }
+        return spans;
+    }
+}
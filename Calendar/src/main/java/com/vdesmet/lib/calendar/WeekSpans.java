@@ -0,0 +1,186 @@
+package com.vdesmet.lib.calendar;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The spans of a single week row, each assigned to a lane so overlapping spans don't cover each other.
+ * Columns are relative to the first day of the row. Two instances are equal when they draw the same spans.
+ */
+public final class WeekSpans {
+    static final WeekSpans EMPTY = new WeekSpans(new int[0], new int[0], new int[0], new int[0],
+            new boolean[0], new boolean[0], 0);
+
+    private static final Comparator<DaySpan> SPAN_ORDER = new Comparator<DaySpan>() {
+        @Override
+        public int compare(final DaySpan lhs, final DaySpan rhs) {
+            // sort by first day, longer spans first
+            if(lhs.getFirstDay() != rhs.getFirstDay()) {
+                return lhs.getFirstDay() < rhs.getFirstDay() ? -1 : 1;
+            }
+            if(lhs.getLastDay() != rhs.getLastDay()) {
+                return lhs.getLastDay() > rhs.getLastDay() ? -1 : 1;
+            }
+            return 0;
+        }
+    };
+
+    private final int[] mFirstColumns;
+    private final int[] mLastColumns;
+    private final int[] mLanes;
+    private final int[] mColors;
+    private final boolean[] mStartsInRow;
+    private final boolean[] mEndsInRow;
+    private final int mLaneCount;
+
+    private WeekSpans(final int[] firstColumns, final int[] lastColumns, final int[] lanes, final int[] colors,
+                      final boolean[] startsInRow, final boolean[] endsInRow, final int laneCount) {
+        mFirstColumns = firstColumns;
+        mLastColumns = lastColumns;
+        mLanes = lanes;
+        mColors = colors;
+        mStartsInRow = startsInRow;
+        mEndsInRow = endsInRow;
+        mLaneCount = laneCount;
+    }
+
+    /**
+     * Assign lanes to the spans of a row. Spans are sorted by their first day, and each span is placed in the
+     * lowest lane which is free at that day, which takes O(n log n).
+     *
+     * @param spans     The spans, may contain spans outside of this row
+     * @param firstDay  The first day of the row, as epoch day
+     * @param dayCount  The number of days in the row
+     * @return The packed spans
+     */
+    public static WeekSpans pack(final List<DaySpan> spans, final int firstDay, final int dayCount) {
+        if(spans == null || spans.isEmpty()) {
+            return EMPTY;
+        }
+        final int lastDay = firstDay + dayCount - 1;
+
+        // only keep the spans which are visible in this row
+        final DaySpan[] sorted = new DaySpan[spans.size()];
+        int count = 0;
+        for(final DaySpan span : spans) {
+            if(span.getLastDay() >= firstDay && span.getFirstDay() <= lastDay) {
+                sorted[count++] = span;
+            }
+        }
+        if(count == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(sorted, 0, count, SPAN_ORDER);
+
+        final int[] firstColumns = new int[count];
+        final int[] lastColumns = new int[count];
+        final int[] lanes = new int[count];
+        final int[] colors = new int[count];
+        final boolean[] startsInRow = new boolean[count];
+        final boolean[] endsInRow = new boolean[count];
+
+        // lanes which are in use, ordered by the last column they're used in. Encoded as (lastColumn << 16 | lane)
+        final PriorityQueue<Integer> busyLanes = new PriorityQueue<Integer>();
+        // lanes which were used before but are free again, lowest first
+        final PriorityQueue<Integer> freeLanes = new PriorityQueue<Integer>();
+        int laneCount = 0;
+
+        for(int i = 0; i < count; i++) {
+            final DaySpan span = sorted[i];
+            final int firstColumn = Math.max(span.getFirstDay(), firstDay) - firstDay;
+            final int lastColumn = Math.min(span.getLastDay(), lastDay) - firstDay;
+
+            // release the lanes of the spans which ended before this one starts
+            while(!busyLanes.isEmpty() && (busyLanes.peek() >> 16) < firstColumn) {
+                freeLanes.add(busyLanes.poll() & 0xFFFF);
+            }
+
+            final int lane = freeLanes.isEmpty() ? laneCount++ : freeLanes.poll();
+            busyLanes.add((lastColumn << 16) | lane);
+
+            firstColumns[i] = firstColumn;
+            lastColumns[i] = lastColumn;
+            lanes[i] = lane;
+            colors[i] = span.getColor();
+            startsInRow[i] = span.getFirstDay() >= firstDay;
+            endsInRow[i] = span.getLastDay() <= lastDay;
+        }
+        return new WeekSpans(firstColumns, lastColumns, lanes, colors, startsInRow, endsInRow, laneCount);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof WeekSpans)) {
+            return false;
+        }
+        final WeekSpans other = (WeekSpans) o;
+        return mLaneCount == other.mLaneCount &&
+                Arrays.equals(mFirstColumns, other.mFirstColumns) &&
+                Arrays.equals(mLastColumns, other.mLastColumns) &&
+                Arrays.equals(mLanes, other.mLanes) &&
+                Arrays.equals(mColors, other.mColors) &&
+                Arrays.equals(mStartsInRow, other.mStartsInRow) &&
+                Arrays.equals(mEndsInRow, other.mEndsInRow);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mLaneCount;
+        result = 31 * result + Arrays.hashCode(mFirstColumns);
+        result = 31 * result + Arrays.hashCode(mLastColumns);
+        result = 31 * result + Arrays.hashCode(mLanes);
+        result = 31 * result + Arrays.hashCode(mColors);
+        return result;
+    }
+
+    /**
+     * @return An estimate of the memory used by these spans, in bytes
+     */
+    int getRetainedBytes() {
+        // the object, six arrays and an int, boolean or int per span in each array
+        return 128 + mColors.length * 18;
+    }
+
+    public int size() {
+        return mLanes.length;
+    }
+
+    public int getLaneCount() {
+        return mLaneCount;
+    }
+
+    public int getFirstColumn(final int index) {
+        return mFirstColumns[index];
+    }
+
+    public int getLastColumn(final int index) {
+        return mLastColumns[index];
+    }
+
+    public int getLane(final int index) {
+        return mLanes[index];
+    }
+
+    public int getColor(final int index) {
+        return mColors[index];
+    }
+
+    /**
+     * @return true if the span starts in this row, false if it continues from the previous row
+     */
+    public boolean startsInRow(final int index) {
+        return mStartsInRow[index];
+    }
+
+    /**
+     * @return true if the span ends in this row, false if it continues in the next row
+     */
+    public boolean endsInRow(final int index) {
+        return mEndsInRow[index];
+    }
+}
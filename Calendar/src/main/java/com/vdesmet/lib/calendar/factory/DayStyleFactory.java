@@ -12,12 +12,14 @@ import com.vdesmet.lib.calendar.R;
 public class DayStyleFactory {
     public static final int DAY_STYLE_TILED = 0;
     public static final int DAY_STYLE_FLAT = 1;
+    public static final int DAY_STYLE_HEATMAP = 2;
 
     public static final int DEFAULT_STYLE = DAY_STYLE_TILED;
 
     public static boolean isValidStyle(final int dayStyle) {
         return (dayStyle == DAY_STYLE_TILED ||
-                dayStyle == DAY_STYLE_FLAT);
+                dayStyle == DAY_STYLE_FLAT ||
+                dayStyle == DAY_STYLE_HEATMAP);
     }
 
     public static ViewGroup getDayLayoutForStyle(final LayoutInflater inflater, final ViewGroup parent,
@@ -27,10 +29,11 @@ public class DayStyleFactory {
             case DAY_STYLE_TILED:
                 // Inflate the layout, and add the background resource
                 final ViewGroup dayLayout = (ViewGroup) inflater.inflate(R.layout.lib_calendar_day, parent, false);
-                dayLayout.setBackgroundResource(R.drawable.lib_calendar_background);
+                dayLayout.setBackgroundResource(getDayBackgroundResourceForStyle(dayStyle));
                 return dayLayout;
 
             case DAY_STYLE_FLAT:
+            case DAY_STYLE_HEATMAP:
                 // Inflate te layout, and return it
                 return (ViewGroup) inflater.inflate(R.layout.lib_calendar_day, parent, false);
 
@@ -40,12 +43,35 @@ public class DayStyleFactory {
         }
     }
 
+    /**
+     * Get the background resource of an enabled day
+     *
+     * @param dayStyle The style
+     * @return The resource id of the background, or 0 if the style has no background
+     */
+    public static int getDayBackgroundResourceForStyle(final int dayStyle) {
+        switch(dayStyle) {
+            case DAY_STYLE_TILED:
+                return R.drawable.lib_calendar_background;
+
+            case DAY_STYLE_FLAT:
+            case DAY_STYLE_HEATMAP:
+                // No background in the flat style, the heatmap sets a color for each day
+                return 0;
+
+            default:
+                // Invalid style, throw exception
+                throw new IllegalArgumentException("Day Style is invalid, cannot inflate day layout.");
+        }
+    }
+
     public static int getDayDisabledBackgroundColor(final int dayStyle, final Resources resources) {
         switch(dayStyle) {
             case DAY_STYLE_TILED:
                 return resources.getColor(R.color.lib_calendar_day_background_disabled);
 
             case DAY_STYLE_FLAT:
+            case DAY_STYLE_HEATMAP:
                 // No custom background color in the flat style
                 return 0;
 
@@ -60,6 +86,7 @@ public class DayStyleFactory {
             case DAY_STYLE_TILED:
                 return R.color.lib_calendar_background;
             case DAY_STYLE_FLAT:
+            case DAY_STYLE_HEATMAP:
                 return R.color.lib_calendar_background_flat;
 
             default:
@@ -67,4 +94,31 @@ public class DayStyleFactory {
                 throw new IllegalArgumentException("Day Style is invalid, cannot inflate day layout.");
         }
     }
+
+    /**
+     * Get the background color of a day in the heatmap style.
+     * The color is interpolated between the low and high color, per channel.
+     *
+     * @param lowColor  The color of a day without load
+     * @param highColor The color of the day with the highest load
+     * @param load      The load of the day
+     * @param maxLoad   The highest load of all days
+     * @return The color for this load
+     */
+    public static int getHeatmapColor(final int lowColor, final int highColor, final int load, final int maxLoad) {
+        if(load <= 0 || maxLoad <= 0) {
+            return lowColor;
+        } else if(load >= maxLoad) {
+            return highColor;
+        }
+
+        int color = 0;
+        for(int shift = 0; shift < 32; shift += 8) {
+            final int low = (lowColor >>> shift) & 0xFF;
+            final int high = (highColor >>> shift) & 0xFF;
+            final int channel = low + (high - low) * load / maxLoad;
+            color |= channel << shift;
+        }
+        return color;
+    }
 }
@@ -93,6 +93,8 @@ public class TitlePageIndicator extends View implements ViewPager.OnPageChangeLi
     private int mCurrentOffset;
     private int mScrollState;
     private final Paint mPaintText = new Paint();
+    //The bounds of all titles, reused for every frame while scrolling
+    private final ArrayList<RectF> mBounds = new ArrayList<RectF>();
     private boolean mBoldText;
     private int mColorText;
     private int mColorSelected;
@@ -479,20 +481,26 @@ public class TitlePageIndicator extends View implements ViewPager.OnPageChangeLi
      * @return
      */
     private ArrayList<RectF> calculateAllBounds(Paint paint) {
-        ArrayList<RectF> list = new ArrayList<RectF>();
+        final ArrayList<RectF> list = mBounds;
         //For each views (If no values then add a fake one)
         final int count = mViewPager.getAdapter().getCount();
         final int width = getWidth();
         final int halfWidth = width / 2;
+        //Only allocate bounds when the number of pages grows
+        while (list.size() < count) {
+            list.add(new RectF());
+        }
+        while (list.size() > count) {
+            list.remove(list.size() - 1);
+        }
         for (int i = 0; i < count; i++) {
-            RectF bounds = calcBounds(i, paint);
+            RectF bounds = calcBounds(i, paint, list.get(i));
             float w = (bounds.right - bounds.left);
             float h = (bounds.bottom - bounds.top);
             bounds.left = (halfWidth) - (w / 2) - mCurrentOffset + ((i - mCurrentPage) * width);
             bounds.right = bounds.left + w;
             bounds.top = 0;
             bounds.bottom = h;
-            list.add(bounds);
         }
 
         return list;
@@ -503,11 +511,13 @@ public class TitlePageIndicator extends View implements ViewPager.OnPageChangeLi
      *
      * @param index
      * @param paint
-     * @return
+     * @param bounds the rect to store the bounds in
+     * @return bounds
      */
-    private RectF calcBounds(int index, Paint paint) {
+    private RectF calcBounds(int index, Paint paint, RectF bounds) {
         //Calculate the text bounds
-        RectF bounds = new RectF();
+        bounds.left = 0;
+        bounds.top = 0;
         bounds.right = paint.measureText(mTitleProvider.getTitle(index));
         bounds.bottom = paint.descent() - paint.ascent();
         return bounds;
@@ -565,9 +575,12 @@ public class TitlePageIndicator extends View implements ViewPager.OnPageChangeLi
 
     @Override
     public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
-        mCurrentPage = position;
-        mCurrentOffset = positionOffsetPixels;
-        invalidate();
+        //Only redraw the titles when they moved
+        if (mCurrentPage != position || mCurrentOffset != positionOffsetPixels) {
+            mCurrentPage = position;
+            mCurrentOffset = positionOffsetPixels;
+            invalidate();
+        }
 
         if (mListener != null) {
             mListener.onPageScrolled(position, positionOffset, positionOffsetPixels);
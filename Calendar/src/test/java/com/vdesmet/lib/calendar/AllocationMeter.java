@@ -0,0 +1,45 @@
+package com.vdesmet.lib.calendar;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the bytes allocated by the current thread, using the allocation counter of the JVM
+ */
+class AllocationMeter {
+    private final com.sun.management.ThreadMXBean mThreadBean;
+    private long mStart;
+
+    AllocationMeter() {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if(threadBean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            mThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            mThreadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            mThreadBean = null;
+        }
+    }
+
+    /**
+     * @return Whether this JVM can count allocations
+     */
+    boolean isSupported() {
+        return mThreadBean != null;
+    }
+
+    void start() {
+        mStart = getAllocatedBytes();
+    }
+
+    /**
+     * @return The number of bytes allocated since start()
+     */
+    long stop() {
+        return getAllocatedBytes() - mStart;
+    }
+
+    private long getAllocatedBytes() {
+        return mThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
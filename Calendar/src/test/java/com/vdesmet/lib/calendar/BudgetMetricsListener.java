@@ -0,0 +1,50 @@
+package com.vdesmet.lib.calendar;
+
+/**
+ * Remembers the number of views inflated by the Calendars which were built
+ */
+class BudgetMetricsListener implements CalendarMetricsListener {
+    private int mInitializedCount;
+    private int mMaxInflatedViews;
+    private int mLastInflatedViews;
+
+    @Override
+    public void onViewInitialized(final AbstractCalendarView view, final long durationNanos,
+                                  final int inflatedViews) {
+        if(!(view instanceof CalendarView)) {
+            // only count the months, not the MultiCalendarView around them
+            return;
+        }
+        mInitializedCount++;
+        mLastInflatedViews = inflatedViews;
+        mMaxInflatedViews = Math.max(mMaxInflatedViews, inflatedViews);
+    }
+
+    @Override
+    public void onPageInstantiated(final int position, final long durationNanos) {
+    }
+
+    @Override
+    public void onAdapterCallback(final int callback, final long durationNanos) {
+    }
+
+    @Override
+    public void onMeasure(final AbstractCalendarView view) {
+    }
+
+    @Override
+    public void onCacheLookup(final int cache, final boolean hit) {
+    }
+
+    int getInitializedCount() {
+        return mInitializedCount;
+    }
+
+    int getMaxInflatedViews() {
+        return mMaxInflatedViews;
+    }
+
+    int getLastInflatedViews() {
+        return mLastInflatedViews;
+    }
+}
@@ -0,0 +1,210 @@
+package com.vdesmet.lib.calendar;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.view.View;
+import android.widget.TextView;
+
+import com.vdesmet.lib.calendar.factory.DayStyleFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Builds a CalendarView for many months and configurations, and fails when building a month
+ * inflates or allocates more than its budget.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CalendarViewBudgetTest {
+    // The headers, 7 day names, at most 7 weeks and 42 days
+    static final int MAX_INFLATED_VIEWS_PER_MONTH = 1 + 7 + 7 + 42;
+    // Every enabled day may add a single category view
+    static final int MAX_INFLATED_VIEWS_PER_MONTH_WITH_CATEGORY = MAX_INFLATED_VIEWS_PER_MONTH + 31;
+    // Includes the allocations of Robolectric's shadows, which are far larger than on a device.
+    // Only catches a runaway month, the ratios below catch smaller regressions
+    static final long MAX_BYTES_PER_MONTH = 1024L * 1024;
+    // A month has 4 - 6 weeks, so it costs at most half more than the first month, which has 5 weeks
+    static final long MAX_MONTH_TO_BASELINE_PERCENT = 150;
+    // Rebinding the days reuses their views, so it must cost less than half of building the month
+    static final long MIN_BUILD_TO_REBIND_RATIO = 2;
+
+    static final int WIDTH = 480;
+    private static final int CATEGORY_COLOR = 0xff33b5e5;
+    static final int HEIGHT = 800;
+
+    private static final int FIRST_YEAR = 2012;
+    private static final int LAST_YEAR = 2016;
+    private static final int[] DAY_STYLES = {
+            DayStyleFactory.DAY_STYLE_TILED, DayStyleFactory.DAY_STYLE_FLAT, DayStyleFactory.DAY_STYLE_HEATMAP};
+    // pairs of the first and last day of the week
+    private static final int[][] WEEKS = {
+            {Calendar.MONDAY, Calendar.SUNDAY},
+            {Calendar.SUNDAY, Calendar.SATURDAY},
+            {Calendar.MONDAY, Calendar.FRIDAY}};
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @Test
+    public void monthsInflateWithinBudget() {
+        for(final int dayStyle : DAY_STYLES) {
+            for(final int[] week : WEEKS) {
+                final BudgetMetricsListener listener = new BudgetMetricsListener();
+                for(int year = FIRST_YEAR; year <= LAST_YEAR; year++) {
+                    for(int month = Calendar.JANUARY; month <= Calendar.DECEMBER; month++) {
+                        buildMonth(year, month, dayStyle, week[0], week[1], null, listener);
+                    }
+                }
+                assertEquals((LAST_YEAR - FIRST_YEAR + 1) * 12, listener.getInitializedCount());
+                assertTrue("style " + dayStyle + " inflated " + listener.getMaxInflatedViews() + " views",
+                        listener.getMaxInflatedViews() <= MAX_INFLATED_VIEWS_PER_MONTH);
+            }
+        }
+    }
+
+    @Test
+    public void categoriesInflateWithinBudget() {
+        final BudgetMetricsListener listener = new BudgetMetricsListener();
+        for(int month = Calendar.JANUARY; month <= Calendar.DECEMBER; month++) {
+            buildMonth(FIRST_YEAR, month, DayStyleFactory.DAY_STYLE_TILED, Calendar.MONDAY, Calendar.SUNDAY,
+                    new SingleCategoryAdapter(), listener);
+        }
+        assertTrue("inflated " + listener.getMaxInflatedViews() + " views",
+                listener.getMaxInflatedViews() <= MAX_INFLATED_VIEWS_PER_MONTH_WITH_CATEGORY);
+    }
+
+    @Test
+    public void monthsAllocateWithinBudget() {
+        final AllocationMeter meter = new AllocationMeter();
+        assumeTrue(meter.isSupported());
+        final BudgetMetricsListener listener = new BudgetMetricsListener();
+
+        // load the classes, resources and the shared CalendarResources before measuring
+        buildMonth(FIRST_YEAR, Calendar.JANUARY, DayStyleFactory.DAY_STYLE_TILED, Calendar.MONDAY, Calendar.SUNDAY,
+                null, listener);
+
+        long baselineBytes = 0;
+        for(int month = Calendar.JANUARY; month <= Calendar.DECEMBER; month++) {
+            final CalendarView view = createMonth(LAST_YEAR, month, DayStyleFactory.DAY_STYLE_TILED,
+                    Calendar.MONDAY, Calendar.SUNDAY, null, listener);
+            meter.start();
+            layout(view);
+            final long allocatedBytes = meter.stop();
+            if(month == Calendar.JANUARY) {
+                baselineBytes = allocatedBytes;
+            }
+            assertTrue("month " + month + " allocated " + allocatedBytes + " bytes",
+                    allocatedBytes <= MAX_BYTES_PER_MONTH);
+            assertTrue("month " + month + " allocated " + allocatedBytes + " bytes, the first month " +
+                            baselineBytes + " bytes",
+                    allocatedBytes * 100 <= baselineBytes * MAX_MONTH_TO_BASELINE_PERCENT);
+        }
+    }
+
+    @Test
+    public void rebindAllocatesLessThanBuilding() {
+        final AllocationMeter meter = new AllocationMeter();
+        assumeTrue(meter.isSupported());
+        final BudgetMetricsListener listener = new BudgetMetricsListener();
+
+        // load the classes, resources and the shared CalendarResources before measuring
+        buildMonth(FIRST_YEAR, Calendar.JANUARY, DayStyleFactory.DAY_STYLE_TILED, Calendar.MONDAY, Calendar.SUNDAY,
+                null, listener);
+
+        final CalendarView view = createMonth(LAST_YEAR, Calendar.JANUARY, DayStyleFactory.DAY_STYLE_TILED,
+                Calendar.MONDAY, Calendar.SUNDAY, new SingleCategoryAdapter(), listener);
+        meter.start();
+        layout(view);
+        final long buildBytes = meter.stop();
+
+        // the first rebind may still create the objects which are reused afterwards
+        view.notifyAllDaysChanged();
+        layout(view);
+
+        meter.start();
+        view.notifyAllDaysChanged();
+        layout(view);
+        final long rebindBytes = meter.stop();
+        assertTrue("a rebind allocated " + rebindBytes + " bytes, building the month " + buildBytes + " bytes",
+                rebindBytes * MIN_BUILD_TO_REBIND_RATIO <= buildBytes);
+    }
+
+    private CalendarView buildMonth(final int year, final int month, final int dayStyle,
+                                    final int firstDayOfWeek, final int lastDayOfWeek,
+                                    final DayAdapter adapter, final CalendarMetricsListener listener) {
+        final CalendarView view = createMonth(year, month, dayStyle, firstDayOfWeek, lastDayOfWeek, adapter, listener);
+        layout(view);
+        return view;
+    }
+
+    private CalendarView createMonth(final int year, final int month, final int dayStyle,
+                                     final int firstDayOfWeek, final int lastDayOfWeek,
+                                     final DayAdapter adapter, final CalendarMetricsListener listener) {
+        final CalendarView view = new CalendarView(mContext);
+        final Calendar firstDay = Calendar.getInstance();
+        firstDay.clear();
+        firstDay.set(year, month, 1);
+
+        // don't wait for the default typeface, which is loaded on another thread
+        view.setTypeface(Typeface.DEFAULT);
+        view.setMetricsListener(listener);
+        view.setDayStyle(dayStyle);
+        view.setFirstDayOfWeek(firstDayOfWeek);
+        view.setLastDayOfWeek(lastDayOfWeek);
+        view.setFirstValidDay(firstDay);
+        view.setCategoryPalette(new CategoryPalette(CATEGORY_COLOR));
+        if(adapter != null) {
+            view.setDayAdapter(adapter);
+        }
+        return view;
+    }
+
+    static void layout(final View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+
+    /**
+     * Enables every day, and gives each of them the first category of the palette
+     */
+    static class SingleCategoryAdapter implements CategoryMaskAdapter {
+        @Override
+        public int getCategoryMask(final long dayInMillis) {
+            return 1;
+        }
+
+        @Override
+        public int[] getCategoryColors(final long dayInMillis) {
+            return null;
+        }
+
+        @Override
+        public boolean isDayEnabled(final long dayInMillis) {
+            return true;
+        }
+
+        @Override
+        public void updateTextView(final TextView dateTextView, final long dayInMillis) {
+        }
+
+        @Override
+        public void updateHeaderTextView(final TextView header, final int dayOfWeek) {
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.vdesmet.lib.calendar;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Compares the grids of many months to the weeks of java.util.Calendar. MonthGrid is plain Java,
+ * so this runs without Robolectric.
+ */
+public class MonthGridTest {
+    private static final int FIRST_YEAR = 1999;
+    private static final int LAST_YEAR = 2030;
+
+    @Test
+    public void gridsMatchCalendarWeeks() {
+        for(int firstDayOfWeek = Calendar.SUNDAY; firstDayOfWeek <= Calendar.SATURDAY; firstDayOfWeek++) {
+            // the day before the first day of the week, so all 7 days are shown
+            final int lastDayOfWeek = (firstDayOfWeek + 5) % 7 + 1;
+            for(int year = FIRST_YEAR; year <= LAST_YEAR; year++) {
+                for(int month = Calendar.JANUARY; month <= Calendar.DECEMBER; month++) {
+                    checkMonth(year, month, firstDayOfWeek, lastDayOfWeek);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void workWeekShowsFiveColumns() {
+        final MonthGrid grid = new MonthGrid(2015, Calendar.FEBRUARY, Calendar.MONDAY, Calendar.FRIDAY);
+        assertEquals(5, grid.getColumnCount());
+        assertEquals(Calendar.MONDAY, grid.getDayOfWeek(0));
+        assertEquals(Calendar.FRIDAY, grid.getDayOfWeek(4));
+        // 1 February 2015 is a Sunday, so the first row starts on Monday 26 January
+        assertEquals(26, grid.getDayOfMonth(grid.getEpochDay(0, 0)));
+        assertFalse(grid.isInMonth(grid.getEpochDay(0, 0)));
+        assertEquals(2, grid.getDayOfMonth(grid.getEpochDay(1, 0)));
+    }
+
+    @Test
+    public void weekWrapsAroundSaturday() {
+        final MonthGrid grid = new MonthGrid(2013, Calendar.MARCH, Calendar.SATURDAY, Calendar.FRIDAY);
+        assertEquals(7, grid.getColumnCount());
+        assertEquals(Calendar.SATURDAY, grid.getDayOfWeek(0));
+        assertEquals(Calendar.SUNDAY, grid.getDayOfWeek(1));
+        assertEquals(Calendar.FRIDAY, grid.getDayOfWeek(6));
+    }
+
+    private static void checkMonth(final int year, final int month, final int firstDayOfWeek,
+                                   final int lastDayOfWeek) {
+        final String name = year + "-" + (month + 1) + " starting on " + firstDayOfWeek;
+        final MonthGrid grid = new MonthGrid(year, month, firstDayOfWeek, lastDayOfWeek);
+
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.setFirstDayOfWeek(firstDayOfWeek);
+        calendar.setMinimalDaysInFirstWeek(1);
+        calendar.set(year, month, 1);
+        assertEquals(name, 7, grid.getColumnCount());
+        assertEquals(name, calendar.getActualMaximum(Calendar.WEEK_OF_MONTH), grid.getRowCount());
+
+        // go back to the first day of the week, on or before the first day of the month
+        while(calendar.get(Calendar.DAY_OF_WEEK) != firstDayOfWeek) {
+            calendar.add(Calendar.DAY_OF_MONTH, -1);
+        }
+        for(int row = 0; row < grid.getRowCount(); row++) {
+            for(int column = 0; column < grid.getColumnCount(); column++) {
+                final int epochDay = grid.getEpochDay(row, column);
+                final String cell = name + ", row " + row + ", column " + column;
+                assertEquals(cell, DayUtils.toEpochDay(calendar), epochDay);
+                assertEquals(cell, calendar.get(Calendar.DAY_OF_WEEK), grid.getDayOfWeek(column));
+                assertEquals(cell, calendar.get(Calendar.DAY_OF_MONTH), grid.getDayOfMonth(epochDay));
+                assertEquals(cell, calendar.get(Calendar.MONTH) == month, grid.isInMonth(epochDay));
+                calendar.add(Calendar.DAY_OF_MONTH, 1);
+            }
+        }
+    }
+}
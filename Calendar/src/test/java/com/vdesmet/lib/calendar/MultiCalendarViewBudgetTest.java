@@ -0,0 +1,115 @@
+package com.vdesmet.lib.calendar;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Typeface;
+import android.support.v4.view.ViewPager;
+
+import com.viewpagerindicator.TitlePageIndicator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Scrolls through a MultiCalendarView, and fails when a page or a frame of the indicator
+ * costs more than its budget.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MultiCalendarViewBudgetTest {
+    // The current page and a page on either side
+    static final int MAX_LIVE_PAGES = 3;
+    // Drawing the indicator mustn't allocate per page, the shadow of the Canvas allocates for the drawn titles
+    static final long MAX_BYTES_PER_INDICATOR_FRAME = 16 * 1024;
+    static final long MAX_BYTES_PER_EXTRA_PAGE = 16;
+
+    private static final int FEW_MONTHS = 2;
+    private static final int MANY_MONTHS = 48;
+    private static final int FRAME_COUNT = 30;
+
+    @Test
+    public void pagesInflateWithinBudget() {
+        final BudgetMetricsListener listener = new BudgetMetricsListener();
+        final MultiCalendarView view = createCalendar(MANY_MONTHS, listener);
+        CalendarViewBudgetTest.layout(view);
+        final ViewPager viewPager = view.getViewPager();
+        assertNotNull(viewPager);
+
+        for(int page = 0; page < MANY_MONTHS; page++) {
+            viewPager.setCurrentItem(page, false);
+            CalendarViewBudgetTest.layout(view);
+            assertTrue("page " + page + " kept " + viewPager.getChildCount() + " pages alive",
+                    viewPager.getChildCount() <= MAX_LIVE_PAGES);
+        }
+        assertTrue(listener.getInitializedCount() >= MANY_MONTHS);
+        assertTrue("a page inflated " + listener.getMaxInflatedViews() + " views",
+                listener.getMaxInflatedViews() <= CalendarViewBudgetTest.MAX_INFLATED_VIEWS_PER_MONTH);
+    }
+
+    @Test
+    public void indicatorDrawsWithinBudget() {
+        final AllocationMeter meter = new AllocationMeter();
+        assumeTrue(meter.isSupported());
+
+        final long fewMonthsBytes = measureIndicatorFrames(meter, FEW_MONTHS) / FRAME_COUNT;
+        final long manyMonthsBytes = measureIndicatorFrames(meter, MANY_MONTHS) / FRAME_COUNT;
+
+        assertTrue("a frame allocated " + manyMonthsBytes + " bytes",
+                manyMonthsBytes <= MAX_BYTES_PER_INDICATOR_FRAME);
+        assertTrue("a frame allocated " + fewMonthsBytes + " bytes with " + FEW_MONTHS + " months and " +
+                        manyMonthsBytes + " bytes with " + MANY_MONTHS + " months",
+                manyMonthsBytes <= fewMonthsBytes + MAX_BYTES_PER_EXTRA_PAGE * (MANY_MONTHS - FEW_MONTHS));
+    }
+
+    /**
+     * Scroll the indicator between the first two pages, and draw it for every frame
+     *
+     * @return The number of bytes allocated while drawing all frames
+     */
+    private long measureIndicatorFrames(final AllocationMeter meter, final int monthCount) {
+        final MultiCalendarView view = createCalendar(monthCount, null);
+        CalendarViewBudgetTest.layout(view);
+        final TitlePageIndicator indicator = view.getIndicator();
+        assertNotNull(indicator);
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(
+                CalendarViewBudgetTest.WIDTH, indicator.getMeasuredHeight() + 1, Bitmap.Config.ARGB_8888));
+
+        // the first frame may create the bounds of all titles
+        indicator.onPageScrolled(0, 0f, 0);
+        indicator.draw(canvas);
+
+        meter.start();
+        for(int frame = 0; frame < FRAME_COUNT; frame++) {
+            final float offset = (float) frame / FRAME_COUNT;
+            indicator.onPageScrolled(0, offset, (int) (offset * CalendarViewBudgetTest.WIDTH));
+            indicator.draw(canvas);
+        }
+        return meter.stop();
+    }
+
+    private MultiCalendarView createCalendar(final int monthCount, final CalendarMetricsListener listener) {
+        final MultiCalendarView view = new MultiCalendarView(RuntimeEnvironment.application);
+        final Calendar firstDay = Calendar.getInstance();
+        firstDay.clear();
+        firstDay.set(2012, Calendar.JANUARY, 1);
+        final Calendar lastDay = Calendar.getInstance();
+        lastDay.setTimeInMillis(firstDay.getTimeInMillis());
+        lastDay.add(Calendar.MONTH, monthCount - 1);
+
+        // don't wait for the default typeface, which is loaded on another thread
+        view.setTypeface(Typeface.DEFAULT);
+        view.setMetricsListener(listener);
+        view.setFirstValidDay(firstDay);
+        view.setLastValidDay(lastDay);
+        return view;
+    }
+}
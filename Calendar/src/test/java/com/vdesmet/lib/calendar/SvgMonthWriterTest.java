@@ -0,0 +1,101 @@
+package com.vdesmet.lib.calendar;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes months as SVG and checks the elements. SvgMonthWriter is plain Java, so this runs without Robolectric.
+ */
+public class SvgMonthWriterTest {
+    private static final int DAY_STYLE_TILED = 0;
+    private static final int DAY_STYLE_FLAT = 1;
+    private static final int DAY_STYLE_HEATMAP = 2;
+    private static final int ALL_DAYS = -1;
+
+    @Test
+    public void tiledMonthHasTileForEveryCell() throws IOException {
+        // 1 March 2015 is a Sunday, so Monday to Sunday needs 6 weeks
+        final MonthGrid grid = new MonthGrid(2015, Calendar.MARCH, Calendar.MONDAY, Calendar.SUNDAY);
+        final String svg = write(new SvgMonthWriter(DAY_STYLE_TILED), grid, ALL_DAYS, null);
+
+        assertTrue(svg, svg.startsWith("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"336\" height=\"311\""));
+        assertTrue(svg, svg.endsWith("</svg>\n"));
+        // the background and 42 tiles
+        assertEquals(1 + 6 * 7, count(svg, "<rect "));
+        // 7 headers and 42 days
+        assertEquals(7 + 6 * 7, count(svg, "<text "));
+        assertTrue(svg, svg.contains(">MON</text>"));
+        assertTrue(svg, svg.contains(">31</text>"));
+        // the previous month ends on Saturday 28 February, the next month starts on Wednesday 1 April
+        assertEquals(2, count(svg, ">28</text>"));
+        assertEquals(2, count(svg, ">1</text>"));
+    }
+
+    @Test
+    public void flatMonthOnlyHasBackground() throws IOException {
+        final MonthGrid grid = new MonthGrid(2015, Calendar.MARCH, Calendar.MONDAY, Calendar.FRIDAY);
+        final SvgMonthWriter writer = new SvgMonthWriter(DAY_STYLE_FLAT);
+        writer.setHeadersVisible(false);
+        final String svg = write(writer, grid, ALL_DAYS, null);
+
+        assertEquals(1, count(svg, "<rect "));
+        assertEquals(6 * 5, count(svg, "<text "));
+        assertEquals(5 * 48f, writer.getWidth(grid), 0f);
+        assertEquals(6 * 48f, writer.getHeight(grid), 0f);
+    }
+
+    @Test
+    public void disabledDaysAndCategoriesUseTheirColors() throws IOException {
+        final MonthGrid grid = new MonthGrid(2013, Calendar.MARCH, Calendar.MONDAY, Calendar.SUNDAY);
+        final int[][] categoryColors = new int[31][];
+        categoryColors[0] = new int[]{0xff33b5e5, 0x80ff0000};
+        // only the first day is enabled
+        final String svg = write(new SvgMonthWriter(DAY_STYLE_TILED), grid, 1, categoryColors);
+
+        assertTrue(svg, svg.contains("fill=\"#33b5e5\"/>"));
+        assertTrue(svg, svg.contains("fill=\"#ff0000\" fill-opacity=\"0.502\"/>"));
+        assertEquals(1, count(svg, "fill=\"#ffffff\"/>"));
+        assertEquals(1, count(svg, "fill=\"#686868\">1</text>"));
+        // 1 March 2013 is a Friday, so 5 weeks of which all other days are disabled
+        assertEquals(5 * 7 - 1, count(svg, "fill=\"#f2f2f2\"/>"));
+        assertEquals(5 * 7 - 1, count(svg, "fill=\"#cbcbcb\">"));
+    }
+
+    @Test
+    public void dayNamesAreEscaped() throws IOException {
+        final MonthGrid grid = new MonthGrid(2013, Calendar.MARCH, Calendar.MONDAY, Calendar.SUNDAY);
+        final SvgMonthWriter writer = new SvgMonthWriter(DAY_STYLE_TILED);
+        writer.setDayName(Calendar.MONDAY, "<M&\">");
+        writer.setFontFamily("\"Roboto\"");
+        final String svg = write(writer, grid, ALL_DAYS, null);
+
+        assertTrue(svg, svg.contains(">&lt;M&amp;&quot;&gt;</text>"));
+        assertTrue(svg, svg.contains("font-family=\"&quot;Roboto&quot;\""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void heatmapIsRejected() {
+        new SvgMonthWriter(DAY_STYLE_HEATMAP);
+    }
+
+    private static String write(final SvgMonthWriter writer, final MonthGrid grid, final int enabledMask,
+                                final int[][] categoryColors) throws IOException {
+        final StringWriter output = new StringWriter();
+        writer.write(output, grid, enabledMask, categoryColors);
+        return output.toString();
+    }
+
+    private static int count(final String text, final String part) {
+        int count = 0;
+        for(int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + part.length())) {
+            count++;
+        }
+        return count;
+    }
+}